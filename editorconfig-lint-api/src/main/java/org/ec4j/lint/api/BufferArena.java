@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A per thread pool of {@code char[]}, {@code int[]} and heap {@link ByteBuffer} scratch buffers used when loading,
+ * indexing and storing {@link Resource}s, so that processing many files does not allocate fresh buffers for each of
+ * them.
+ * <p>
+ * A buffer obtained through one of the {@code acquire*()} methods belongs to the caller until it passes it to the
+ * respective {@code release()} method. Nested acquisitions get distinct buffers. A buffer that is never released is
+ * simply left to the garbage collector. Releasing a buffer that is pooled already is ignored, so that releasing it
+ * twice cannot hand it out to two callers at once. Only up to {@link #MAX_POOLED} buffers of each kind no longer than
+ * {@link #MAX_POOLED_LENGTH} elements are kept by each thread.
+ * <p>
+ * A virtual thread lives for a single file in {@link LintEngine.ExecutionMode#VIRTUAL_THREADS} mode, so that a per
+ * thread arena would start empty for each file. {@link LintEngine} thus lends the arenas of a bounded per run pool to
+ * its virtual threads through {@link #attach(BufferArena)} instead.
+ *
+ * @since 2.2.3
+ */
+public final class BufferArena {
+
+    private static final ThreadLocal<BufferArena> ARENAS = new ThreadLocal<BufferArena>() {
+        @Override
+        protected BufferArena initialValue() {
+            return new BufferArena();
+        }
+    };
+
+    /** The maximal number of buffers of each kind kept by a single thread */
+    static final int MAX_POOLED = 4;
+
+    /** Buffers having more elements than this are not kept */
+    static final int MAX_POOLED_LENGTH = 1024 * 1024;
+
+    /**
+     * Makes the given {@link BufferArena} the one {@link #current()} returns in the calling thread.
+     *
+     * @param arena the {@link BufferArena} to use or {@code null} to go back to a fresh one created on the next
+     *        {@link #current()} call
+     */
+    static void attach(BufferArena arena) {
+        if (arena == null) {
+            ARENAS.remove();
+        } else {
+            ARENAS.set(arena);
+        }
+    }
+
+    /**
+     * @return the {@link BufferArena} of the current thread
+     */
+    public static BufferArena current() {
+        return ARENAS.get();
+    }
+
+    private final ByteBuffer[] byteBuffers = new ByteBuffer[MAX_POOLED];
+    private int byteBufferCount;
+    private final char[][] charArrays = new char[MAX_POOLED][];
+    private int charArrayCount;
+    private final int[][] intArrays = new int[MAX_POOLED][];
+    private int intArrayCount;
+
+    /** The number of buffers allocated because there was no suitable one in the pool; for testing */
+    long misses;
+
+    BufferArena() {
+        super();
+    }
+
+    /**
+     * @param minCapacity the minimal capacity of the requested buffer
+     * @return a cleared heap {@link ByteBuffer} having at least the given capacity
+     */
+    public ByteBuffer acquireBytes(int minCapacity) {
+        int best = -1;
+        for (int i = 0; i < byteBufferCount; i++) {
+            final int size = byteBuffers[i].capacity();
+            if (size >= minCapacity && (best < 0 || size < byteBuffers[best].capacity())) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            final ByteBuffer result = byteBuffers[best];
+            byteBuffers[best] = byteBuffers[--byteBufferCount];
+            byteBuffers[byteBufferCount] = null;
+            ((Buffer) result).clear();
+            return result;
+        }
+        misses++;
+        return ByteBuffer.allocate(minCapacity);
+    }
+
+    /**
+     * @param minLength the minimal length of the requested array
+     * @return a {@code char[]} having at least the given length and an unspecified content
+     */
+    public char[] acquireChars(int minLength) {
+        int best = -1;
+        for (int i = 0; i < charArrayCount; i++) {
+            final int size = charArrays[i].length;
+            if (size >= minLength && (best < 0 || size < charArrays[best].length)) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            final char[] result = charArrays[best];
+            charArrays[best] = charArrays[--charArrayCount];
+            charArrays[charArrayCount] = null;
+            return result;
+        }
+        misses++;
+        return new char[minLength];
+    }
+
+    /**
+     * @param minLength the minimal length of the requested array
+     * @return an {@code int[]} having at least the given length and an unspecified content
+     */
+    public int[] acquireInts(int minLength) {
+        int best = -1;
+        for (int i = 0; i < intArrayCount; i++) {
+            final int size = intArrays[i].length;
+            if (size >= minLength && (best < 0 || size < intArrays[best].length)) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            final int[] result = intArrays[best];
+            intArrays[best] = intArrays[--intArrayCount];
+            intArrays[intArrayCount] = null;
+            return result;
+        }
+        misses++;
+        return new int[minLength];
+    }
+
+    /**
+     * Returns the given {@link ByteBuffer} to this {@link BufferArena}. The caller must not use it afterwards.
+     *
+     * @param buffer the buffer to return
+     */
+    public void release(ByteBuffer buffer) {
+        for (int i = 0; i < byteBufferCount; i++) {
+            if (byteBuffers[i] == buffer) {
+                return;
+            }
+        }
+        if (buffer.hasArray() && !buffer.isReadOnly() && buffer.capacity() <= MAX_POOLED_LENGTH) {
+            if (byteBufferCount < MAX_POOLED) {
+                byteBuffers[byteBufferCount++] = buffer;
+            } else {
+                /* prefer keeping the bigger buffers */
+                int smallest = 0;
+                for (int i = 1; i < MAX_POOLED; i++) {
+                    if (byteBuffers[i].capacity() < byteBuffers[smallest].capacity()) {
+                        smallest = i;
+                    }
+                }
+                if (byteBuffers[smallest].capacity() < buffer.capacity()) {
+                    byteBuffers[smallest] = buffer;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the given {@code char[]} to this {@link BufferArena}. The caller must not use it afterwards.
+     *
+     * @param array the array to return
+     */
+    public void release(char[] array) {
+        for (int i = 0; i < charArrayCount; i++) {
+            if (charArrays[i] == array) {
+                return;
+            }
+        }
+        if (array.length <= MAX_POOLED_LENGTH) {
+            if (charArrayCount < MAX_POOLED) {
+                charArrays[charArrayCount++] = array;
+            } else {
+                int smallest = 0;
+                for (int i = 1; i < MAX_POOLED; i++) {
+                    if (charArrays[i].length < charArrays[smallest].length) {
+                        smallest = i;
+                    }
+                }
+                if (charArrays[smallest].length < array.length) {
+                    charArrays[smallest] = array;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the given {@code int[]} to this {@link BufferArena}. The caller must not use it afterwards.
+     *
+     * @param array the array to return
+     */
+    public void release(int[] array) {
+        for (int i = 0; i < intArrayCount; i++) {
+            if (intArrays[i] == array) {
+                return;
+            }
+        }
+        if (array.length <= MAX_POOLED_LENGTH) {
+            if (intArrayCount < MAX_POOLED) {
+                intArrays[intArrayCount++] = array;
+            } else {
+                int smallest = 0;
+                for (int i = 1; i < MAX_POOLED; i++) {
+                    if (intArrays[i].length < intArrays[smallest].length) {
+                        smallest = i;
+                    }
+                }
+                if (intArrays[smallest].length < array.length) {
+                    intArrays[smallest] = array;
+                }
+            }
+        }
+    }
+
+}
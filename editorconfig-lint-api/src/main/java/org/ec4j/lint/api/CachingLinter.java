@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.ec4j.core.ResourceProperties;
+
+/**
+ * A {@link Linter} wrapper skipping the {@link Resource}s recorded as clean in a {@link LintCache} and recording the
+ * {@link Resource}s for which the delegate reports no {@link Violation}s.
+ *
+ * @since 2.2.3
+ */
+class CachingLinter implements Linter {
+
+    /**
+     * A {@link ViolationHandler} counting the {@link Violation}s passed to a delegate.
+     */
+    static class CountingViolationHandler implements ViolationHandler {
+        private int count;
+        private final ViolationHandler delegate;
+
+        CountingViolationHandler(ViolationHandler delegate) {
+            super();
+            this.delegate = delegate;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ReturnState endFile() {
+            return delegate.endFile();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void endFiles() {
+            delegate.endFiles();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Logger getLogger() {
+            return delegate.getLogger();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void handle(Violation violation) {
+            count++;
+            delegate.handle(violation);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFile(Resource resource) {
+            delegate.startFile(resource);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFiles() {
+            delegate.startFiles();
+        }
+    }
+
+    private final LintCache cache;
+    private final Linter delegate;
+
+    CachingLinter(Linter delegate, LintCache cache) {
+        super();
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /**
+     * @return the wrapped {@link Linter}
+     */
+    Linter getDelegate() {
+        return delegate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> getDefaultExcludes() {
+        return delegate.getDefaultExcludes();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> getDefaultIncludes() {
+        return delegate.getDefaultIncludes();
+    }
+
+    /**
+     * @param resource the {@link Resource} to be processed
+     * @param properties the effective {@code .editorconfig} properties of the {@code resource}
+     * @return {@code true} if {@link #process(Resource, ResourceProperties, ViolationHandler)} is going to skip the
+     *         given {@code resource} because it is recorded as clean in the {@link LintCache}
+     * @throws IOException on I/O problems
+     */
+    boolean isClean(Resource resource, ResourceProperties properties) throws IOException {
+        return cache.isClean(cache.key(resource, properties, delegate));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
+            throws IOException {
+        process(resource, properties, violationHandler, CancellationToken.NONE);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler,
+            CancellationToken cancellationToken) throws IOException {
+        final String key = cache.key(resource, properties, delegate);
+        if (cache.isClean(key)) {
+            final Logger log = violationHandler.getLogger();
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping {} for '{}' recorded as clean in the lint cache", delegate.getClass().getName(),
+                        resource);
+            }
+            return;
+        }
+        final CountingViolationHandler countingHandler = new CountingViolationHandler(violationHandler);
+        delegate.process(resource, properties, countingHandler, cancellationToken);
+        if (countingHandler.count == 0) {
+            cache.markClean(key);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+}
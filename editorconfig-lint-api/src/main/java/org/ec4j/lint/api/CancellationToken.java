@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token through which a running lint can be cancelled, either explicitly through {@link #cancel()} or by a
+ * deadline set by {@link #withTimeout(long, TimeUnit)}. {@link Linter}s poll it through {@link #throwIfCancelled()}
+ * at line or token granularity so that a single pathological file cannot stall a whole run.
+ * <p>
+ * A token created by {@link #withTimeout(long, TimeUnit)} is also cancelled when its parent is. Thread safe.
+ *
+ * @since 2.2.3
+ */
+public class CancellationToken {
+
+    /** A token that is never cancelled */
+    public static final CancellationToken NONE = new CancellationToken(null, 0L, 0L) {
+        @Override
+        public void cancel() {
+            throw new UnsupportedOperationException("Cannot cancel " + CancellationToken.class.getSimpleName()
+                    + ".NONE");
+        }
+    };
+
+    /**
+     * @return a new {@link CancellationToken} having no deadline
+     */
+    public static CancellationToken create() {
+        return new CancellationToken(null, 0L, 0L);
+    }
+
+    private volatile boolean cancelled;
+    /**
+     * The {@link System#nanoTime()} after which this token is cancelled; meaningful only if {@link #timeoutNanos} > 0
+     */
+    private final long deadlineNanos;
+    private final CancellationToken parent;
+    private final long timeoutNanos;
+
+    CancellationToken(CancellationToken parent, long timeoutNanos, long deadlineNanos) {
+        super();
+        this.parent = parent;
+        this.timeoutNanos = timeoutNanos;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Cancels this token and all tokens derived from it.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return {@code true} if this token or any of its parents was cancelled or has passed its deadline
+     */
+    public boolean isCancelled() {
+        return cancelled || isTimedOut() || (parent != null && parent.isCancelled());
+    }
+
+    /**
+     * @return {@code true} if this token or any of its parents has passed its deadline
+     */
+    public boolean isTimedOut() {
+        return (timeoutNanos > 0L && System.nanoTime() - deadlineNanos >= 0L)
+                || (parent != null && parent.isTimedOut());
+    }
+
+    /**
+     * @throws LintCancelledException if this token is cancelled
+     */
+    public void throwIfCancelled() throws LintCancelledException {
+        if (isCancelled()) {
+            final boolean timedOut = isTimedOut();
+            throw new LintCancelledException(timedOut ? "Lint timed out" : "Lint cancelled", timedOut);
+        }
+    }
+
+    /**
+     * @param timeout the time after which the new token is cancelled, counting from now
+     * @param unit the unit of {@code timeout}
+     * @return a new {@link CancellationToken} cancelled after the given {@code timeout} or when this token is
+     *         cancelled
+     */
+    public CancellationToken withTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0L) {
+            throw new IllegalArgumentException("timeout must be > 0; found " + timeout);
+        }
+        final long nanos = unit.toNanos(timeout);
+        return new CancellationToken(this, nanos, System.nanoTime() + nanos);
+    }
+
+}
@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.ec4j.lint.api.ViolationHandler.ReturnState;
+
+/**
+ * Selects the files that need to be linted in incremental runs, so that the whole tree does not need to be read when
+ * just a few files have changed. There are two ways to find the changed files:
+ * <ul>
+ * <li>{@link #fromList(Path, Reader)} takes an explicit list of changed paths, such as the output of
+ * {@code git diff --name-only}</li>
+ * <li>{@link #fromIndex(Path)} compares the size and last modification time of the files against an index of the files
+ * found clean in the previous runs. The index is filled by the {@link ViolationHandler} returned by
+ * {@link #record(ViolationHandler)} and it is written to {@link Builder#indexFile(Path)} on {@link #close()}</li>
+ * </ul>
+ * In both cases, only the files having some {@link Linter} in the {@link Builder#registry(LinterRegistry)} are
+ * returned. A changed {@code .editorconfig} file or a changed set or version of {@link Linter}s selects all such files.
+ * Changes of the includes and excludes of the {@link Linter}s are not detected; call {@link #invalidate()} after
+ * changing them.
+ * <p>
+ * The selected files are meant to be passed to {@link LintEngine#lint(Path, Iterable, ViolationHandler)}.
+ *
+ * @since 2.2.3
+ */
+public class ChangedFiles implements Closeable {
+
+    /**
+     * A {@link ChangedFiles} builder.
+     */
+    public static class Builder {
+        private Path indexFile;
+        private Logger log = Logger.NO_OP;
+        private LinterRegistry registry;
+
+        Builder() {
+            super();
+        }
+
+        /**
+         * @return a new {@link ChangedFiles} with the index loaded from {@link #indexFile(Path)}
+         * @throws IOException on I/O problems
+         */
+        public ChangedFiles build() throws IOException {
+            final ChangedFiles result = new ChangedFiles(Objects.requireNonNull(registry, "registry"), indexFile, log);
+            if (indexFile != null) {
+                result.load();
+            }
+            return result;
+        }
+
+        /**
+         * @param indexFile the file to store the index in or {@code null} if only {@link ChangedFiles#fromList(Path,
+         *        Reader)} is going to be used
+         * @return this {@link Builder}
+         */
+        public Builder indexFile(Path indexFile) {
+            this.indexFile = indexFile;
+            return this;
+        }
+
+        /**
+         * @param log the {@link Logger} to use
+         * @return this {@link Builder}
+         */
+        public Builder log(Logger log) {
+            this.log = Objects.requireNonNull(log, "log");
+            return this;
+        }
+
+        /**
+         * @param registry the {@link LinterRegistry} to select the files with
+         * @return this {@link Builder}
+         */
+        public Builder registry(LinterRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+    }
+
+    /**
+     * The size and last modification time of a file.
+     */
+    static class FileState {
+        private final long lastModified;
+        private final long size;
+
+        FileState(long size, long lastModified) {
+            super();
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            final FileState other = (FileState) obj;
+            return size == other.size && lastModified == other.lastModified;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(size) + Long.hashCode(lastModified);
+        }
+    }
+
+    /**
+     * A {@link ViolationHandler} adding the files with no {@link Violation}s to the index and removing the others.
+     */
+    class RecordingViolationHandler implements ViolationHandler {
+        private Resource current;
+        private final ViolationHandler delegate;
+        private int violationCount;
+
+        RecordingViolationHandler(ViolationHandler delegate) {
+            super();
+            this.delegate = delegate;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ReturnState endFile() {
+            final ReturnState result = delegate.endFile();
+            if (result == ReturnState.FINISHED) {
+                final String key = key(current.getPath());
+                if (violationCount == 0) {
+                    record(key, current.getPath());
+                } else {
+                    forget(key);
+                }
+            }
+            return result;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void endFiles() {
+            delegate.endFiles();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Logger getLogger() {
+            return delegate.getLogger();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void handle(Violation violation) {
+            violationCount++;
+            delegate.handle(violation);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFile(Resource resource) {
+            current = resource;
+            violationCount = 0;
+            delegate.startFile(resource);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFiles() {
+            delegate.startFiles();
+        }
+    }
+
+    private static final String EDITORCONFIG = ".editorconfig";
+
+    private static final String HEADER = "# ec4j changed files index 1";
+
+    /**
+     * Files modified less than this number of milliseconds ago are not added to the index because a subsequent change
+     * might not alter their last modification time
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    /**
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static FileState state(BasicFileAttributes attrs) {
+        return new FileState(attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    /** The states of the {@code .editorconfig} files seen by the last {@link #fromIndex(Path)} by absolute path */
+    private final Map<String, FileState> configs = new HashMap<>();
+
+    private boolean dirty;
+
+    /** The states of the files found clean by absolute path */
+    private final Map<String, FileState> files = new HashMap<>();
+
+    private final Path indexFile;
+
+    private final Logger log;
+
+    private final LinterRegistry registry;
+
+    /** The {@link Linter} classes and versions the index was recorded with */
+    private String versions;
+
+    ChangedFiles(LinterRegistry registry, Path indexFile, Logger log) {
+        super();
+        this.registry = registry;
+        this.indexFile = indexFile;
+        this.log = log;
+    }
+
+    /**
+     * @param rootDirectory the directory to walk
+     * @return all regular files under the given {@code rootDirectory} relative to it having some {@link Linter},
+     *         sorted by path
+     * @throws IOException on I/O problems
+     */
+    private List<Path> all(Path rootDirectory) throws IOException {
+        final List<Path> result = new ArrayList<>();
+        for (Path file : LintEngine.walk(rootDirectory, registry, null)) {
+            if (!registry.filter(file).isEmpty()) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the index to {@link Builder#indexFile(Path)} if anything has changed since it was loaded.
+     *
+     * @throws IOException on I/O problems
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!dirty || indexFile == null) {
+            return;
+        }
+        final Path dir = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path tmp = Files.createTempFile(dir, indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                w.write(HEADER);
+                w.write('\n');
+                w.write("V\t" + currentVersions() + "\n");
+                for (Map.Entry<String, FileState> en : new TreeMap<>(configs).entrySet()) {
+                    final FileState fs = en.getValue();
+                    w.write("E\t" + fs.size + "\t" + fs.lastModified + "\t" + en.getKey() + "\n");
+                }
+                for (Map.Entry<String, FileState> en : new TreeMap<>(files).entrySet()) {
+                    final FileState fs = en.getValue();
+                    w.write("F\t" + fs.size + "\t" + fs.lastModified + "\t" + en.getKey() + "\n");
+                }
+            }
+            try {
+                Files.move(tmp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        log.debug("Stored {} clean files to {}", files.size(), indexFile);
+        dirty = false;
+    }
+
+    /**
+     * @return the class names and versions of the {@link Linter}s in {@link #registry}
+     */
+    private String currentVersions() {
+        final TreeSet<String> result = new TreeSet<>();
+        for (Linter linter : registry.getLinters()) {
+            final Linter useLinter = linter instanceof CachingLinter ? ((CachingLinter) linter).getDelegate() : linter;
+            result.add(useLinter.getClass().getName() + "=" + LintCache.version(useLinter));
+        }
+        return String.join(",", result);
+    }
+
+    private synchronized void forget(String key) {
+        if (files.remove(key) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Selects the files to lint from the index of the files found clean in the previous runs. Walks the
+     * {@code rootDirectory}, skipping the directories having no files to lint according to
+     * {@link LinterRegistry#mayLintUnder(Path)}, but does not read any files, except for the {@code .editorconfig}
+     * files.
+     *
+     * @param rootDirectory the directory to walk
+     * @return the files under {@code rootDirectory} relative to it whose size or last modification time differs from
+     *         the index, or all of them if some {@code .editorconfig} file or some {@link Linter} has changed; sorted
+     *         by path
+     * @throws IOException on I/O problems
+     * @throws IllegalStateException if no {@link Builder#indexFile(Path)} was set
+     */
+    public synchronized List<Path> fromIndex(Path rootDirectory) throws IOException {
+        if (indexFile == null) {
+            throw new IllegalStateException("No indexFile set");
+        }
+        final Path root = rootDirectory.toAbsolutePath().normalize();
+        final Map<String, FileState> foundConfigs = new HashMap<>();
+        for (Path dir = root.getParent(); dir != null; dir = dir.getParent()) {
+            final Path config = dir.resolve(EDITORCONFIG);
+            if (Files.isRegularFile(config)) {
+                foundConfigs.put(key(config), state(Files.readAttributes(config, BasicFileAttributes.class)));
+            }
+        }
+        final List<Path> candidates = new ArrayList<>();
+        final List<Path> changed = new ArrayList<>();
+        final Map<String, FileState> seen = new HashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(root) && !registry.mayLintUnder(root.relativize(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!attrs.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                final String key = key(file);
+                if (EDITORCONFIG.equals(file.getFileName().toString())) {
+                    foundConfigs.put(key, state(attrs));
+                }
+                final Path relPath = root.relativize(file);
+                if (!registry.filter(relPath).isEmpty()) {
+                    candidates.add(relPath);
+                    final FileState fileState = state(attrs);
+                    seen.put(key, fileState);
+                    if (!fileState.equals(files.get(key))) {
+                        changed.add(relPath);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        final String currentVersions = currentVersions();
+        /* forget the files that do not exist anymore */
+        final String prefix = root.toString() + root.getFileSystem().getSeparator();
+        for (Iterator<Map.Entry<String, FileState>> it = files.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry<String, FileState> en = it.next();
+            if (en.getKey().startsWith(prefix) && !seen.containsKey(en.getKey())) {
+                it.remove();
+                dirty = true;
+            }
+        }
+        final List<Path> result;
+        if (!foundConfigs.equals(configs) || !currentVersions.equals(versions)) {
+            log.debug("The .editorconfig files or the linters have changed; selecting all {} files", candidates.size());
+            files.clear();
+            configs.clear();
+            configs.putAll(foundConfigs);
+            versions = currentVersions;
+            dirty = true;
+            result = candidates;
+        } else {
+            log.debug("Selected {} changed out of {} files", changed.size(), candidates.size());
+            result = changed;
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Selects the files to lint from the given list of changed paths, one per line, relative to the
+     * {@code rootDirectory}. Paths of files that do not exist anymore, of files outside of the {@code rootDirectory}
+     * and of files having no {@link Linter} are skipped.
+     *
+     * @param rootDirectory the directory to resolve the changed paths against
+     * @param changedPaths the list of changed paths, such as the output of {@code git diff --name-only}
+     * @return the selected files relative to {@code rootDirectory} or all files under {@code rootDirectory} having
+     *         some {@link Linter} if some {@code .editorconfig} file has changed; sorted by path
+     * @throws IOException on I/O problems
+     */
+    public List<Path> fromList(Path rootDirectory, Reader changedPaths) throws IOException {
+        final Path root = rootDirectory.toAbsolutePath().normalize();
+        final TreeSet<Path> result = new TreeSet<>();
+        final BufferedReader r = changedPaths instanceof BufferedReader ? (BufferedReader) changedPaths
+                : new BufferedReader(changedPaths);
+        String line;
+        while ((line = r.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            final Path file = root.resolve(line).normalize();
+            if (!file.startsWith(root)) {
+                continue;
+            }
+            if (EDITORCONFIG.equals(String.valueOf(file.getFileName()))) {
+                log.debug("{} has changed; selecting all files", line);
+                return all(root);
+            }
+            final Path relPath = root.relativize(file);
+            if (Files.isRegularFile(file) && !registry.filter(relPath).isEmpty()) {
+                result.add(relPath);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Removes all entries from the index so that the next {@link #fromIndex(Path)} selects all files.
+     */
+    public synchronized void invalidate() {
+        files.clear();
+        configs.clear();
+        versions = null;
+        dirty = true;
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader r = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(r.readLine())) {
+                log.debug("Ignoring {} written by an incompatible version", indexFile);
+                return;
+            }
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("V\t")) {
+                    versions = line.substring(2);
+                } else if (line.startsWith("E\t") || line.startsWith("F\t")) {
+                    final String[] fields = line.split("\t", 4);
+                    if (fields.length == 4) {
+                        final FileState fs = new FileState(Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+                        (line.charAt(0) == 'E' ? configs : files).put(fields[3], fs);
+                    }
+                }
+            }
+            log.debug("Loaded {} clean files from {}", files.size(), indexFile);
+        } catch (NoSuchFileException e) {
+            log.debug("No changed files index found at {}", indexFile);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring the corrupted changed files index {}", indexFile);
+            invalidate();
+        }
+    }
+
+    /**
+     * Adds the current state of the given file to the index unless it was modified too recently.
+     *
+     * @param key the key of the file
+     * @param path the file
+     */
+    private void record(String key, Path path) {
+        final BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            forget(key);
+            return;
+        }
+        final FileState fileState = state(attrs);
+        synchronized (this) {
+            if (fileState.lastModified < System.currentTimeMillis() - RACY_MILLIS) {
+                if (!fileState.equals(files.put(key, fileState))) {
+                    dirty = true;
+                }
+            } else if (files.remove(key) != null) {
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * @param delegate the {@link ViolationHandler} to wrap
+     * @return a {@link ViolationHandler} passing all calls to the given {@code delegate} and adding the files having
+     *         no {@link Violation}s to the index used by {@link #fromIndex(Path)}
+     */
+    public ViolationHandler record(ViolationHandler delegate) {
+        return new RecordingViolationHandler(delegate);
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A {@link Reader} decoding a {@link FileChannel} through fixed-size byte and char windows so that the memory used
+ * does not depend on the size of the file. Malformed input is replaced the same way as in
+ * {@link TextLoader#decoder(Charset)}.
+ *
+ * @since 2.2.3
+ */
+final class ChannelReader extends Reader {
+
+    private boolean bomChecked;
+
+    private final ByteBuffer bytes;
+
+    private final FileChannel channel;
+
+    private final char[] charArray;
+
+    private final CharBuffer chars;
+
+    private boolean closed;
+
+    private final CharsetDecoder decoder;
+
+    private final Charset encoding;
+
+    private boolean endOfInput;
+
+    private boolean flushed;
+
+    /**
+     * @param channel the {@link FileChannel} to read from; will be closed by {@link #close()}
+     * @param encoding the {@link Charset} to use for decoding
+     * @param windowSize the size of the byte and char windows
+     */
+    ChannelReader(FileChannel channel, Charset encoding, int windowSize) {
+        super();
+        this.channel = channel;
+        this.encoding = encoding;
+        /* not the per thread decoder of TextLoader because this one is in use until this reader is closed */
+        this.decoder = encoding.newDecoder() //
+                .onMalformedInput(CodingErrorAction.REPLACE) //
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final BufferArena arena = BufferArena.current();
+        this.bytes = arena.acquireBytes(windowSize);
+        ((Buffer) bytes).flip();
+        this.charArray = arena.acquireChars(windowSize);
+        this.chars = CharBuffer.wrap(charArray);
+        ((Buffer) chars).flip();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            /* the windows go back to the arena of the closing thread, which is typically the creating one */
+            final BufferArena arena = BufferArena.current();
+            arena.release(bytes);
+            arena.release(charArray);
+        }
+        channel.close();
+    }
+
+    /**
+     * Decodes the next portion of input into {@link #chars}.
+     *
+     * @return {@code false} if there is no more input, {@code true} otherwise
+     * @throws IOException on I/O problems
+     */
+    private boolean fill() throws IOException {
+        ((Buffer) chars).clear();
+        try {
+            while (chars.position() == 0) {
+                if (flushed) {
+                    return false;
+                }
+                if (!endOfInput && (bytes.remaining() < bytes.capacity() / 2 || !bomChecked)) {
+                    bytes.compact();
+                    while (bytes.hasRemaining()) {
+                        final int read = channel.read(bytes);
+                        if (read < 0) {
+                            endOfInput = true;
+                            break;
+                        } else if (read == 0 || bomChecked) {
+                            break;
+                        }
+                    }
+                    ((Buffer) bytes).flip();
+                }
+                if (!bomChecked) {
+                    TextLoader.skipBom(bytes, encoding);
+                    bomChecked = true;
+                }
+                CoderResult cr = decoder.decode(bytes, chars, endOfInput);
+                if (cr.isUnderflow() && endOfInput) {
+                    cr = decoder.flush(chars);
+                    if (cr.isUnderflow()) {
+                        flushed = true;
+                    }
+                }
+                if (cr.isError()) {
+                    cr.throwException();
+                }
+            }
+            return true;
+        } finally {
+            ((Buffer) chars).flip();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        final int result = Math.min(len, chars.remaining());
+        chars.get(cbuf, off, result);
+        return result;
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A thread safe variant of {@link ViolationCollector}. Each thread collects into its own shard and the shards are
+ * merged on {@link #endFiles()} or {@link #getViolations()}. A thread hands its shard back on {@link #endFile()}, so
+ * that threads living for a single file, like the virtual threads of {@link LintEngine.ExecutionMode#VIRTUAL_THREADS}
+ * mode, reuse the shards of the finished files rather than creating one each.
+ * <p>
+ * The merged {@link Violation}s are ordered by the {@link Resource#toString() relative paths} of their
+ * {@link Resource}s and, within a single {@link Resource}, in the order the {@link Linter}s reported them. The
+ * {@link Violation}s are logged in that order on {@link #endFiles()} rather than when they are reported, so that the
+ * log of a parallel run does not depend on the thread interleaving.
+ *
+ * @since 2.2.3
+ */
+public class ConcurrentViolationCollector implements ConcurrentViolationHandler {
+
+    /**
+     * The {@link Violation}s collected by a single thread.
+     */
+    static class Shard {
+        private Resource currentFile;
+        private int processedFileCount;
+        private final Map<Resource, List<Violation>> violations = new LinkedHashMap<>();
+    }
+
+    private static final Comparator<Resource> RESOURCE_ORDER = new Comparator<Resource>() {
+        @Override
+        public int compare(Resource r1, Resource r2) {
+            final int result = r1.toString().compareTo(r2.toString());
+            return result != 0 ? result : r1.getPath().toString().compareTo(r2.getPath().toString());
+        }
+    };
+
+    private final String correctiveAction;
+
+    private final boolean failOnFormatViolation;
+
+    /** The shards not bound to any thread */
+    private volatile ConcurrentLinkedQueue<Shard> idleShards;
+
+    private final Logger log;
+
+    private volatile ThreadLocal<Shard> shard;
+
+    /** All shards created since the last {@link #startFiles()}; package-private for testing */
+    volatile ConcurrentLinkedQueue<Shard> shards;
+
+    public ConcurrentViolationCollector(boolean failOnFormatViolation, String correctiveAction, Logger log) {
+        super();
+        this.failOnFormatViolation = failOnFormatViolation;
+        this.correctiveAction = correctiveAction;
+        this.log = log;
+        reset();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ReturnState endFile() {
+        final Shard s = shard.get();
+        if (log.isDebugEnabled() && !s.violations.containsKey(s.currentFile)) {
+            log.debug("No formatting violations found in file '{}'", s.currentFile);
+        }
+        s.currentFile = null;
+        synchronized (s) {
+            s.processedFileCount++;
+        }
+        shard.remove();
+        idleShards.add(s);
+        return ReturnState.FINISHED;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endFiles() {
+        final Map<Resource, List<Violation>> merged = getViolations();
+        for (List<Violation> list : merged.values()) {
+            for (Violation violation : list) {
+                if (failOnFormatViolation) {
+                    log.error(violation.toString());
+                } else {
+                    log.warn(violation.toString());
+                }
+            }
+        }
+        final int processedFileCount = getProcessedFileCount();
+        log.info("Checked {} {}", processedFileCount, (processedFileCount == 1 ? "file" : "files"));
+        if (failOnFormatViolation && !merged.isEmpty()) {
+            throw new FormatException("There are .editorconfig violations. You may want to run\n\n    "
+                    + correctiveAction + "\n\nto fix them automagically.");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * @return the number of files processed since the last {@link #startFiles()} by all threads
+     */
+    public int getProcessedFileCount() {
+        int result = 0;
+        for (Shard s : shards) {
+            synchronized (s) {
+                result += s.processedFileCount;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges the shards of all threads. Should be called when no thread is reporting anymore.
+     *
+     * @return an unmodifiable {@link Map} from {@link Resource}s to {@link Violation}s reported via
+     *         {@link #handle(Violation)}, ordered by the relative paths of the {@link Resource}s
+     */
+    public Map<Resource, List<Violation>> getViolations() {
+        final List<Map.Entry<Resource, List<Violation>>> entries = new ArrayList<>();
+        for (Shard s : shards) {
+            synchronized (s) {
+                entries.addAll(s.violations.entrySet());
+            }
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<Resource, List<Violation>>>() {
+            @Override
+            public int compare(Map.Entry<Resource, List<Violation>> e1, Map.Entry<Resource, List<Violation>> e2) {
+                return RESOURCE_ORDER.compare(e1.getKey(), e2.getKey());
+            }
+        });
+        final Map<Resource, List<Violation>> result = new LinkedHashMap<>(entries.size() * 2);
+        for (Map.Entry<Resource, List<Violation>> en : entries) {
+            final List<Violation> list = result.get(en.getKey());
+            if (list == null) {
+                result.put(en.getKey(), Collections.unmodifiableList(new ArrayList<>(en.getValue())));
+            } else {
+                /* the same resource reported by more than one thread */
+                final List<Violation> newList = new ArrayList<>(list);
+                newList.addAll(en.getValue());
+                result.put(en.getKey(), Collections.unmodifiableList(newList));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void handle(Violation violation) {
+        final Shard s = shard.get();
+        synchronized (s) {
+            List<Violation> list = s.violations.get(violation.getResource());
+            if (list == null) {
+                list = new ArrayList<Violation>();
+                s.violations.put(violation.getResource(), list);
+            }
+            list.add(violation);
+        }
+    }
+
+    /**
+     * @return true if some violations were reported to this {@link ConcurrentViolationCollector} via
+     *         {@link #handle(Violation)}
+     */
+    public boolean hasViolations() {
+        for (Shard s : shards) {
+            synchronized (s) {
+                if (!s.violations.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param resource the resource for which to check whether any violations were reported for it
+     * @return {@code true} if violations were reported for the given {@link Resource} via {@link #handle(Violation)}
+     */
+    public boolean hasViolations(Resource resource) {
+        for (Shard s : shards) {
+            synchronized (s) {
+                final List<Violation> list = s.violations.get(resource);
+                if (list != null && !list.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void reset() {
+        final ConcurrentLinkedQueue<Shard> newShards = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Shard> newIdleShards = new ConcurrentLinkedQueue<>();
+        this.shards = newShards;
+        this.idleShards = newIdleShards;
+        this.shard = new ThreadLocal<Shard>() {
+            @Override
+            protected Shard initialValue() {
+                Shard result = newIdleShards.poll();
+                if (result == null) {
+                    result = new Shard();
+                    newShards.add(result);
+                }
+                return result;
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startFile(Resource file) {
+        shard.get().currentFile = file;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startFiles() {
+        reset();
+    }
+
+}
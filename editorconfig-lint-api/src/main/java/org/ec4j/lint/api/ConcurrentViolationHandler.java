@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+/**
+ * A {@link ViolationHandler} that may be used by multiple threads at once, as long as each thread reports about one
+ * file at a time via {@link #startFile(Resource)}, {@link #handle(Violation)} and {@link #endFile()}.
+ * {@link #startFiles()} and {@link #endFiles()} are still called just once, before and after all files.
+ * <p>
+ * {@link LintEngine} reports to such handlers directly from its worker threads instead of replaying the
+ * {@link Violation}s in the input order.
+ *
+ * @since 2.2.3
+ */
+public interface ConcurrentViolationHandler extends ViolationHandler {
+}
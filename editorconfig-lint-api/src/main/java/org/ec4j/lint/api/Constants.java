@@ -26,6 +26,15 @@ import java.util.Set;
  */
 public final class Constants {
 
+    /**
+     * The {@link ContentClassifier} used by {@link Resource#isBinary()} unless set otherwise via
+     * {@link Resource.Options.Builder#contentClassifier(ContentClassifier)}. Complements {@link #DEFAULT_EXCLUDES} for
+     * binary files whose names do not reveal their nature.
+     *
+     * @since 2.2.3
+     */
+    public static final ContentClassifier DEFAULT_CONTENT_CLASSIFIER = SniffingContentClassifier.builder().build();
+
     /**
      * A list file patterns that match non-source files.
      * <p>
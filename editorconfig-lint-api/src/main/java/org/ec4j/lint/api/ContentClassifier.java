@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Decides whether a file is binary by inspecting its first few bytes, so that binary files can be skipped before their
+ * content gets decoded and buffered.
+ *
+ * @see Constants#DEFAULT_CONTENT_CLASSIFIER
+ * @see Resource#isBinary()
+ * @since 2.2.3
+ */
+public interface ContentClassifier {
+
+    /**
+     * @return the maximal number of bytes from the beginning of a file that should be passed to
+     *         {@link #isBinary(ByteBuffer, Charset)}
+     */
+    int getSniffLength();
+
+    /**
+     * @param head the first at most {@link #getSniffLength()} bytes of a file, without the Byte Order Mark; the
+     *        implementations must not modify the position or limit of the buffer
+     * @param encoding the encoding the file is expected to have
+     * @return {@code true} if the file should be regarded as binary; {@code false} otherwise
+     */
+    boolean isBinary(ByteBuffer head, Charset encoding);
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+/**
+ * Records the edits of a {@link Resource} so that {@link Resource#changed()} can tell whether the content differs from
+ * what was loaded without keeping a copy of the original content and without hashing it.
+ * <p>
+ * Each entry stores the offset of an edit, the text it removed and the number of {@code char}s it inserted. Unless the
+ * length differs, the original content of the edited window is reconstructed by undoing the edits and compared with
+ * the current content. For edits performed from the beginning towards the end of the text (as {@link FormattingHandler}
+ * does) this is a single pass over the edited window.
+ *
+ * @since 2.2.3
+ */
+final class EditJournal {
+
+    /** Once there are more edits than this, {@link #changed(CharSequence)} returns {@code true} without checking */
+    static final int MAX_ENTRIES = 64 * 1024;
+
+    private static final int[] NO_INTS = new int[0];
+
+    private static final String[] NO_STRINGS = new String[0];
+
+    private int count;
+
+    private int[] insertedLengths = NO_INTS;
+
+    private int loadedLength;
+
+    /** The lowest offset touched by any edit */
+    private int lowestStart = Integer.MAX_VALUE;
+
+    /** {@code true} if each edit starts at or after the inserted part of the previous edit */
+    private boolean monotone = true;
+
+    /** {@code true} if more than {@link #MAX_ENTRIES} edits were recorded */
+    private boolean overflow;
+
+    private String[] removed = NO_STRINGS;
+
+    private int[] starts = NO_INTS;
+
+    /**
+     * The minimal number of {@code char}s at the end of the text untouched by any edit
+     */
+    private int untouchedTail = Integer.MAX_VALUE;
+
+    /**
+     * @param text the current text
+     * @return {@code true} if the given {@code text} differs from the text this journal was {@link #reset(int)} for
+     */
+    boolean changed(CharSequence text) {
+        if (overflow) {
+            return true;
+        } else if (count == 0) {
+            return false;
+        } else if (text.length() != loadedLength) {
+            return true;
+        } else if (monotone) {
+            return !unchangedMonotone(text);
+        } else {
+            return !unchangedGeneral(text);
+        }
+    }
+
+    /**
+     * Records an edit that has just been performed.
+     *
+     * @param start the offset of the edit
+     * @param removedText the text removed by the edit
+     * @param insertedLength the number of {@code char}s inserted by the edit
+     * @param lengthAfter the length of the text after the edit
+     */
+    void record(int start, String removedText, int insertedLength, int lengthAfter) {
+        if (overflow || (removedText.isEmpty() && insertedLength == 0)) {
+            return;
+        }
+        if (count == MAX_ENTRIES) {
+            overflow = true;
+            starts = NO_INTS;
+            removed = NO_STRINGS;
+            insertedLengths = NO_INTS;
+            return;
+        }
+        if (count == starts.length) {
+            final int capacity = Math.max(16, count * 2);
+            final int[] newStarts = new int[capacity];
+            System.arraycopy(starts, 0, newStarts, 0, count);
+            starts = newStarts;
+            final int[] newInsertedLengths = new int[capacity];
+            System.arraycopy(insertedLengths, 0, newInsertedLengths, 0, count);
+            insertedLengths = newInsertedLengths;
+            final String[] newRemoved = new String[capacity];
+            System.arraycopy(removed, 0, newRemoved, 0, count);
+            removed = newRemoved;
+        }
+        if (count > 0 && start < starts[count - 1] + insertedLengths[count - 1]) {
+            monotone = false;
+        }
+        starts[count] = start;
+        removed[count] = removedText;
+        insertedLengths[count] = insertedLength;
+        count++;
+        lowestStart = Math.min(lowestStart, start);
+        untouchedTail = Math.min(untouchedTail, lengthAfter - start - insertedLength);
+    }
+
+    /**
+     * Forgets all recorded edits.
+     *
+     * @param length the length of the freshly loaded text
+     */
+    void reset(int length) {
+        this.loadedLength = length;
+        this.count = 0;
+        this.starts = NO_INTS;
+        this.removed = NO_STRINGS;
+        this.insertedLengths = NO_INTS;
+        this.lowestStart = Integer.MAX_VALUE;
+        this.untouchedTail = Integer.MAX_VALUE;
+        this.monotone = true;
+        this.overflow = false;
+    }
+
+    /**
+     * Reconstructs the original content of the edited window by undoing the edits in reverse order.
+     */
+    private boolean unchangedGeneral(CharSequence text) {
+        final int lo = lowestStart;
+        final int hi = Math.max(lo, text.length() - untouchedTail);
+        final StringBuilder original = new StringBuilder(text.subSequence(lo, hi));
+        for (int i = count - 1; i >= 0; i--) {
+            final int start = starts[i] - lo;
+            original.replace(start, start + insertedLengths[i], removed[i]);
+        }
+        for (int i = lo; i < hi; i++) {
+            if (text.charAt(i) != original.charAt(i - lo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * With monotone edits, the inserted parts are still where they were inserted, so the original content is the
+     * current content with each inserted part replaced by the respective removed text. That can be compared with the
+     * current content on the fly.
+     */
+    private boolean unchangedMonotone(CharSequence text) {
+        int expectedPos = starts[0];
+        final int end = starts[count - 1] + insertedLengths[count - 1];
+        int pos = starts[0];
+        for (int i = 0; i < count; i++) {
+            final int start = starts[i];
+            /* the unedited chars before this edit */
+            while (pos < start) {
+                if (text.charAt(pos++) != text.charAt(expectedPos++)) {
+                    return false;
+                }
+            }
+            /* the removed text instead of the inserted part */
+            final String rem = removed[i];
+            for (int j = 0; j < rem.length(); j++) {
+                if (text.charAt(expectedPos++) != rem.charAt(j)) {
+                    return false;
+                }
+            }
+            pos = start + insertedLengths[i];
+        }
+        /* the total length is the same, hence both sides end at the end of the last edit */
+        return expectedPos == end;
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.ec4j.lint.api.GlobTrie.LiteralTable;
+import org.ec4j.lint.api.GlobTrie.SegmentGlob;
+import org.ec4j.lint.api.LintCache.LruMap;
+
+/**
+ * A bounded LRU cache of {@link LinterRegistry#filter(Path)} results.
+ * <p>
+ * The {@link Key} consists of the parent directory of a {@link Path} and of the class of its file name. Two file names
+ * are in the same class if they are matched by the same subset of the {@link PathSet#getFileNameGlobs()} of all
+ * registered {@link PathSet}s. That is sufficient for the globs depending on the parent directory, like
+ * {@code src/main/**}{@code /*.java}, to give the same result for all files in a class, so all files sharing a
+ * directory and an extension typically get a single entry.
+ *
+ * @since 2.2.3
+ */
+final class FilterCache {
+
+    /**
+     * The parent directory and the file name class of a {@link Path}. The directory is a prefix of the
+     * {@link Path#toString()} so that creating a {@link Key} does not copy any {@code char}s.
+     */
+    static final class Key {
+        private final int dirEnd;
+        private final int hash;
+        /** The index of the literal file name glob matching the file name or {@code 0} if there is none */
+        private final int literal;
+        private final String path;
+        /** The bit set of the wildcard file name globs matching the file name */
+        private final long wildcards;
+
+        Key(String path, int dirEnd, int literal, long wildcards) {
+            super();
+            this.path = path;
+            this.dirEnd = dirEnd;
+            this.literal = literal;
+            this.wildcards = wildcards;
+            int h = 0;
+            for (int i = 0; i < dirEnd; i++) {
+                h = 31 * h + path.charAt(i);
+            }
+            h = 31 * h + literal;
+            this.hash = 31 * h + Long.hashCode(wildcards);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash == other.hash && dirEnd == other.dirEnd && literal == other.literal
+                    && wildcards == other.wildcards && path.regionMatches(0, other.path, 0, dirEnd);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final char SEPARATOR = '/';
+
+    /**
+     * @param pathSets the {@link PathSet}s of all entries of a {@link LinterRegistry}
+     * @param maxSize the maximal number of entries to keep
+     * @return a new {@link FilterCache} or {@code null} if some of the given {@link PathSet}s has no
+     *         {@link PathSet#getFileNameGlobs()} or if there are more than {@code 64} wildcard file name globs
+     */
+    static FilterCache of(Collection<PathSet> pathSets, int maxSize) {
+        final LiteralTable<Integer> literals = new LiteralTable<>();
+        int literalCount = 0;
+        final List<SegmentGlob> wildcards = new ArrayList<>();
+        for (PathSet pathSet : pathSets) {
+            final Set<String> globs = pathSet.getFileNameGlobs();
+            if (globs == null) {
+                return null;
+            }
+            for (String glob : globs) {
+                if (glob.indexOf('*') >= 0 || glob.indexOf('?') >= 0) {
+                    final SegmentGlob wildcard = new SegmentGlob(glob);
+                    if (!wildcards.contains(wildcard)) {
+                        wildcards.add(wildcard);
+                    }
+                } else if (literals.get(glob) == null) {
+                    literals.put(glob, Integer.valueOf(++literalCount));
+                }
+            }
+        }
+        if (wildcards.size() > Long.SIZE) {
+            return null;
+        }
+        return new FilterCache(literals, wildcards.toArray(new SegmentGlob[0]), maxSize);
+    }
+
+    private final LruMap<Key, List<Linter>> entries;
+    private long hits;
+    private final LiteralTable<Integer> literals;
+    private long misses;
+    private final SegmentGlob[] wildcards;
+
+    FilterCache(LiteralTable<Integer> literals, SegmentGlob[] wildcards, int maxSize) {
+        super();
+        this.literals = literals;
+        this.wildcards = wildcards;
+        this.entries = new LruMap<>(maxSize);
+    }
+
+    /**
+     * @param key the {@link Key} to look up
+     * @return the cached {@link Linter} list or {@code null}
+     */
+    synchronized List<Linter> get(Key key) {
+        final List<Linter> result = entries.get(key);
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of {@link #get(Key)} calls that found a cached list
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of {@link #get(Key)} calls that found nothing
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @param path the {@link Path} to create a {@link Key} for
+     * @return a new {@link Key} or {@code null} if the given {@link Path} has no file name
+     */
+    Key key(Path path) {
+        final String s = path.toString();
+        final int len = s.length();
+        final int nameStart = s.lastIndexOf(SEPARATOR) + 1;
+        if (nameStart == len) {
+            return null;
+        }
+        final Integer literal = literals.get(s, 0, nameStart, len);
+        long matches = 0;
+        for (int i = 0; i < wildcards.length; i++) {
+            if (wildcards[i].matches(s, 0, nameStart, len)) {
+                matches |= 1L << i;
+            }
+        }
+        return new Key(s, nameStart, literal == null ? 0 : literal.intValue(), matches);
+    }
+
+    /**
+     * @param key the {@link Key} to store the {@code linters} under
+     * @param linters the {@link Linter} list to store
+     */
+    synchronized void put(Key key, List<Linter> linters) {
+        entries.put(key, linters);
+    }
+
+}
@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.ec4j.core.Resource.Charsets;
+import org.ec4j.core.ResourceProperties;
+import org.ec4j.core.model.PropertyType;
+import org.ec4j.lint.api.LintEngine.PropertiesResolver;
+import org.ec4j.lint.api.ViolationHandler.ReturnState;
+
+/**
+ * Formats a set of files in three stages running in parallel, so that reading, linting and writing of different
+ * files overlap:
+ * <ol>
+ * <li>A loader thread filters the files, resolves their {@code .editorconfig} properties and prefetches their
+ * content</li>
+ * <li>The calling thread lints the loaded {@link Resource}s and applies the fixes the same way as
+ * {@link FormattingHandler} does</li>
+ * <li>A writer thread backs up and stores the changed {@link Resource}s</li>
+ * </ol>
+ * The stages are connected by queues of {@link Builder#queueCapacity(int)} files. The loader additionally waits while
+ * the sizes of the files loaded but not yet linted or written sum up to more than
+ * {@link Builder#maxBytesInFlight(long)}. The files are processed in the given order in each stage.
+ *
+ * @since 2.2.3
+ */
+public class FormatPipeline {
+
+    /**
+     * A {@link FormatPipeline} builder.
+     */
+    public static class Builder {
+        private boolean backup;
+        private String backupSuffix = ".orig";
+        private Charset defaultEncoding = StandardCharsets.UTF_8;
+        private Logger log = Logger.NO_OP;
+        private long maxBytesInFlight = DEFAULT_MAX_BYTES_IN_FLIGHT;
+        private PropertiesResolver propertiesResolver;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private LinterRegistry registry;
+        private Resource.Options resourceOptions = Resource.Options.DEFAULT;
+
+        Builder() {
+            super();
+        }
+
+        /**
+         * @param backup {@code true} if the original content of the changed files should be kept under
+         *        {@link #backupSuffix(String)}; the default is {@code false}
+         * @return this {@link Builder}
+         */
+        public Builder backup(boolean backup) {
+            this.backup = backup;
+            return this;
+        }
+
+        /**
+         * @param backupSuffix the suffix to append to the names of the backup files; the default is {@code .orig}
+         * @return this {@link Builder}
+         */
+        public Builder backupSuffix(String backupSuffix) {
+            this.backupSuffix = Objects.requireNonNull(backupSuffix, "backupSuffix");
+            return this;
+        }
+
+        /**
+         * @return a new {@link FormatPipeline}
+         */
+        public FormatPipeline build() {
+            return new FormatPipeline(Objects.requireNonNull(registry, "registry"),
+                    Objects.requireNonNull(propertiesResolver, "propertiesResolver"), defaultEncoding,
+                    resourceOptions, backup, backupSuffix, log, queueCapacity, maxBytesInFlight);
+        }
+
+        /**
+         * @param defaultEncoding the encoding to use for files having no {@code charset} property; the default is
+         *        UTF-8
+         * @return this {@link Builder}
+         */
+        public Builder defaultEncoding(Charset defaultEncoding) {
+            this.defaultEncoding = Objects.requireNonNull(defaultEncoding, "defaultEncoding");
+            return this;
+        }
+
+        /**
+         * @param log the {@link Logger} to use; the default is {@link Logger#NO_OP}
+         * @return this {@link Builder}
+         */
+        public Builder log(Logger log) {
+            this.log = Objects.requireNonNull(log, "log");
+            return this;
+        }
+
+        /**
+         * @param maxBytesInFlight the maximal sum of the sizes of the files loaded but not linted or written yet; a
+         *        single bigger file is let through alone. The default is
+         *        {@value FormatPipeline#DEFAULT_MAX_BYTES_IN_FLIGHT}
+         * @return this {@link Builder}
+         */
+        public Builder maxBytesInFlight(long maxBytesInFlight) {
+            if (maxBytesInFlight <= 0) {
+                throw new IllegalArgumentException("maxBytesInFlight must be > 0; found " + maxBytesInFlight);
+            }
+            this.maxBytesInFlight = maxBytesInFlight;
+            return this;
+        }
+
+        /**
+         * @param propertiesResolver the {@link PropertiesResolver} to find the {@code .editorconfig} properties of
+         *        the files with
+         * @return this {@link Builder}
+         */
+        public Builder propertiesResolver(PropertiesResolver propertiesResolver) {
+            this.propertiesResolver = propertiesResolver;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity the number of files that can wait between two stages; the default is
+         *        {@value FormatPipeline#DEFAULT_QUEUE_CAPACITY}
+         * @return this {@link Builder}
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity must be > 0; found " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param registry the {@link LinterRegistry} to take the {@link Linter}s from
+         * @return this {@link Builder}
+         */
+        public Builder registry(LinterRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+
+        /**
+         * @param resourceOptions the {@link Resource.Options} of the {@link Resource}s created by the
+         *        {@link FormatPipeline}
+         * @return this {@link Builder}
+         */
+        public Builder resourceOptions(Resource.Options resourceOptions) {
+            this.resourceOptions = Objects.requireNonNull(resourceOptions, "resourceOptions");
+            return this;
+        }
+    }
+
+    /**
+     * A file passed between the stages.
+     */
+    static class Item {
+        /** Marks the end of a queue */
+        static final Item END = new Item(null, null, null, 0);
+
+        private final long bytes;
+        private final List<Linter> linters;
+        private final ResourceProperties properties;
+        private final Resource resource;
+
+        Item(Resource resource, ResourceProperties properties, List<Linter> linters, long bytes) {
+            super();
+            this.resource = resource;
+            this.properties = properties;
+            this.linters = linters;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Limits the number of bytes in flight.
+     */
+    static class MemoryBudget {
+        private long available;
+
+        MemoryBudget(long available) {
+            super();
+            this.available = available;
+        }
+
+        /**
+         * Waits until the given number of bytes is available and takes them.
+         *
+         * @param bytes the number of bytes to take
+         * @throws InterruptedException if interrupted while waiting
+         */
+        synchronized void acquire(long bytes) throws InterruptedException {
+            while (available < bytes) {
+                wait();
+            }
+            available -= bytes;
+        }
+
+        /**
+         * @param bytes the number of bytes to give back
+         */
+        synchronized void release(long bytes) {
+            available += bytes;
+            notifyAll();
+        }
+    }
+
+    /**
+     * The state of a single {@link FormatPipeline#format(Path, Iterable)} call.
+     */
+    class Run extends FormattingHandler {
+        private final MemoryBudget budget = new MemoryBudget(maxBytesInFlight);
+        /** The {@link Item} being linted or {@code null} if it was passed to the writer already */
+        private Item current;
+        private volatile Throwable failure;
+        private final BlockingQueue<Item> loaded = new ArrayBlockingQueue<>(queueCapacity);
+        private final Path rootDirectory;
+        private final BlockingQueue<Item> toStore = new ArrayBlockingQueue<>(queueCapacity);
+
+        Run(Path rootDirectory) {
+            super(backup, backupSuffix, log);
+            this.rootDirectory = rootDirectory;
+        }
+
+        private void failed(Throwable e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        /**
+         * The loader stage.
+         *
+         * @param files the files to load
+         */
+        void load(Iterable<Path> files) {
+            try {
+                for (Path file : files) {
+                    if (failure != null) {
+                        break;
+                    }
+                    final Item item = load(file);
+                    if (item != null) {
+                        loaded.put(item);
+                    }
+                }
+            } catch (InterruptedException e) {
+                failed(new InterruptedIOException("Interrupted while loading files"));
+            } catch (IOException | RuntimeException | Error e) {
+                failed(e);
+            } finally {
+                putEnd(loaded);
+            }
+        }
+
+        /**
+         * @param file the file to load
+         * @return a new {@link Item} or {@code null} if the given {@code file} should not be formatted
+         * @throws IOException on I/O problems
+         * @throws InterruptedException if interrupted while waiting for the {@link #budget}
+         */
+        private Item load(Path file) throws IOException, InterruptedException {
+            final Path absPath = rootDirectory.resolve(file).normalize();
+            final Path relPath = absPath.startsWith(rootDirectory) ? rootDirectory.relativize(absPath) : file;
+            final List<Linter> linters = registry.filter(relPath);
+            if (linters.isEmpty()) {
+                return null;
+            }
+            final ResourceProperties properties = propertiesResolver.resolve(absPath);
+            if (properties.getProperties().isEmpty()) {
+                return null;
+            }
+            final Charset encoding = Charsets
+                    .forName(properties.getValue(PropertyType.charset, defaultEncoding.name(), true));
+            final Resource resource = new Resource(absPath, relPath, encoding, resourceOptions);
+            final long size = Files.size(absPath);
+            final long bytes = Math.min(size, maxBytesInFlight);
+            budget.acquire(bytes);
+            try {
+                if (size < resourceOptions.getStreamingThreshold() && !resource.isBinary()) {
+                    resource.length();
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                budget.release(bytes);
+                throw e;
+            }
+            return new Item(resource, properties, linters, bytes);
+        }
+
+        /**
+         * The lint stage.
+         */
+        void lint() {
+            Item item;
+            while ((item = takeUninterruptibly(loaded)) != Item.END) {
+                if (Thread.currentThread().isInterrupted()) {
+                    failed(new InterruptedIOException("Interrupted while formatting files"));
+                }
+                if (failure == null) {
+                    try {
+                        lint(item);
+                    } catch (IOException | RuntimeException | Error e) {
+                        failed(e);
+                    }
+                }
+                if (current != null) {
+                    /* not changed or failed; the remaining items are drained so that the loader can finish */
+                    budget.release(current.bytes);
+                    current = null;
+                }
+            }
+            putEnd(toStore);
+        }
+
+        private void lint(Item item) throws IOException {
+            current = item;
+            final LintSession session = new LintSession(item.resource, item.properties, item.linters);
+            do {
+                startFile(item.resource);
+                session.process(this);
+            } while (endFile() == ReturnState.RECHECK);
+        }
+
+        /**
+         * Puts {@link Item#END} to the given {@code queue}, waiting for space without giving up on interrupts.
+         *
+         * @param queue the queue to end
+         */
+        private void putEnd(BlockingQueue<Item> queue) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    queue.put(Item.END);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /** Passes {@link #current} to the writer stage. */
+        @Override
+        void store(Resource file) throws IOException {
+            try {
+                toStore.put(current);
+                current = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while passing " + file + " to the writer");
+            }
+        }
+
+        /**
+         * The writer stage.
+         */
+        void write() {
+            Item item;
+            while ((item = takeUninterruptibly(toStore)) != Item.END) {
+                try {
+                    if (failure == null) {
+                        super.store(item.resource);
+                    }
+                } catch (IOException | RuntimeException | Error e) {
+                    failed(e);
+                } finally {
+                    budget.release(item.bytes);
+                }
+            }
+        }
+    }
+
+    /** The default value of {@link Builder#maxBytesInFlight(long)} */
+    public static final long DEFAULT_MAX_BYTES_IN_FLIGHT = 64 * 1024 * 1024;
+
+    /** The default value of {@link Builder#queueCapacity(int)} */
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    /**
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Item takeUninterruptibly(BlockingQueue<Item> queue) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final boolean backup;
+
+    private final String backupSuffix;
+
+    private final Charset defaultEncoding;
+
+    private final Logger log;
+
+    private final long maxBytesInFlight;
+
+    private final PropertiesResolver propertiesResolver;
+
+    private final int queueCapacity;
+
+    private final LinterRegistry registry;
+
+    private final Resource.Options resourceOptions;
+
+    FormatPipeline(LinterRegistry registry, PropertiesResolver propertiesResolver, Charset defaultEncoding,
+            Resource.Options resourceOptions, boolean backup, String backupSuffix, Logger log, int queueCapacity,
+            long maxBytesInFlight) {
+        super();
+        this.registry = registry;
+        this.propertiesResolver = propertiesResolver;
+        this.defaultEncoding = defaultEncoding;
+        this.resourceOptions = resourceOptions;
+        this.backup = backup;
+        this.backupSuffix = backupSuffix;
+        this.log = log;
+        this.queueCapacity = queueCapacity;
+        this.maxBytesInFlight = maxBytesInFlight;
+    }
+
+    /**
+     * Formats all regular files under the given {@code rootDirectory} in the order of their relative paths.
+     *
+     * @param rootDirectory the directory to format
+     * @throws IOException on I/O problems
+     */
+    public void format(Path rootDirectory) throws IOException {
+        format(rootDirectory, LintEngine.walk(rootDirectory, registry, null));
+    }
+
+    /**
+     * Formats the given {@code files}. The first failure stops all stages and is rethrown after they finish.
+     *
+     * @param rootDirectory the directory to resolve the {@code files} against and to relativize the paths reported
+     *        by the {@link Resource}s to
+     * @param files the files to format, absolute or relative to {@code rootDirectory}
+     * @throws IOException on I/O problems
+     */
+    public void format(Path rootDirectory, final Iterable<Path> files) throws IOException {
+        final Run run = new Run(rootDirectory.toAbsolutePath().normalize());
+        run.startFiles();
+        final Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                run.load(files);
+            }
+        }, "ec4j-lint-loader");
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                run.write();
+            }
+        }, "ec4j-lint-writer");
+        loader.setDaemon(true);
+        writer.setDaemon(true);
+        loader.start();
+        writer.start();
+        try {
+            run.lint();
+        } finally {
+            join(loader);
+            join(writer);
+        }
+        final Throwable failure = run.failure;
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        run.endFiles();
+    }
+
+}
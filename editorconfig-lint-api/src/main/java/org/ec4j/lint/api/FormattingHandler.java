@@ -17,14 +17,19 @@
 package org.ec4j.lint.api;
 
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.ec4j.lint.api.Resource.StoreMode;
+
 /**
  * A {@link ViolationHandler} that performs the {@link Edit} operations on the files for which they were reported.
  *
@@ -54,12 +59,7 @@ public class FormattingHandler implements ViolationHandler {
      */
     private void backupAndStoreIfNeeded() throws IOException {
         if (currentFile.changed()) {
-            if (backup) {
-                final Path originalFile = currentFile.getPath();
-                final Path backupFile = Paths.get(originalFile.toString() + backupSuffix);
-                Files.move(originalFile, backupFile);
-            }
-            currentFile.store();
+            store(currentFile);
         }
     }
 
@@ -154,4 +154,33 @@ public class FormattingHandler implements ViolationHandler {
         processedFileCount = 0;
     }
 
+    /**
+     * Backs up the given changed {@link Resource} if requested and writes it to its underlying file. Overridden by
+     * {@link FormatPipeline} to hand the {@link Resource} over to its writer thread.
+     *
+     * @param file the {@link Resource} to store
+     * @throws IOException on I/O problems
+     * @since 2.2.3
+     */
+    void store(Resource file) throws IOException {
+        if (backup) {
+            final Path originalFile = file.getPath();
+            final Path backupFile = Paths.get(originalFile.toString() + backupSuffix);
+            if (file.getOptions().getStoreMode() == StoreMode.ATOMIC) {
+                /* store() will replace the original file, so we can keep its content under a second name */
+                try {
+                    Files.createLink(backupFile, originalFile);
+                } catch (FileAlreadyExistsException e) {
+                    throw e;
+                } catch (UnsupportedOperationException | FileSystemException e) {
+                    /* hard links not supported */
+                    Files.copy(originalFile, backupFile, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            } else {
+                Files.move(originalFile, backupFile);
+            }
+        }
+        file.store();
+    }
+
 }
\ No newline at end of file
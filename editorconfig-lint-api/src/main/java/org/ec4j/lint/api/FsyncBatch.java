@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the directories whose entries were changed by {@link Resource#store()} in {@link Resource.StoreMode#ATOMIC}
+ * mode so that each of them can be synced to the storage device only once at the end of a run rather than once per
+ * file. Passing an {@link FsyncBatch} to {@link Resource.Options.Builder#fsync(FsyncBatch)} also makes
+ * {@link Resource#store()} sync the content of every stored file.
+ *
+ * @since 2.2.3
+ */
+public class FsyncBatch implements Closeable {
+
+    private final Set<Path> directories = new LinkedHashSet<>();
+
+    /**
+     * @param directory the directory to sync on {@link #sync()}
+     */
+    synchronized void add(Path directory) {
+        directories.add(directory);
+    }
+
+    /**
+     * Same as {@link #sync()}.
+     *
+     * @throws IOException on I/O problems
+     */
+    @Override
+    public void close() throws IOException {
+        sync();
+    }
+
+    /**
+     * Syncs all directories collected since the last call of this method.
+     *
+     * @throws IOException on I/O problems
+     */
+    public void sync() throws IOException {
+        final List<Path> dirs;
+        synchronized (this) {
+            dirs = new ArrayList<>(directories);
+            directories.clear();
+        }
+        for (Path dir : dirs) {
+            try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                /* Windows does not allow opening directories as files */
+                if (File.separatorChar != '\\') {
+                    throw e;
+                }
+            }
+        }
+    }
+
+}
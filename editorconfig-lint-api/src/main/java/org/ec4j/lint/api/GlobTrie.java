@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of include and exclude globs compiled into a single trie over path segments. Globs sharing a prefix share the
+ * nodes, the literal segments of a node are looked up in a hash table and only the segments with {@code *} or
+ * {@code ?} wildcards are tried one by one. Hence matching a path against all of
+ * {@link Constants#DEFAULT_EXCLUDES} costs a few hash lookups per path segment rather than a regular expression
+ * evaluation per glob.
+ * <p>
+ * The semantics are those of {@code FileSystem.getPathMatcher("glob:...")} on file systems using {@code /} as the
+ * separator applied to {@code Paths.get(".").resolve(path)}: {@code *} and {@code ?} do not cross segment boundaries
+ * and a {@code **} segment matches one or more whole segments. Globs using escapes, character classes or groups are
+ * rejected by {@link #add(String, int)} and have to be matched by other means.
+ * <p>
+ * Matching neither allocates nor resolves the path. Not thread safe while being built; thread safe afterwards.
+ *
+ * @since 2.2.3
+ */
+final class GlobTrie {
+
+    /**
+     * An open addressing hash table mapping literal segments to values. Looked up by a range of a path so that no
+     * substring needs to be created.
+     *
+     * @param <V> the type of the values
+     */
+    static final class LiteralTable<V> {
+        private String[] keys = new String[8];
+        private int size;
+        private Object[] values = new Object[8];
+
+        private static int hash(String s, int offset, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + charAt(s, offset, i);
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean regionEquals(String key, String s, int offset, int from) {
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != charAt(s, offset, from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param s the path
+         * @param offset see {@link GlobTrie#charAt(String, int, int)}
+         * @param from the start of the key in {@code s}
+         * @param to the end of the key in {@code s}
+         * @return the value stored under the given key or {@code null}
+         */
+        @SuppressWarnings("unchecked")
+        V get(String s, int offset, int from, int to) {
+            final int mask = keys.length - 1;
+            final int len = to - from;
+            for (int i = hash(s, offset, from, to) & mask;; i = (i + 1) & mask) {
+                final String key = keys[i];
+                if (key == null) {
+                    return null;
+                }
+                if (key.length() == len && regionEquals(key, s, offset, from)) {
+                    return (V) values[i];
+                }
+            }
+        }
+
+        V get(String key) {
+            return get(key, 0, 0, key.length());
+        }
+
+        /**
+         * @param key the key to add
+         * @param value the value to store under a key not present yet
+         */
+        void put(String key, V value) {
+            if (2 * (size + 1) > keys.length) {
+                final String[] oldKeys = keys;
+                final Object[] oldValues = values;
+                keys = new String[oldKeys.length * 2];
+                values = new Object[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        store(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            store(key, value);
+            size++;
+        }
+
+        private void store(String key, Object value) {
+            final int mask = keys.length - 1;
+            int i = hash(key, 0, 0, key.length()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+    }
+
+    /**
+     * A node of the trie: the state after matching some number of glob segments.
+     */
+    static final class Node {
+        /** The bit set of {@link GlobTrie#INCLUDE} and {@link GlobTrie#EXCLUDE} of the globs ending here */
+        int accepts;
+        /** {@code true} if an include glob ends in some child of this {@link Node} or deeper */
+        boolean childReachesInclude;
+        /** The child reached through a {@code **} segment or {@code null} */
+        Node doubleStar;
+        /** The children reached through segments having wildcards */
+        final List<Node> globChildren = new ArrayList<>();
+        /** The segments having wildcards, parallel to {@link #globChildren} */
+        final List<SegmentGlob> globs = new ArrayList<>();
+        /** The children reached through literal segments or {@code null} if there are none */
+        LiteralTable<Node> literals;
+        /** {@code true} if an include glob ends in this {@link Node} or deeper */
+        boolean reachesInclude;
+
+        Node globChild(SegmentGlob glob) {
+            final int i = globs.indexOf(glob);
+            if (i >= 0) {
+                return globChildren.get(i);
+            }
+            final Node result = new Node();
+            globs.add(glob);
+            globChildren.add(result);
+            return result;
+        }
+    }
+
+    /**
+     * A single glob segment containing {@code *} or {@code ?} wildcards.
+     */
+    static final class SegmentGlob {
+        private static final int ANY_CHAR = -2;
+        private static final int ANY_CHARS = -1;
+
+        private final int[] codes;
+        private final String source;
+
+        SegmentGlob(String source) {
+            this.source = source;
+            this.codes = new int[source.length()];
+            for (int i = 0; i < codes.length; i++) {
+                final char c = source.charAt(i);
+                codes[i] = c == '*' ? ANY_CHARS : c == '?' ? ANY_CHAR : c;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SegmentGlob && source.equals(((SegmentGlob) obj).source);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return source.hashCode();
+        }
+
+        /**
+         * The usual wildcard matching backtracking to the last {@code *} only, which is linear for the typical
+         * segments having a single {@code *}.
+         *
+         * @param s the path
+         * @param offset see {@link GlobTrie#charAt(String, int, int)}
+         * @param from the start of the segment
+         * @param to the end of the segment
+         * @return {@code true} if the given segment matches this {@link SegmentGlob}
+         */
+        boolean matches(String s, int offset, int from, int to) {
+            int p = 0;
+            int i = from;
+            int starP = -1;
+            int starI = -1;
+            while (i < to) {
+                if (p < codes.length && (codes[p] == ANY_CHAR || codes[p] == charAt(s, offset, i))) {
+                    p++;
+                    i++;
+                } else if (p < codes.length && codes[p] == ANY_CHARS) {
+                    starP = p++;
+                    starI = i;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    i = ++starI;
+                } else {
+                    return false;
+                }
+            }
+            while (p < codes.length && codes[p] == ANY_CHARS) {
+                p++;
+            }
+            return p == codes.length;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return source;
+        }
+    }
+
+    /** Returned by {@link #match(Path)} if an exclude glob matched */
+    static final int EXCLUDE = 2;
+
+    /** Returned by {@link #match(Path)} if an include glob matched */
+    static final int INCLUDE = 1;
+
+    private static final char SEPARATOR = '/';
+
+    /**
+     * Gives the view of a path the globs see: its {@link Path#toString()} with {@code ./} prepended if it is relative,
+     * the way {@code Paths.get(".").resolve(path)} would do, but without creating a new {@link String}.
+     *
+     * @param s the {@link Path#toString()} of the path
+     * @param offset {@code 0} for absolute paths, {@code 2} for relative paths, {@code 1} for the empty path
+     * @param index the index in the view
+     * @return the {@code char} at the given {@code index} of the view
+     */
+    static char charAt(String s, int offset, int index) {
+        return index >= offset ? s.charAt(index - offset) : index == 0 ? '.' : SEPARATOR;
+    }
+
+    private static int segmentEnd(String s, int offset, int from, int len) {
+        int i = from;
+        while (i < len && charAt(s, offset, i) != SEPARATOR) {
+            i++;
+        }
+        return i;
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * @param glob the glob to add
+     * @param kind {@link #INCLUDE} or {@link #EXCLUDE}
+     * @return {@code true} if the glob was added; {@code false} if it uses features not supported by this
+     *         {@link GlobTrie}
+     */
+    boolean add(String glob, int kind) {
+        for (int i = 0; i < glob.length(); i++) {
+            switch (glob.charAt(i)) {
+                case '\\':
+                case '[':
+                case ']':
+                case '{':
+                case '}':
+                case ',':
+                    return false;
+                default:
+                    break;
+            }
+        }
+        final List<String> segments = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = glob.indexOf(SEPARATOR, start)) >= 0) {
+            segments.add(glob.substring(start, end));
+            start = end + 1;
+        }
+        segments.add(glob.substring(start));
+        for (String segment : segments) {
+            if (!"**".equals(segment) && segment.contains("**")) {
+                /* ** within a segment crosses the segment boundaries */
+                return false;
+            }
+        }
+        Node node = root;
+        for (String segment : segments) {
+            if (kind == INCLUDE) {
+                node.reachesInclude = true;
+                node.childReachesInclude = true;
+            }
+            if ("**".equals(segment)) {
+                if (node.doubleStar == null) {
+                    node.doubleStar = new Node();
+                }
+                node = node.doubleStar;
+            } else if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                node = node.globChild(new SegmentGlob(segment));
+            } else {
+                if (node.literals == null) {
+                    node.literals = new LiteralTable<>();
+                }
+                Node child = node.literals.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.literals.put(segment, child);
+                }
+                node = child;
+            }
+        }
+        node.accepts |= kind;
+        if (kind == INCLUDE) {
+            node.reachesInclude = true;
+        }
+        return true;
+    }
+
+    /**
+     * @param path the path to match
+     * @return the bit set of {@link #INCLUDE} and {@link #EXCLUDE} of the globs matching the given {@code path};
+     *         once an exclude glob matched, the includes are not looked at anymore
+     */
+    int match(Path path) {
+        final String s = path.toString();
+        final int offset = path.isAbsolute() ? 0 : s.isEmpty() ? 1 : 2;
+        return match(root, s, offset, 0, offset + s.length(), 0);
+    }
+
+    /**
+     * Tells what the globs can say about the paths under the given directory without looking at those paths.
+     *
+     * @param directory the directory
+     * @return {@link #EXCLUDE} if an exclude glob matches all paths under the given {@code directory}, otherwise
+     *         {@link #INCLUDE} if an include glob may match some of them and {@code 0} if none can
+     */
+    int matchUnder(Path directory) {
+        final String s = directory.toString();
+        final int offset = directory.isAbsolute() ? 0 : s.isEmpty() ? 1 : 2;
+        final int result = matchUnder(root, false, s, offset, 0, offset + s.length(), 0);
+        return (result & EXCLUDE) != 0 ? EXCLUDE : result;
+    }
+
+    /**
+     * Like {@link #match(Node, String, int, int, int, int)} but evaluating the {@link Node}s active after the last
+     * segment of a directory for the one or more segments that may follow.
+     *
+     * @param node the current {@link Node}
+     * @param absorbing {@code true} if {@code node} was reached through {@code **} that may consume more segments
+     * @param s the directory
+     * @param offset see {@link #charAt(String, int, int)}
+     * @param pos the start of the next segment to match or {@code len + 1} if there is none
+     * @param len the length of {@code s}
+     * @param found the bits found so far
+     * @return {@code found} plus the bits found under {@code node}
+     */
+    private static int matchUnder(Node node, boolean absorbing, String s, int offset, int pos, int len, int found) {
+        if (pos > len) {
+            if ((absorbing && (node.accepts & EXCLUDE) != 0)
+                    || (node.doubleStar != null && (node.doubleStar.accepts & EXCLUDE) != 0)) {
+                return found | EXCLUDE;
+            }
+            return (absorbing ? node.reachesInclude : node.childReachesInclude) ? found | INCLUDE : found;
+        }
+        final int end = segmentEnd(s, offset, pos, len);
+        final int next = end + 1;
+        if (node.literals != null) {
+            final Node child = node.literals.get(s, offset, pos, end);
+            if (child != null) {
+                found = matchUnder(child, false, s, offset, next, len, found);
+                if ((found & EXCLUDE) != 0) {
+                    return found;
+                }
+            }
+        }
+        final List<SegmentGlob> globs = node.globs;
+        for (int i = 0; i < globs.size(); i++) {
+            if (globs.get(i).matches(s, offset, pos, end)) {
+                found = matchUnder(node.globChildren.get(i), false, s, offset, next, len, found);
+                if ((found & EXCLUDE) != 0) {
+                    return found;
+                }
+            }
+        }
+        final Node doubleStar = node.doubleStar;
+        if (doubleStar != null) {
+            int q = next;
+            while (true) {
+                found = matchUnder(doubleStar, true, s, offset, q, len, found);
+                if ((found & EXCLUDE) != 0 || q > len) {
+                    return found;
+                }
+                q = segmentEnd(s, offset, q, len) + 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param node the current {@link Node}
+     * @param s the path
+     * @param offset see {@link #charAt(String, int, int)}
+     * @param pos the start of the next segment to match or {@code len + 1} if there is none
+     * @param len the length of {@code s}
+     * @param found the bits found so far
+     * @return {@code found} plus the bits found under {@code node}
+     */
+    private static int match(Node node, String s, int offset, int pos, int len, int found) {
+        if (pos > len) {
+            return found | node.accepts;
+        }
+        final int end = segmentEnd(s, offset, pos, len);
+        final int next = end + 1;
+        if (node.literals != null) {
+            final Node child = node.literals.get(s, offset, pos, end);
+            if (child != null) {
+                found = match(child, s, offset, next, len, found);
+                if ((found & EXCLUDE) != 0) {
+                    return found;
+                }
+            }
+        }
+        final List<SegmentGlob> globs = node.globs;
+        for (int i = 0; i < globs.size(); i++) {
+            if (globs.get(i).matches(s, offset, pos, end)) {
+                found = match(node.globChildren.get(i), s, offset, next, len, found);
+                if ((found & EXCLUDE) != 0) {
+                    return found;
+                }
+            }
+        }
+        final Node doubleStar = node.doubleStar;
+        if (doubleStar != null) {
+            /* ** consumes one or more segments */
+            int q = next;
+            while (true) {
+                found = match(doubleStar, s, offset, q, len, found);
+                if ((found & EXCLUDE) != 0 || q > len) {
+                    return found;
+                }
+                q = segmentEnd(s, offset, q, len) + 1;
+            }
+        }
+        return found;
+    }
+
+}
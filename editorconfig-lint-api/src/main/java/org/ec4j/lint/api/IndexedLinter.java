@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link Linter} implementation to be listed in the linter index {@link LinterIndexProcessor} generates at
+ * compile time. {@link LinterRegistry.Builder#scan(ClassLoader)} reads the index instead of instantiating all
+ * {@link java.util.ServiceLoader} providers and instantiates the indexed {@link Linter}s only once
+ * {@link LinterRegistry#filter(java.nio.file.Path)} returns them for the first time. The annotated class still has to
+ * be registered as a {@link java.util.ServiceLoader} provider; the index alone does not register it.
+ * <p>
+ * The annotated class must be public, not abstract and it must have a public no-arg constructor. The globs must be the
+ * same as the ones returned by {@link Linter#getDefaultIncludes()} and {@link Linter#getDefaultExcludes()}.
+ *
+ * @since 2.2.3
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface IndexedLinter {
+
+    /**
+     * @return the globs returned by {@link Linter#getDefaultExcludes()}
+     */
+    String[] excludes() default {};
+
+    /**
+     * @return the globs returned by {@link Linter#getDefaultIncludes()}
+     */
+    String[] includes();
+
+}
@@ -175,15 +175,27 @@ public abstract class LineReader extends Reader {
     /**
      * A {@link LineReader} optimized for reading from a {@link StringBuilder}.
      */
-    static class StringBuilderReader extends LineReader {
+    static class StringBuilderReader extends TextBufferReader {
+
+        StringBuilderReader(StringBuilder text) {
+            super(TextBuffer.of(text));
+        }
+    }
+
+    /**
+     * A {@link LineReader} reading from a {@link TextBuffer}.
+     *
+     * @since 2.2.3
+     */
+    static class TextBufferReader extends LineReader {
 
         private int mark = 0;
 
         private int offset = 0;
 
-        private final StringBuilder text;
+        private final TextBuffer text;
 
-        StringBuilderReader(StringBuilder text) {
+        TextBufferReader(TextBuffer text) {
             this.text = text;
         }
 
@@ -306,6 +318,16 @@ public abstract class LineReader extends Reader {
         return new StringBuilderReader(text);
     }
 
+    /**
+     * @param text
+     *        the {@link TextBuffer} to read from
+     * @return a new {@link LineReader} reading from the given {@link TextBuffer}
+     * @since 2.2.3
+     */
+    static LineReader of(TextBuffer text) {
+        return new TextBufferReader(text);
+    }
+
     /**
      * @return a {@link String} containing the line incl. the end of line characters or {@code null} in case there are
      *         no more lines to read
@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.ec4j.core.ResourceProperties;
+import org.ec4j.core.model.Property;
+
+/**
+ * A persistent record of {@link Resource}s found clean by some {@link Linter}. A {@link Linter} does not need to
+ * process a {@link Resource} again as long as its content, its {@code .editorconfig} properties and the {@link Linter}
+ * itself have not changed.
+ * <p>
+ * The entries are keyed by a SHA-256 digest of
+ * <ul>
+ * <li>the content of the {@link Resource},</li>
+ * <li>the effective {@link ResourceProperties} and</li>
+ * <li>the {@link Linter}'s class name and version and the version of {@code editorconfig-lint-api}; for
+ * {@code -SNAPSHOT} versions also the digests of the class files.</li>
+ * </ul>
+ * Hence a changed file, a changed {@code .editorconfig} file or a new version of a {@link Linter} never hit an outdated
+ * entry. To avoid reading unchanged files, the content digests are remembered together with the size and last
+ * modification time of the file they were computed for.
+ * <p>
+ * Both the clean entries and the file digests are bounded by {@link Builder#maxEntries(int)}; the least recently used
+ * ones are evicted first. The cache is loaded from {@link Builder#directory(Path)} when built and written back there on
+ * {@link #close()}.
+ * <p>
+ * A {@link LintCache} is put to use by passing it to {@link LinterRegistry.Builder#cache(LintCache)}.
+ *
+ * @since 2.2.3
+ */
+public class LintCache implements Closeable {
+
+    /**
+     * A {@link LintCache} builder.
+     */
+    public static class Builder {
+        private Path directory;
+        private Logger log = Logger.NO_OP;
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+        Builder() {
+            super();
+        }
+
+        /**
+         * @return a new {@link LintCache} loaded from {@link #directory(Path)}
+         * @throws IOException on I/O problems
+         */
+        public LintCache build() throws IOException {
+            Objects.requireNonNull(directory, "directory");
+            final LintCache result = new LintCache(directory, maxEntries, log);
+            result.load();
+            return result;
+        }
+
+        /**
+         * @param directory the directory to store the cache in; will be created if it does not exist
+         * @return this {@link Builder}
+         */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param log the {@link Logger} to use
+         * @return this {@link Builder}
+         */
+        public Builder log(Logger log) {
+            this.log = Objects.requireNonNull(log, "log");
+            return this;
+        }
+
+        /**
+         * @param maxEntries the maximal number of clean entries and of file digests to keep; the default is
+         *        {@value LintCache#DEFAULT_MAX_ENTRIES}
+         * @return this {@link Builder}
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be > 0; found " + maxEntries);
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+    }
+
+    /**
+     * The size, last modification time and content digest of a file.
+     */
+    static class FileDigest {
+        private final String digest;
+        private final long lastModified;
+        private final long size;
+
+        FileDigest(long size, long lastModified, String digest) {
+            super();
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * A {@link LinkedHashMap} in access order evicting the least recently used entries beyond the given size.
+     */
+    static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+        private final int maxEntries;
+
+        LruMap(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    /** The default value of {@link Builder#maxEntries(int)} */
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+
+    private static final String CACHE_FILE_NAME = "lint-cache.txt";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final String HEADER = "# ec4j lint cache 1";
+
+    /**
+     * Files modified less than this many milliseconds before their digest was computed could be modified again
+     * without changing their size and modification time. Their digests are thus not remembered in
+     * {@link #fileDigests}.
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    /**
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param cl the class to find the version for
+     * @return the {@code Implementation-Version} of the package of the given class; for {@code -SNAPSHOT} versions or
+     *         if there is none, followed by the last modification time and the digest of the class file, because the
+     *         version alone does not change between snapshot builds
+     */
+    static String classVersion(Class<?> cl) {
+        final Package pkg = cl.getPackage();
+        final String version = pkg == null ? null : pkg.getImplementationVersion();
+        if (version != null && !version.endsWith("-SNAPSHOT")) {
+            return version;
+        }
+        final StringBuilder sb = new StringBuilder(version == null ? "unknown" : version);
+        final String name = cl.getName();
+        final URL url = cl.getResource(name.substring(name.lastIndexOf('.') + 1) + ".class");
+        if (url != null) {
+            try {
+                final URLConnection connection = url.openConnection();
+                sb.append(" lastModified:").append(connection.getLastModified());
+                final MessageDigest digest = newDigest();
+                try (InputStream in = connection.getInputStream()) {
+                    final byte[] buffer = new byte[8192];
+                    int len;
+                    while ((len = in.read(buffer)) >= 0) {
+                        digest.update(buffer, 0, len);
+                    }
+                }
+                sb.append(" sha256:").append(toHex(digest.digest()));
+            } catch (IOException e) {
+                /* keep what we have */
+            }
+        }
+        return sb.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            final int b = bytes[i] & 0xff;
+            result[2 * i] = HEX[b >>> 4];
+            result[2 * i + 1] = HEX[b & 0x0f];
+        }
+        return new String(result);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * @param linter the {@link Linter} to find the version for
+     * @return the {@link #classVersion(Class)} of the {@link Linter}'s class followed by the one of
+     *         {@code editorconfig-lint-api}, so that upgrading either of them invalidates the recorded results
+     */
+    static String version(Linter linter) {
+        return classVersion(linter.getClass()) + ", lint-api " + classVersion(Linter.class);
+    }
+
+    /** Keys of the clean entries; the values are unused */
+    private final LruMap<String, Boolean> cleanEntries;
+
+    private final Path directory;
+
+    private boolean dirty;
+
+    /** File digests by absolute path */
+    private final LruMap<String, FileDigest> fileDigests;
+
+    private final Logger log;
+
+    /** Linter versions by class name */
+    private final Map<String, String> versions = new LinkedHashMap<>();
+
+    LintCache(Path directory, int maxEntries, Logger log) {
+        super();
+        this.directory = directory;
+        this.log = log;
+        this.cleanEntries = new LruMap<>(maxEntries);
+        this.fileDigests = new LruMap<>(maxEntries);
+    }
+
+    /**
+     * Writes this cache to {@link Builder#directory(Path)} if anything has changed since it was loaded.
+     *
+     * @throws IOException on I/O problems
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Files.createDirectories(directory);
+        final Path file = directory.resolve(CACHE_FILE_NAME);
+        final Path tmp = Files.createTempFile(directory, CACHE_FILE_NAME, ".tmp");
+        try {
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                w.write(HEADER);
+                w.write('\n');
+                for (Map.Entry<String, FileDigest> en : fileDigests.entrySet()) {
+                    final FileDigest fd = en.getValue();
+                    w.write("F\t" + fd.size + "\t" + fd.lastModified + "\t" + fd.digest + "\t" + en.getKey() + "\n");
+                }
+                for (String key : cleanEntries.keySet()) {
+                    w.write("C\t" + key + "\n");
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        log.debug("Stored {} clean entries and {} file digests to {}", cleanEntries.size(), fileDigests.size(), file);
+        dirty = false;
+    }
+
+    /**
+     * @param resource the {@link Resource} to digest
+     * @return a hex encoded SHA-256 digest of the current content of the given {@link Resource}
+     * @throws IOException on I/O problems
+     */
+    private String computeContentDigest(Resource resource) throws IOException {
+        if (resource.text != null && resource.changed()) {
+            final MessageDigest digest = newDigest();
+            update(digest, "text");
+            final CharSequence text = resource.text;
+            final byte[] buffer = new byte[8192];
+            final int len = text.length();
+            int pos = 0;
+            while (pos < len) {
+                int i = 0;
+                for (; i < buffer.length && pos < len; pos++) {
+                    final char ch = text.charAt(pos);
+                    buffer[i++] = (byte) (ch >>> 8);
+                    buffer[i++] = (byte) ch;
+                }
+                digest.update(buffer, 0, i);
+            }
+            return toHex(digest.digest());
+        }
+        final Path path = resource.getPath();
+        final String key = path.toAbsolutePath().normalize().toString();
+        final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        final long size = attrs.size();
+        final long lastModified = attrs.lastModifiedTime().toMillis();
+        synchronized (this) {
+            final FileDigest fd = fileDigests.get(key);
+            if (fd != null && fd.size == size && fd.lastModified == lastModified) {
+                return fd.digest;
+            }
+        }
+        final MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                ((Buffer) buffer).flip();
+                digest.update(buffer);
+                ((Buffer) buffer).clear();
+            }
+        }
+        final String result = toHex(digest.digest());
+        if (lastModified < System.currentTimeMillis() - RACY_MILLIS) {
+            synchronized (this) {
+                fileDigests.put(key, new FileDigest(size, lastModified, result));
+                dirty = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the digest of the current content of the given {@link Resource}. If the {@link Resource} was not
+     * changed in memory, the digest of the underlying file is used, possibly without reading it. The result is
+     * remembered by the {@link Resource} until it gets edited or stored, so that the linters sharing a
+     * {@link Resource} digest it just once, even if the underlying file is too fresh for {@link #fileDigests}.
+     *
+     * @param resource the {@link Resource} to digest
+     * @return a hex encoded SHA-256 digest
+     * @throws IOException on I/O problems
+     */
+    String contentDigest(Resource resource) throws IOException {
+        String result = resource.contentDigest;
+        if (result == null) {
+            result = computeContentDigest(resource);
+            resource.contentDigest = result;
+        }
+        return result;
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    public synchronized void invalidate() {
+        if (!cleanEntries.isEmpty() || !fileDigests.isEmpty()) {
+            cleanEntries.clear();
+            fileDigests.clear();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Forgets the content digest remembered for the given file so that it will be read again next time.
+     *
+     * @param path the file to forget
+     */
+    public synchronized void invalidate(Path path) {
+        if (fileDigests.remove(path.toAbsolutePath().normalize().toString()) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * @param key a key produced by {@link #key(Resource, ResourceProperties, Linter)}
+     * @return {@code true} if the given key was recorded as clean
+     */
+    synchronized boolean isClean(String key) {
+        return cleanEntries.get(key) != null;
+    }
+
+    /**
+     * @param resource the {@link Resource} to be processed
+     * @param properties the effective {@code .editorconfig} properties of the {@code resource}
+     * @param linter the {@link Linter} to process the {@code resource}
+     * @return the key under which the result of processing the given {@code resource} is recorded
+     * @throws IOException on I/O problems
+     */
+    String key(Resource resource, ResourceProperties properties, Linter linter) throws IOException {
+        final String linterClass = linter.getClass().getName();
+        String version;
+        synchronized (this) {
+            version = versions.get(linterClass);
+            if (version == null) {
+                version = version(linter);
+                versions.put(linterClass, version);
+            }
+        }
+        final MessageDigest digest = newDigest();
+        update(digest, linterClass);
+        update(digest, version);
+        final Map<String, Property> props = new TreeMap<>(properties.getProperties());
+        for (Property property : props.values()) {
+            update(digest, property.getName());
+            update(digest, String.valueOf(property.getSourceValue()));
+        }
+        update(digest, resource.getEncoding().name());
+        update(digest, contentDigest(resource));
+        return toHex(digest.digest());
+    }
+
+    private void load() throws IOException {
+        final Path file = directory.resolve(CACHE_FILE_NAME);
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(r.readLine())) {
+                log.debug("Ignoring {} written by an incompatible version", file);
+                dirty = true;
+                return;
+            }
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("C\t")) {
+                    cleanEntries.put(line.substring(2), Boolean.TRUE);
+                } else if (line.startsWith("F\t")) {
+                    final String[] fields = line.split("\t", 5);
+                    if (fields.length == 5) {
+                        fileDigests.put(fields[4],
+                                new FileDigest(Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+                    }
+                }
+            }
+            log.debug("Loaded {} clean entries and {} file digests from {}", cleanEntries.size(), fileDigests.size(),
+                    file);
+        } catch (NoSuchFileException e) {
+            log.debug("No lint cache found at {}", file);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring the corrupted lint cache {}", file);
+            invalidate();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Records the given key as clean.
+     *
+     * @param key a key produced by {@link #key(Resource, ResourceProperties, Linter)}
+     */
+    synchronized void markClean(String key) {
+        if (cleanEntries.put(key, Boolean.TRUE) == null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * @return the number of clean entries
+     */
+    public synchronized int size() {
+        return cleanEntries.size();
+    }
+
+    /**
+     * @param linter the {@link Linter} to wrap
+     * @return a {@link Linter} skipping the {@link Resource}s recorded as clean and recording the clean ones
+     */
+    Linter wrap(Linter linter) {
+        return new CachingLinter(linter, this);
+    }
+
+}
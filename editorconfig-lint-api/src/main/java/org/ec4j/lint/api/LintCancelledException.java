@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+/**
+ * Thrown by {@link CancellationToken#throwIfCancelled()} to abort the linting of a file. Within
+ * {@link LintSession#process(ViolationHandler, CancellationToken)}, some {@link Violation}s of the aborted file may
+ * have been reported already. {@link LintEngine} records the {@link Violation}s of each file before reporting them, so
+ * that none of the {@link Violation}s of a file it aborts get reported and hence its {@link Resource} is left
+ * unmodified.
+ *
+ * @since 2.2.3
+ */
+public class LintCancelledException extends FormatException {
+
+    private static final long serialVersionUID = -3101652209475361843L;
+
+    private final boolean timeout;
+
+    public LintCancelledException(String message, boolean timeout) {
+        super(message);
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return {@code true} if the lint was aborted because of a deadline rather than an explicit
+     *         {@link CancellationToken#cancel()}
+     */
+    public boolean isTimeout() {
+        return timeout;
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A thin client sending lint requests to a {@link LintServer} running on the same machine.
+ *
+ * @since 2.2.3
+ */
+public class LintClient {
+
+    /**
+     * The outcome of a {@link LintClient#lint(Path, Iterable)} call.
+     */
+    public static class Response {
+        private final List<String> files;
+        private final List<String> violations;
+
+        Response(List<String> files, List<String> violations) {
+            super();
+            this.files = Collections.unmodifiableList(files);
+            this.violations = Collections.unmodifiableList(violations);
+        }
+
+        /**
+         * @return the paths of the files linted by the server, relative to the root directory
+         */
+        public List<String> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return the {@link Violation}s found by the server, formatted by {@link Violation#toString()}
+         */
+        public List<String> getViolations() {
+            return violations;
+        }
+
+        /**
+         * @return {@code true} if some {@link Violation}s were found
+         */
+        public boolean hasViolations() {
+            return !violations.isEmpty();
+        }
+    }
+
+    /**
+     * @param portFile a file written by a {@link LintServer} with {@link LintServer.Builder#portFile(Path)}
+     * @return a new {@link LintClient} connecting to the port and sending the token found in the given
+     *         {@code portFile}
+     * @throws IOException on I/O problems, including a missing {@code portFile} if no server is running
+     */
+    public static LintClient of(Path portFile) throws IOException {
+        final List<String> lines = Files.readAllLines(portFile, StandardCharsets.UTF_8);
+        if (lines.size() < 2 || lines.get(1).trim().isEmpty()) {
+            throw new IOException("Unexpected content of " + portFile + ": expected a port and a token");
+        }
+        try {
+            return new LintClient(Integer.parseInt(lines.get(0).trim()), lines.get(1).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected content of " + portFile + ": " + lines.get(0), e);
+        }
+    }
+
+    private final int port;
+
+    private final String token;
+
+    /**
+     * @param port the loopback port the {@link LintServer} listens on
+     * @param token the token of the {@link LintServer}, see {@link LintServer#getToken()}
+     */
+    public LintClient(int port, String token) {
+        super();
+        this.port = port;
+        this.token = Objects.requireNonNull(token, "token");
+    }
+
+    /**
+     * @return the loopback port the {@link LintServer} listens on
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Asks the server to lint the given files.
+     *
+     * @param rootDirectory the directory to resolve the {@code files} against
+     * @param files the files to lint, absolute or relative to {@code rootDirectory}
+     * @return the {@link Response}
+     * @throws IOException on I/O problems or if the server could not lint the files
+     */
+    public Response lint(Path rootDirectory, Iterable<Path> files) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final Writer out = new BufferedWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            LintServer.writeLine(out, LintServer.HEADER, token);
+            LintServer.writeLine(out, "ROOT", rootDirectory.toAbsolutePath().normalize().toString());
+            for (Path file : files) {
+                LintServer.writeLine(out, "FILE", file.toString());
+            }
+            out.write("END\n");
+            out.flush();
+
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            final List<String> linted = new ArrayList<>();
+            final List<String> violations = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("FILE\t")) {
+                    linted.add(line.substring(5));
+                } else if (line.startsWith("VIOLATION\t")) {
+                    violations.add(line.substring(10));
+                } else if (line.startsWith("DONE\t")) {
+                    return new Response(linted, violations);
+                } else if (line.startsWith("ERROR\t")) {
+                    throw new IOException("The lint server failed: " + line.substring(6));
+                }
+            }
+            throw new IOException("The lint server closed the connection unexpectedly");
+        }
+    }
+
+}
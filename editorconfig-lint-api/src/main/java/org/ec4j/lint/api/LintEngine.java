@@ -0,0 +1,1072 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.ec4j.core.Resource.Charsets;
+import org.ec4j.core.Resource.Resources;
+import org.ec4j.core.ResourceProperties;
+import org.ec4j.core.ResourcePropertiesService;
+import org.ec4j.core.model.PropertyType;
+import org.ec4j.lint.api.ViolationHandler.ReturnState;
+
+/**
+ * Lints a set of files using the {@link Linter}s from a {@link LinterRegistry}, reporting to a
+ * {@link ViolationHandler}.
+ * <p>
+ * Filtering, resolving the {@code .editorconfig} properties, loading and linting run in parallel on a
+ * {@link ForkJoinPool} or, in {@link ExecutionMode#VIRTUAL_THREADS} mode, in a virtual thread per file. When walking a
+ * directory, the files are linted largest first so that a few huge files do not end up as the tail of the run. The
+ * {@link Violation}s found by the {@link Linter}s are recorded per file and replayed to the {@link ViolationHandler} in
+ * the order of the input files, one file at a time. Hence the {@link ViolationHandler} does not need to be thread safe
+ * and it sees exactly the same sequence of calls as with a sequential loop over the files. If the
+ * {@link ViolationHandler} requests a {@link ReturnState#RECHECK}, the respective file is re-linted directly against
+ * the {@link ViolationHandler} while no other file is being reported.
+ * <p>
+ * {@link ConcurrentViolationHandler}s get the calls directly from the worker threads, without recording and
+ * replaying, unless a {@link Builder#fileTimeout(long, TimeUnit)} is set or a {@link CancellationToken} is passed to
+ * {@link #lint(Path, Iterable, ViolationHandler, CancellationToken)}.
+ * <p>
+ * If the {@link CancellationToken} gets cancelled, the files reported so far have got all their {@link Violation}s
+ * while none of the {@link Violation}s of the aborted files reach the {@link ViolationHandler}.
+ * <p>
+ * A file exceeding {@link Builder#fileTimeout(long, TimeUnit)} is aborted through its {@link CancellationToken},
+ * reported as a timeout on warn level and none of its {@link Violation}s reach the {@link ViolationHandler}. The
+ * timed out files are listed by {@link RunStatistics#getTimedOutFiles()} and they fail the run if
+ * {@link Builder#failOnTimeout(boolean)} is set.
+ * <p>
+ * The {@link RunStatistics} of the last run are available through {@link #getLastRunStatistics()} and they are
+ * logged on debug level.
+ *
+ * @since 2.2.3
+ */
+public class LintEngine {
+
+    /**
+     * A {@link LintEngine} builder.
+     */
+    public static class Builder {
+        private Charset defaultEncoding = StandardCharsets.UTF_8;
+        private ExecutionMode executionMode = ExecutionMode.FORK_JOIN;
+        private boolean failOnTimeout;
+        private long fileTimeoutNanos;
+        private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private ForkJoinPool pool;
+        private PropertiesResolver propertiesResolver;
+        private LinterRegistry registry;
+        private Resource.Options resourceOptions = Resource.Options.DEFAULT;
+
+        Builder() {
+            super();
+        }
+
+        /**
+         * @return a new {@link LintEngine}
+         */
+        public LintEngine build() {
+            return new LintEngine(Objects.requireNonNull(registry, "registry"),
+                    Objects.requireNonNull(propertiesResolver, "propertiesResolver"), defaultEncoding,
+                    resourceOptions, executionMode, pool, parallelism, maxOpenFiles, fileTimeoutNanos,
+                    failOnTimeout);
+        }
+
+        /**
+         * @param defaultEncoding the encoding to use for files having no {@code charset} property; the default is
+         *        UTF-8
+         * @return this {@link Builder}
+         */
+        public Builder defaultEncoding(Charset defaultEncoding) {
+            this.defaultEncoding = Objects.requireNonNull(defaultEncoding, "defaultEncoding");
+            return this;
+        }
+
+        /**
+         * @param executionMode the {@link ExecutionMode} to use; the default is {@link ExecutionMode#FORK_JOIN}
+         * @return this {@link Builder}
+         */
+        public Builder executionMode(ExecutionMode executionMode) {
+            this.executionMode = Objects.requireNonNull(executionMode, "executionMode");
+            return this;
+        }
+
+        /**
+         * @param failOnTimeout if {@code true}, a run in which some file exceeded the
+         *        {@link #fileTimeout(long, TimeUnit)} fails with a {@link LintCancelledException} instead of calling
+         *        {@link ViolationHandler#endFiles()}; the default is {@code false}
+         * @return this {@link Builder}
+         */
+        public Builder failOnTimeout(boolean failOnTimeout) {
+            this.failOnTimeout = failOnTimeout;
+            return this;
+        }
+
+        /**
+         * @param timeout the time budget for linting a single file, or {@code 0} for no budget. Files exceeding it
+         *        are reported as timeouts on warn level and skipped, leaving them unmodified. They are listed by
+         *        {@link RunStatistics#getTimedOutFiles()} and they fail the run if {@link #failOnTimeout(boolean)} is
+         *        set. The default is {@code 0}
+         * @param unit the unit of {@code timeout}
+         * @return this {@link Builder}
+         */
+        public Builder fileTimeout(long timeout, TimeUnit unit) {
+            if (timeout < 0L) {
+                throw new IllegalArgumentException("timeout must be >= 0; found " + timeout);
+            }
+            this.fileTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * @param maxOpenFiles the maximal number of files being read at once in
+         *        {@link ExecutionMode#VIRTUAL_THREADS} mode. The default is
+         *        {@value LintEngine#DEFAULT_MAX_OPEN_FILES}
+         * @return this {@link Builder}
+         */
+        public Builder maxOpenFiles(int maxOpenFiles) {
+            if (maxOpenFiles <= 0) {
+                throw new IllegalArgumentException("maxOpenFiles must be > 0; found " + maxOpenFiles);
+            }
+            this.maxOpenFiles = maxOpenFiles;
+            return this;
+        }
+
+        /**
+         * @param parallelism the number of threads of the {@link ForkJoinPool} created for each
+         *        {@link LintEngine#lint(Path, Iterable, ViolationHandler)} call unless a {@link #pool(ForkJoinPool)}
+         *        is set; in {@link ExecutionMode#VIRTUAL_THREADS} mode the number of files being linted at once. The
+         *        default is the number of available processors; {@code 1} lints the files sequentially
+         * @return this {@link Builder}
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be > 0; found " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param pool an existing {@link ForkJoinPool} to run the lint tasks on, or {@code null} to create a new one
+         *        with {@link #parallelism(int)} threads for each
+         *        {@link LintEngine#lint(Path, Iterable, ViolationHandler)} call
+         * @return this {@link Builder}
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * @param propertiesResolver the {@link PropertiesResolver} to find the {@code .editorconfig} properties of
+         *        the files with
+         * @return this {@link Builder}
+         */
+        public Builder propertiesResolver(PropertiesResolver propertiesResolver) {
+            this.propertiesResolver = propertiesResolver;
+            return this;
+        }
+
+        /**
+         * @param registry the {@link LinterRegistry} to take the {@link Linter}s from
+         * @return this {@link Builder}
+         */
+        public Builder registry(LinterRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+
+        /**
+         * @param resourceOptions the {@link Resource.Options} of the {@link Resource}s created by the
+         *        {@link LintEngine}
+         * @return this {@link Builder}
+         */
+        public Builder resourceOptions(Resource.Options resourceOptions) {
+            this.resourceOptions = Objects.requireNonNull(resourceOptions, "resourceOptions");
+            return this;
+        }
+    }
+
+    /**
+     * How {@link LintEngine} runs the lint tasks.
+     */
+    public enum ExecutionMode {
+        /**
+         * Lint the files on a {@link ForkJoinPool}. Best for CPU bound runs on local file systems.
+         */
+        FORK_JOIN,
+        /**
+         * Lint each file in its own virtual thread on Java 21 and newer, or on a pool of
+         * {@link Builder#maxOpenFiles(int)} platform threads on older Java versions. Reading the files is limited
+         * by {@link Builder#maxOpenFiles(int)} and linting by {@link Builder#parallelism(int)}, so that slow reads
+         * from network or overlay file systems overlap without oversubscribing the CPUs with the linting.
+         */
+        VIRTUAL_THREADS
+    }
+
+    /**
+     * Finds the {@code .editorconfig} properties applicable to a file. Must be thread safe.
+     */
+    public interface PropertiesResolver {
+        /**
+         * @param file the absolute path of the file to find the properties for
+         * @return the {@link ResourceProperties} applicable to the given {@code file}
+         * @throws IOException on I/O problems
+         */
+        ResourceProperties resolve(Path file) throws IOException;
+    }
+
+    /**
+     * The outcome of linting a single file.
+     */
+    static class FileResult {
+        /** A file with no {@link Linter} or no properties, or a file not linted because of an earlier failure */
+        static final FileResult SKIPPED = new FileResult(null, null, null, null, null);
+
+        private final Throwable failure;
+        private final List<Linter> linters;
+        private final ResourceProperties properties;
+        private final Resource resource;
+        private final List<Violation> violations;
+
+        FileResult(Resource resource, ResourceProperties properties, List<Linter> linters,
+                List<Violation> violations, Throwable failure) {
+            super();
+            this.resource = resource;
+            this.properties = properties;
+            this.linters = linters;
+            this.violations = violations;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Lints the files of a {@link Run} in the order of {@link Run#schedule}, taking them one by one from a cursor
+     * shared with the other {@link LintTask}s of the {@link Run}. Hence no thread idles while there are files left,
+     * no matter how unevenly the file sizes are distributed.
+     */
+    static class LintTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+
+        LintTask(Run run) {
+            super();
+            this.run = run;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void compute() {
+            int index;
+            while ((index = run.nextFile()) >= 0) {
+                run.completed(index, run.lint(index));
+            }
+        }
+    }
+
+    /**
+     * A {@link ViolationHandler} recording the {@link Violation}s of a single file for replaying them later.
+     */
+    static class RecordingViolationHandler implements ViolationHandler {
+        private final Logger log;
+        private final List<Violation> violations = new ArrayList<>();
+
+        RecordingViolationHandler(Logger log) {
+            super();
+            this.log = log;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ReturnState endFile() {
+            return ReturnState.FINISHED;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void endFiles() {
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Logger getLogger() {
+            return log;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void handle(Violation violation) {
+            violations.add(violation);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFile(Resource resource) {
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFiles() {
+        }
+    }
+
+    /**
+     * How well a single {@link LintEngine#lint(Path, Iterable, ViolationHandler)} call kept its threads busy.
+     */
+    public static class RunStatistics {
+        private final int binaryFileCount;
+        private final long busyNanos;
+        private final long cpuNanos;
+        private final int fileCount;
+        private final long makespanNanos;
+        private final int parallelism;
+        private final List<Path> timedOutFiles;
+
+        RunStatistics(int fileCount, int parallelism, long makespanNanos, long busyNanos, long cpuNanos,
+                int binaryFileCount, List<Path> timedOutFiles) {
+            super();
+            this.fileCount = fileCount;
+            this.binaryFileCount = binaryFileCount;
+            this.parallelism = parallelism;
+            this.makespanNanos = makespanNanos;
+            this.busyNanos = busyNanos;
+            this.cpuNanos = cpuNanos;
+            this.timedOutFiles = timedOutFiles;
+        }
+
+        private static void appendMillis(StringBuilder sb, long nanos) {
+            sb.append(String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000d));
+        }
+
+        /**
+         * @return the number of files having some {@link Linter} that {@link Resource#isBinary()} classified as binary;
+         *         the bundled {@link Linter}s skip such files
+         */
+        public int getBinaryFileCount() {
+            return binaryFileCount;
+        }
+
+        /**
+         * @return the sum of the wall clock times spent linting the individual files in nanoseconds
+         */
+        public long getBusyNanos() {
+            return busyNanos;
+        }
+
+        /**
+         * @return the sum of the CPU times spent linting the individual files in nanoseconds or {@code -1} if the JVM
+         *         cannot measure the CPU time of the threads used
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * @return {@link #getBusyNanos()} divided by {@link #getMakespanNanos()} times {@link #getParallelism()}; a
+         *         value close to {@code 1} means that all threads were busy until the end of the run
+         */
+        public double getEfficiency() {
+            return makespanNanos == 0L ? 1d : busyNanos / ((double) makespanNanos * parallelism);
+        }
+
+        /**
+         * @return the number of files passed to the run, including the skipped ones
+         */
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * @return the wall clock time from the start of the run until the last file was linted in nanoseconds
+         */
+        public long getMakespanNanos() {
+            return makespanNanos;
+        }
+
+        /**
+         * @return the number of files the run was allowed to lint at once
+         */
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        /**
+         * @return the sorted paths, relative to the root directory, of the files that exceeded the
+         *         {@link Builder#fileTimeout(long, TimeUnit)} and thus were not checked completely
+         */
+        public List<Path> getTimedOutFiles() {
+            return timedOutFiles;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder().append(fileCount).append(" files, makespan ");
+            appendMillis(sb, makespanNanos);
+            sb.append(" on ").append(parallelism).append(" threads, busy ");
+            appendMillis(sb, busyNanos);
+            if (cpuNanos >= 0L) {
+                sb.append(", CPU ");
+                appendMillis(sb, cpuNanos);
+            }
+            sb.append(String.format(Locale.ROOT, ", efficiency %.1f %%", getEfficiency() * 100d));
+            if (binaryFileCount > 0) {
+                sb.append(", ").append(binaryFileCount).append(" binary");
+            }
+            if (!timedOutFiles.isEmpty()) {
+                sb.append(", ").append(timedOutFiles.size()).append(" timed out");
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The state of a single {@link LintEngine#lint(Path, Iterable, ViolationHandler)} call.
+     */
+    class Run {
+        /**
+         * The {@link BufferArena}s lent to the per file threads in {@link ExecutionMode#VIRTUAL_THREADS} mode;
+         * otherwise null
+         */
+        private final BlockingQueue<BufferArena> arenas;
+        /** The number of files classified as binary by {@link Resource#isBinary()} */
+        private final AtomicInteger binaryFileCount = new AtomicInteger();
+        /** The sum of the wall clock times spent in {@link #lint(int)} */
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final CancellationToken cancellationToken;
+        /** The sum of the CPU times spent in {@link #lint(int)} or {@code -1} if not measurable */
+        private final AtomicLong cpuNanos;
+        /** The position in {@link #schedule} of the next file to lint */
+        private final AtomicInteger cursor = new AtomicInteger();
+        /** {@code true} while some thread is reporting to {@link #handler} */
+        private final AtomicBoolean delivering = new AtomicBoolean();
+        /** Limits the files being linted at once in {@link ExecutionMode#VIRTUAL_THREADS} mode; otherwise null */
+        private final Semaphore cpuPermits;
+        private volatile Throwable failure;
+        private final List<Path> files;
+        private final ViolationHandler handler;
+        /** Limits the files being read at once in {@link ExecutionMode#VIRTUAL_THREADS} mode; otherwise null */
+        private final Semaphore openFilePermits;
+        /**
+         * The index of the next file to report to {@link #handler}; written only while holding {@link #delivering},
+         * volatile so that the linting threads can tell whether their result is going to wait
+         */
+        private volatile int next;
+        private final AtomicReferenceArray<FileResult> results;
+        private final Path rootDirectory;
+        /** The indexes of {@link #files} in the order in which they should be linted */
+        private final int[] schedule;
+        private final long startNanos = System.nanoTime();
+        /** The files that exceeded {@link LintEngine#fileTimeoutNanos}, relative to {@link #rootDirectory} */
+        private final List<Path> timedOutFiles = Collections.synchronizedList(new ArrayList<Path>());
+
+        Run(Path rootDirectory, List<Path> files, int[] schedule, ViolationHandler handler,
+                CancellationToken cancellationToken) {
+            super();
+            this.schedule = schedule;
+            this.cpuNanos = new AtomicLong(
+                    THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled() ? 0L
+                            : -1L);
+            this.rootDirectory = rootDirectory;
+            this.cancellationToken = cancellationToken;
+            this.files = files;
+            this.handler = handler;
+            this.results = new AtomicReferenceArray<>(files.size());
+            if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+                /* fair, so that the files get their permits in the order of the schedule */
+                this.openFilePermits = new Semaphore(maxOpenFiles, true);
+                this.cpuPermits = new Semaphore(parallelism, true);
+                this.arenas = new ArrayBlockingQueue<>(parallelism);
+            } else {
+                this.openFilePermits = null;
+                this.cpuPermits = null;
+                this.arenas = null;
+            }
+        }
+
+        /**
+         * Stores the given {@link FileResult} and reports all results available in the input order, unless another
+         * thread is reporting already. In such a case, the other thread reports the given result too.
+         *
+         * @param index the index of the file in {@link #files}
+         * @param result the outcome of linting the file
+         */
+        void completed(int index, FileResult result) {
+            results.set(index, result);
+            while (delivering.compareAndSet(false, true)) {
+                try {
+                    FileResult current;
+                    while (failure == null && next < files.size() && (current = results.get(next)) != null) {
+                        results.set(next++, null);
+                        deliver(current);
+                    }
+                } finally {
+                    delivering.set(false);
+                }
+                /* another thread might have stored the next result after our last check but before our release */
+                if (failure != null || next >= files.size() || results.get(next) == null) {
+                    return;
+                }
+            }
+        }
+
+        private void deliver(FileResult result) {
+            if (result.failure != null) {
+                failure = result.failure;
+                return;
+            }
+            if (result.resource == null) {
+                return;
+            }
+            try {
+                handler.startFile(result.resource);
+                for (Violation violation : result.violations) {
+                    handler.handle(violation);
+                }
+                while (handler.endFile() == ReturnState.RECHECK) {
+                    final List<Violation> violations = record(result.resource, result.properties, result.linters);
+                    if (violations == null) {
+                        /* timed out: the handler keeps the outcome of the previous pass */
+                        break;
+                    }
+                    handler.startFile(result.resource);
+                    for (Violation violation : violations) {
+                        handler.handle(violation);
+                    }
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * @param index the index of the file in {@link #files} to lint
+         * @return the outcome of linting the given file
+         */
+        FileResult lint(int index) {
+            if (failure != null) {
+                return FileResult.SKIPPED;
+            }
+            final long start = System.nanoTime();
+            final long cpuStart = cpuNanos.get() >= 0L ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1L;
+            try {
+                return lintFile(index);
+            } finally {
+                busyNanos.addAndGet(System.nanoTime() - start);
+                final long cpuEnd = cpuStart >= 0L ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1L;
+                if (cpuEnd >= 0L) {
+                    cpuNanos.addAndGet(cpuEnd - cpuStart);
+                } else {
+                    /* e.g. virtual threads whose CPU time is not available */
+                    cpuNanos.set(-1L);
+                }
+            }
+        }
+
+        private FileResult lintFile(int index) {
+            final Path file = files.get(index);
+            final Path absPath = rootDirectory.resolve(file).normalize();
+            final Path relPath = absPath.startsWith(rootDirectory) ? rootDirectory.relativize(absPath) : file;
+            try {
+                cancellationToken.throwIfCancelled();
+                final List<Linter> linters = registry.filter(relPath);
+                if (linters.isEmpty()) {
+                    return FileResult.SKIPPED;
+                }
+                final ResourceProperties properties = propertiesResolver.resolve(absPath);
+                if (properties.getProperties().isEmpty()) {
+                    return FileResult.SKIPPED;
+                }
+                final Charset encoding = Charsets
+                        .forName(properties.getValue(PropertyType.charset, defaultEncoding.name(), true));
+                final Resource resource = new Resource(absPath, relPath, encoding, resourceOptions);
+                if (openFilePermits == null) {
+                    return lint(index, resource, properties, linters);
+                }
+                openFilePermits.acquire();
+                /* a virtual thread lives for this file only, so lend it the buffers of the previous files */
+                final BufferArena polled = arenas.poll();
+                final BufferArena arena = polled != null ? polled : new BufferArena();
+                BufferArena.attach(arena);
+                boolean fileOpen = true;
+                try {
+                    /* files to be streamed keep being read while linting and thus hold the permit until the end */
+                    if (!resource.isBinary() && Files.size(absPath) < resourceOptions.getStreamingThreshold()) {
+                        resource.length();
+                        openFilePermits.release();
+                        fileOpen = false;
+                    }
+                    cpuPermits.acquire();
+                    try {
+                        return lint(index, resource, properties, linters);
+                    } finally {
+                        cpuPermits.release();
+                    }
+                } finally {
+                    if (fileOpen) {
+                        openFilePermits.release();
+                    }
+                    BufferArena.attach(null);
+                    /* keeps at most parallelism arenas; the others are left to the garbage collector */
+                    arenas.offer(arena);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new FileResult(null, null, null, null,
+                        new InterruptedIOException("Interrupted while waiting to lint " + relPath));
+            } catch (IOException | RuntimeException | Error e) {
+                return new FileResult(null, null, null, null, e);
+            }
+        }
+
+        private FileResult lint(int index, Resource resource, ResourceProperties properties, List<Linter> linters)
+                throws IOException {
+            if (resource.isBinary()) {
+                binaryFileCount.incrementAndGet();
+            }
+            if (handler instanceof ConcurrentViolationHandler) {
+                if (fileTimeoutNanos == 0L && cancellationToken == CancellationToken.NONE) {
+                    do {
+                        handler.startFile(resource);
+                        process(linters, resource, properties, handler, cancellationToken);
+                    } while (handler.endFile() == ReturnState.RECHECK);
+                    return FileResult.SKIPPED;
+                }
+                /* record so that a timeout or cancellation does not leave partial violations with the handler */
+                List<Violation> violations;
+                do {
+                    violations = record(resource, properties, linters);
+                    if (violations == null) {
+                        break;
+                    }
+                    handler.startFile(resource);
+                    for (Violation violation : violations) {
+                        handler.handle(violation);
+                    }
+                } while (handler.endFile() == ReturnState.RECHECK);
+                return FileResult.SKIPPED;
+            }
+            final List<Violation> violations = record(resource, properties, linters);
+            if (violations == null) {
+                return FileResult.SKIPPED;
+            }
+            if (index != next) {
+                /*
+                 * The result waits for some file reported earlier, possibly scheduled much later. Drop the text so that
+                 * the waiting results do not keep the whole tree on the heap; deliver() re-reads it on demand
+                 */
+                resource.unload();
+            }
+            return new FileResult(resource, properties, linters, violations, null);
+        }
+
+        /**
+         * @return the index in {@link #files} of the next file to lint or {@code -1} if there is none left
+         */
+        int nextFile() {
+            final int position = cursor.getAndIncrement();
+            return position < schedule.length ? schedule[position] : -1;
+        }
+
+        /**
+         * Lints the given {@link Resource} within {@link LintEngine#fileTimeoutNanos} if set.
+         *
+         * @return the {@link Violation}s found or {@code null} if the time budget was exceeded
+         * @throws IOException on I/O problems
+         */
+        private List<Violation> record(Resource resource, ResourceProperties properties, List<Linter> linters)
+                throws IOException {
+            final RecordingViolationHandler recorder = new RecordingViolationHandler(handler.getLogger());
+            if (fileTimeoutNanos == 0L) {
+                process(linters, resource, properties, recorder, cancellationToken);
+                return recorder.violations;
+            }
+            try {
+                process(linters, resource, properties, recorder,
+                        cancellationToken.withTimeout(fileTimeoutNanos, TimeUnit.NANOSECONDS));
+                return recorder.violations;
+            } catch (LintCancelledException e) {
+                if (!e.isTimeout() || cancellationToken.isTimedOut()) {
+                    throw e;
+                }
+                handler.getLogger().warn("Linting file '{}' timed out after {} ms; skipping it", resource,
+                        TimeUnit.NANOSECONDS.toMillis(fileTimeoutNanos));
+                timedOutFiles.add(rootDirectory.relativize(resource.getPath()));
+                return null;
+            }
+        }
+    }
+
+    /** The default value of {@link Builder#maxOpenFiles(int)} */
+    public static final int DEFAULT_MAX_OPEN_FILES = 256;
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    /**
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Passes the given {@code resource} to all given {@code linters} through a {@link LintSession}.
+     *
+     * @param linters the {@link Linter}s to use
+     * @param resource the {@link Resource} to lint
+     * @param properties the {@code .editorconfig} properties of the {@code resource}
+     * @param handler the {@link ViolationHandler} to report to
+     * @param cancellationToken the {@link CancellationToken} to pass to the {@link Linter}s
+     * @throws IOException on I/O problems
+     */
+    static void process(List<Linter> linters, Resource resource, ResourceProperties properties,
+            ViolationHandler handler, CancellationToken cancellationToken) throws IOException {
+        new LintSession(resource, properties, linters).process(handler, cancellationToken);
+    }
+
+    /**
+     * @param service the {@link ResourcePropertiesService} to query
+     * @return a {@link PropertiesResolver} backed by the given {@link ResourcePropertiesService}
+     */
+    public static PropertiesResolver propertiesResolver(final ResourcePropertiesService service) {
+        return new PropertiesResolver() {
+            @Override
+            public ResourceProperties resolve(Path file) throws IOException {
+                return service.queryProperties(Resources.ofPath(file, StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    /**
+     * Runs each file of the given {@link Run} as a separate task of a {@link LintExecutors#newPerFileExecutor(int)}.
+     *
+     * @param run the {@link Run} to execute
+     * @throws InterruptedIOException if interrupted while waiting for the tasks to finish
+     */
+    private void runPerFile(final Run run) throws InterruptedIOException {
+        final int fileCount = run.files.size();
+        final CountDownLatch done = new CountDownLatch(fileCount);
+        final ExecutorService executor = LintExecutors.newPerFileExecutor(maxOpenFiles);
+        try {
+            for (int i = 0; i < fileCount; i++) {
+                final int index = run.schedule[i];
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            run.completed(index, run.lint(index));
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the lint tasks to finish");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Orders the files longest processing time first, using the file size as the estimate of the processing time.
+     * Greedily assigning the files in this order to the next idle thread keeps the makespan within 4/3 of the
+     * optimum.
+     *
+     * @param sizes the sizes of the files in bytes
+     * @return the indexes of {@code sizes} ordered by descending size; the files of the same size keep their order
+     */
+    static int[] schedule(final long[] sizes) {
+        final Integer[] order = new Integer[sizes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = Integer.valueOf(i);
+        }
+        /* a stable sort */
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(sizes[o2.intValue()], sizes[o1.intValue()]);
+            }
+        });
+        final int[] result = new int[order.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = order[i].intValue();
+        }
+        return result;
+    }
+
+    /**
+     * @param rootDirectory the directory to walk
+     * @return the regular files under the given {@code rootDirectory} relative to it, sorted so that the order does
+     *         not depend on the file system
+     * @throws IOException on I/O problems
+     */
+    static List<Path> walk(final Path rootDirectory) throws IOException {
+        return walk(rootDirectory, null, null);
+    }
+
+    /**
+     * @param rootDirectory the directory to walk
+     * @param registry the {@link LinterRegistry} to skip the directories having no files to lint with, see
+     *        {@link LinterRegistry#mayLintUnder(Path)}, or {@code null} to walk all directories
+     * @param sizes a {@link Map} to store the sizes of the files found to, or {@code null}
+     * @return the regular files under the given {@code rootDirectory} relative to it, sorted so that the order does
+     *         not depend on the file system
+     * @throws IOException on I/O problems
+     */
+    static List<Path> walk(final Path rootDirectory, final LinterRegistry registry, final Map<Path, Long> sizes)
+            throws IOException {
+        final List<Path> result = new ArrayList<>();
+        Files.walkFileTree(rootDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (registry != null && !dir.equals(rootDirectory)
+                        && !registry.mayLintUnder(rootDirectory.relativize(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    final Path relPath = rootDirectory.relativize(file);
+                    result.add(relPath);
+                    if (sizes != null) {
+                        sizes.put(relPath, Long.valueOf(attrs.size()));
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(result);
+        return result;
+    }
+
+    private final Charset defaultEncoding;
+
+    private final ExecutionMode executionMode;
+
+    private final boolean failOnTimeout;
+
+    private final long fileTimeoutNanos;
+
+    private volatile RunStatistics lastRunStatistics;
+
+    private final int maxOpenFiles;
+
+    private final int parallelism;
+
+    private final ForkJoinPool pool;
+
+    private final PropertiesResolver propertiesResolver;
+
+    private final LinterRegistry registry;
+
+    private final Resource.Options resourceOptions;
+
+    LintEngine(LinterRegistry registry, PropertiesResolver propertiesResolver, Charset defaultEncoding,
+            Resource.Options resourceOptions, ExecutionMode executionMode, ForkJoinPool pool, int parallelism,
+            int maxOpenFiles, long fileTimeoutNanos, boolean failOnTimeout) {
+        super();
+        this.failOnTimeout = failOnTimeout;
+        this.fileTimeoutNanos = fileTimeoutNanos;
+        this.executionMode = executionMode;
+        this.maxOpenFiles = maxOpenFiles;
+        this.registry = registry;
+        this.propertiesResolver = propertiesResolver;
+        this.defaultEncoding = defaultEncoding;
+        this.resourceOptions = resourceOptions;
+        this.pool = pool;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the {@link RunStatistics} of the last completed {@code lint()} call or {@code null} if there was none
+     */
+    public RunStatistics getLastRunStatistics() {
+        return lastRunStatistics;
+    }
+
+    /**
+     * @return the {@link LinterRegistry} this {@link LintEngine} takes the {@link Linter}s from
+     */
+    public LinterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Lints all regular files under the given {@code rootDirectory}, reporting them in the order of their relative
+     * paths. The sizes found during the walk are used to lint the biggest files first. The directories having no files
+     * to lint according to {@link LinterRegistry#mayLintUnder(Path)} are not walked at all.
+     *
+     * @param rootDirectory the directory to lint
+     * @param handler the {@link ViolationHandler} to report to
+     * @throws IOException on I/O problems
+     */
+    public void lint(Path rootDirectory, ViolationHandler handler) throws IOException {
+        final Map<Path, Long> sizes = new HashMap<>();
+        final List<Path> files = walk(rootDirectory, registry, sizes);
+        final long[] sizeArray = new long[files.size()];
+        for (int i = 0; i < sizeArray.length; i++) {
+            sizeArray[i] = sizes.get(files.get(i)).longValue();
+        }
+        lint(rootDirectory, files, sizeArray, handler, CancellationToken.NONE);
+    }
+
+    /**
+     * Lints the given {@code files}, calling {@link ViolationHandler#startFiles()} before and
+     * {@link ViolationHandler#endFiles()} after all of them. The first failure, in the order of {@code files}, stops
+     * the reporting and is rethrown after the running tasks finish.
+     *
+     * @param rootDirectory the directory to resolve the {@code files} against and to relativize the paths reported
+     *        by the {@link Resource}s to
+     * @param files the files to lint, absolute or relative to {@code rootDirectory}
+     * @param handler the {@link ViolationHandler} to report to
+     * @throws IOException on I/O problems
+     */
+    public void lint(Path rootDirectory, Iterable<Path> files, ViolationHandler handler) throws IOException {
+        lint(rootDirectory, files, handler, CancellationToken.NONE);
+    }
+
+    /**
+     * Same as {@link #lint(Path, Iterable, ViolationHandler)} but stopping with a {@link LintCancelledException} as
+     * soon as possible once the given {@link CancellationToken} gets cancelled.
+     *
+     * @param rootDirectory the directory to resolve the {@code files} against and to relativize the paths reported
+     *        by the {@link Resource}s to
+     * @param files the files to lint, absolute or relative to {@code rootDirectory}
+     * @param handler the {@link ViolationHandler} to report to
+     * @param cancellationToken the {@link CancellationToken} to poll
+     * @throws IOException on I/O problems
+     * @throws LintCancelledException if the {@code cancellationToken} got cancelled; no {@link Violation}s of the
+     *         aborted files have been reported to the {@code handler}
+     */
+    public void lint(Path rootDirectory, Iterable<Path> files, ViolationHandler handler,
+            CancellationToken cancellationToken) throws IOException {
+        final List<Path> fileList = new ArrayList<>();
+        for (Path file : files) {
+            fileList.add(file);
+        }
+        lint(rootDirectory, fileList, null, handler, Objects.requireNonNull(cancellationToken, "cancellationToken"));
+    }
+
+    /**
+     * @param sizes the sizes of the {@code files} to schedule the biggest ones first or {@code null} to lint them in
+     *        the given order
+     */
+    private void lint(Path rootDirectory, List<Path> fileList, long[] sizes, ViolationHandler handler,
+            CancellationToken cancellationToken) throws IOException {
+        final int threads = executionMode == ExecutionMode.FORK_JOIN && pool != null ? pool.getParallelism()
+                : parallelism;
+        final int[] schedule;
+        if (sizes == null || threads == 1) {
+            /* largest first would not shorten a sequential run but it would keep more results waiting */
+            schedule = new int[fileList.size()];
+            for (int i = 0; i < schedule.length; i++) {
+                schedule[i] = i;
+            }
+        } else {
+            schedule = schedule(sizes);
+        }
+        final Run run = new Run(rootDirectory.toAbsolutePath().normalize(), fileList, schedule, handler,
+                cancellationToken);
+        handler.startFiles();
+        if (fileList.isEmpty()) {
+            /* nothing to do */
+        } else if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+            runPerFile(run);
+        } else {
+            final ForkJoinPool usedPool = pool != null ? pool : new ForkJoinPool(parallelism);
+            try {
+                final List<LintTask> tasks = new ArrayList<>();
+                for (int i = Math.min(threads, fileList.size()); i > 0; i--) {
+                    final LintTask task = new LintTask(run);
+                    tasks.add(task);
+                    usedPool.execute(task);
+                }
+                for (LintTask task : tasks) {
+                    task.join();
+                }
+            } finally {
+                if (usedPool != pool) {
+                    usedPool.shutdown();
+                }
+            }
+        }
+        final List<Path> timedOutFiles = new ArrayList<>(run.timedOutFiles);
+        Collections.sort(timedOutFiles);
+        final RunStatistics statistics = new RunStatistics(fileList.size(), threads,
+                System.nanoTime() - run.startNanos, run.busyNanos.get(), run.cpuNanos.get(),
+                run.binaryFileCount.get(), Collections.unmodifiableList(timedOutFiles));
+        this.lastRunStatistics = statistics;
+        final Logger log = handler.getLogger();
+        if (log.isDebugEnabled()) {
+            log.debug("Lint run statistics: {}", statistics);
+        }
+        final Throwable failure = run.failure;
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failOnTimeout && !timedOutFiles.isEmpty()) {
+            throw new LintCancelledException("Linting timed out after "
+                    + TimeUnit.NANOSECONDS.toMillis(fileTimeoutNanos) + " ms for " + timedOutFiles.size()
+                    + " file(s): " + timedOutFiles, true);
+        }
+        handler.endFiles();
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the {@link ExecutorService}s for {@link LintEngine.ExecutionMode#VIRTUAL_THREADS}. This is the variant for
+ * Java versions without virtual threads; the multi-release jar contains another one for Java 21 and newer.
+ *
+ * @since 2.2.3
+ */
+final class LintExecutors {
+
+    /**
+     * @return {@code true} if {@link #newPerFileExecutor(int)} runs each task in a new virtual thread; {@code false}
+     *         otherwise
+     */
+    static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * @param maxOpenFiles the maximal number of files open at once; used as the number of platform threads here
+     * @return a new {@link ExecutorService} with {@code maxOpenFiles} daemon threads
+     */
+    static ExecutorService newPerFileExecutor(int maxOpenFiles) {
+        return Executors.newFixedThreadPool(maxOpenFiles, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread result = new Thread(r, "ec4j-lint-" + counter.getAndIncrement());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+    }
+
+    private LintExecutors() {
+    }
+
+}
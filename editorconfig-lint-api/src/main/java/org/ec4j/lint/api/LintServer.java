@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long running process serving lint requests of {@link LintClient}s over a loopback socket, so that the clients do
+ * not need to pay for the JVM startup, for scanning the {@link Linter}s and for warming up the parsers the
+ * {@link Linter}s use. Each request is served by a {@link LintEngine} built once when the server starts. Several
+ * clients can be served at once, each on its own thread.
+ * <p>
+ * The protocol is line based and UTF-8 encoded. A request looks like
+ *
+ * <pre>
+ * ec4j-lint 2&lt;TAB&gt;token
+ * ROOT&lt;TAB&gt;/absolute/path/to/root
+ * FILE&lt;TAB&gt;relative/path/to/file
+ * ...
+ * END
+ * </pre>
+ *
+ * and the response consists of a {@code FILE<TAB>path} line for each file linted, a {@code VIOLATION<TAB>message}
+ * line for each {@link Violation} found and either a final {@code DONE<TAB>fileCount} or {@code ERROR<TAB>message}
+ * line. The values must not contain line breaks; any such are replaced with spaces.
+ * <p>
+ * The server only ever reads the files. It listens on the loopback interface only and it serves only the clients
+ * knowing the random token generated on {@link #start()}. The token is written to the {@link Builder#portFile(Path)}
+ * together with the port, readable by the owner only where the file system supports POSIX permissions. The
+ * {@code ROOT} must be one of the {@link Builder#allowedRoot(Path)}s or a directory under one of them and the
+ * {@code FILE}s must be under the {@code ROOT}.
+ *
+ * @since 2.2.3
+ */
+public class LintServer implements Closeable {
+
+    /**
+     * A {@link LintServer} builder.
+     */
+    public static class Builder {
+        private final List<Path> allowedRoots = new ArrayList<>();
+        private LintEngine.Builder engine;
+        private Logger log = Logger.NO_OP;
+        private int maxClients = DEFAULT_MAX_CLIENTS;
+        private int port;
+        private Path portFile;
+
+        Builder() {
+            super();
+        }
+
+        /**
+         * @param allowedRoot a directory the clients may lint; the {@code ROOT} of each request must be this directory
+         *        or some directory under it. At least one is required
+         * @return this {@link Builder}
+         */
+        public Builder allowedRoot(Path allowedRoot) {
+            allowedRoots.add(allowedRoot.toAbsolutePath().normalize());
+            return this;
+        }
+
+        /**
+         * @return a new {@link LintServer} not listening yet
+         * @throws IllegalStateException if no {@link #allowedRoot(Path)} was set
+         */
+        public LintServer build() {
+            if (allowedRoots.isEmpty()) {
+                throw new IllegalStateException("At least one allowedRoot is required");
+            }
+            return new LintServer(Objects.requireNonNull(engine, "engine").build(), port, portFile, maxClients, log,
+                    Collections.unmodifiableList(new ArrayList<>(allowedRoots)));
+        }
+
+        /**
+         * @param engine the {@link LintEngine.Builder} to create the {@link LintEngine} with
+         * @return this {@link Builder}
+         */
+        public Builder engine(LintEngine.Builder engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        /**
+         * @param log the {@link Logger} to use
+         * @return this {@link Builder}
+         */
+        public Builder log(Logger log) {
+            this.log = Objects.requireNonNull(log, "log");
+            return this;
+        }
+
+        /**
+         * @param maxClients the maximal number of clients served at once; further clients wait. The default is
+         *        {@value LintServer#DEFAULT_MAX_CLIENTS}
+         * @return this {@link Builder}
+         */
+        public Builder maxClients(int maxClients) {
+            if (maxClients <= 0) {
+                throw new IllegalArgumentException("maxClients must be > 0; found " + maxClients);
+            }
+            this.maxClients = maxClients;
+            return this;
+        }
+
+        /**
+         * @param port the loopback port to listen on; the default {@code 0} picks a free port
+         * @return this {@link Builder}
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param portFile the file to write the port number and the token to once the server listens, so that the
+         *        clients can find them through {@link LintClient#of(Path)}; deleted on {@link LintServer#close()}
+         * @return this {@link Builder}
+         */
+        public Builder portFile(Path portFile) {
+            this.portFile = portFile;
+            return this;
+        }
+    }
+
+    /**
+     * A {@link ViolationHandler} writing the response lines to a client.
+     */
+    static class ResponseViolationHandler implements ViolationHandler {
+        private int fileCount;
+        private final Logger log;
+        private final Writer out;
+
+        ResponseViolationHandler(Writer out, Logger log) {
+            super();
+            this.out = out;
+            this.log = log;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ReturnState endFile() {
+            return ReturnState.FINISHED;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void endFiles() {
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Logger getLogger() {
+            return log;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void handle(Violation violation) {
+            write("VIOLATION", violation.toString());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFile(Resource resource) {
+            fileCount++;
+            write("FILE", resource.toString());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFiles() {
+        }
+
+        void write(String type, String value) {
+            try {
+                writeLine(out, type, value);
+            } catch (IOException e) {
+                throw new FormatException("Could not write to the client", e);
+            }
+        }
+    }
+
+    /** The default value of {@link Builder#maxClients(int)} */
+    public static final int DEFAULT_MAX_CLIENTS = 16;
+
+    /** The first line of each request, followed by a tab and the token */
+    static final String HEADER = "ec4j-lint 2";
+
+    /** The time after which a client not sending anything is disconnected */
+    private static final int READ_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return a new random token
+     */
+    static String newToken() {
+        final byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * @param line the first line of a request
+     * @param expectedToken the token of this server
+     * @return {@code true} if the given {@code line} contains the {@link #HEADER} and the expected token
+     */
+    private static boolean isValidHeader(String line, String expectedToken) {
+        if (line == null || !line.startsWith(HEADER + "\t")) {
+            return false;
+        }
+        final byte[] actual = line.substring(HEADER.length() + 1).getBytes(StandardCharsets.UTF_8);
+        /* constant time, so that the token cannot be guessed by timing */
+        return MessageDigest.isEqual(actual, expectedToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a single protocol line.
+     *
+     * @param out where to write
+     * @param type the type of the line
+     * @param value the value to write after the type or {@code null}
+     * @throws IOException on I/O problems
+     */
+    static void writeLine(Writer out, String type, String value) throws IOException {
+        out.write(type);
+        if (value != null) {
+            out.write('\t');
+            out.write(value.replace('\r', ' ').replace('\n', ' '));
+        }
+        out.write('\n');
+    }
+
+    private final List<Path> allowedRoots;
+
+    private final LintEngine engine;
+
+    private ExecutorService executor;
+
+    private final Logger log;
+
+    private final int maxClients;
+
+    private final int port;
+
+    private final Path portFile;
+
+    /** The {@link #allowedRoots} with symbolic links resolved; set by {@link #start()} */
+    private volatile List<Path> realAllowedRoots;
+
+    private ServerSocket serverSocket;
+
+    private volatile String token;
+
+    LintServer(LintEngine engine, int port, Path portFile, int maxClients, Logger log, List<Path> allowedRoots) {
+        super();
+        this.engine = engine;
+        this.port = port;
+        this.portFile = portFile;
+        this.maxClients = maxClients;
+        this.log = log;
+        this.allowedRoots = allowedRoots;
+    }
+
+    private void accept() {
+        while (true) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Could not accept a client: {}", e.toString());
+                }
+                return;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops listening, disconnects the clients and deletes the {@link Builder#portFile(Path)}.
+     *
+     * @throws IOException on I/O problems
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+            executor.shutdownNow();
+            if (portFile != null) {
+                Files.deleteIfExists(portFile);
+            }
+        }
+    }
+
+    /**
+     * @return the token the clients have to send, see {@link LintClient#LintClient(int, String)}
+     * @throws IllegalStateException if not started yet
+     */
+    public synchronized String getToken() {
+        if (serverSocket == null) {
+            throw new IllegalStateException("Not started yet");
+        }
+        return token;
+    }
+
+    /**
+     * @param realRoot the {@code ROOT} of a request with symbolic links resolved
+     * @return {@code true} if the given {@code realRoot} is one of the {@link #allowedRoots} or under one of them
+     */
+    private boolean isAllowed(Path realRoot) {
+        for (Path allowedRoot : realAllowedRoots) {
+            if (realRoot.startsWith(allowedRoot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param realRoot the {@code ROOT} of a request with symbolic links resolved
+     * @param file a {@code FILE} of the request
+     * @return {@code true} if the given {@code file} is under {@code realRoot}, also after resolving symbolic links if
+     *         it exists
+     * @throws IOException on I/O problems
+     */
+    private static boolean isUnder(Path realRoot, Path file) throws IOException {
+        final Path resolved = realRoot.resolve(file).normalize();
+        if (!resolved.startsWith(realRoot)) {
+            return false;
+        }
+        return !Files.exists(resolved) || resolved.toRealPath().startsWith(realRoot);
+    }
+
+    /**
+     * @return the port this server listens on
+     * @throws IllegalStateException if not started yet
+     */
+    public synchronized int getPort() {
+        if (serverSocket == null) {
+            throw new IllegalStateException("Not started yet");
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Reads a single request from the given {@link Socket} and writes the response.
+     *
+     * @param socket the client connection
+     */
+    void serve(Socket socket) {
+        try (Socket s = socket) {
+            s.setSoTimeout(READ_TIMEOUT_MILLIS);
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            final Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+            try {
+                if (!isValidHeader(in.readLine(), token)) {
+                    log.warn("Rejected a client from {} not sending {} and the valid token", s.getRemoteSocketAddress(),
+                            HEADER);
+                    writeLine(out, "ERROR", "Expected " + HEADER + " and the valid token");
+                    return;
+                }
+                Path root = null;
+                final List<Path> files = new ArrayList<>();
+                String line;
+                while ((line = in.readLine()) != null && !"END".equals(line)) {
+                    if (line.startsWith("ROOT\t")) {
+                        root = Paths.get(line.substring(5)).normalize();
+                    } else if (line.startsWith("FILE\t")) {
+                        files.add(Paths.get(line.substring(5)));
+                    } else {
+                        writeLine(out, "ERROR", "Unexpected line " + line);
+                        return;
+                    }
+                }
+                if (line == null || root == null || !root.isAbsolute()) {
+                    writeLine(out, "ERROR", "Expected an absolute ROOT and END");
+                    return;
+                }
+                final Path realRoot = Files.isDirectory(root) ? root.toRealPath() : null;
+                if (realRoot == null || !isAllowed(realRoot)) {
+                    log.warn("Rejected ROOT {} not under any of the allowed roots {}", root, allowedRoots);
+                    writeLine(out, "ERROR", "ROOT " + root + " is not allowed");
+                    return;
+                }
+                root = realRoot;
+                for (Path file : files) {
+                    if (!isUnder(realRoot, file)) {
+                        log.warn("Rejected FILE {} outside of ROOT {}", file, root);
+                        writeLine(out, "ERROR", "FILE " + file + " is outside of ROOT");
+                        return;
+                    }
+                }
+                final ResponseViolationHandler handler = new ResponseViolationHandler(out, log);
+                try {
+                    engine.lint(root, files, handler);
+                    writeLine(out, "DONE", String.valueOf(handler.fileCount));
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Could not lint {}: {}", root, e.toString());
+                    writeLine(out, "ERROR", e.toString());
+                }
+            } finally {
+                out.flush();
+            }
+        } catch (SocketException e) {
+            /* the client or close() disconnected */
+        } catch (IOException e) {
+            log.warn("Could not serve a client: {}", e.toString());
+        }
+    }
+
+    /**
+     * Starts listening on the loopback interface and serving clients in background threads.
+     *
+     * @return this {@link LintServer}
+     * @throws IOException on I/O problems
+     */
+    public synchronized LintServer start() throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Started already");
+        }
+        final List<Path> realRoots = new ArrayList<>(allowedRoots.size());
+        for (Path allowedRoot : allowedRoots) {
+            realRoots.add(allowedRoot.toRealPath());
+        }
+        realAllowedRoots = realRoots;
+        final ServerSocket ss = new ServerSocket();
+        ss.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverSocket = ss;
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxClients, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread result = new Thread(r, "ec4j-lint-server-" + threadCount.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+        final Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "ec4j-lint-server");
+        acceptor.setDaemon(true);
+        token = newToken();
+        acceptor.start();
+        if (portFile != null) {
+            writePortFile(ss.getLocalPort());
+        }
+        log.info("Listening on {}", ss.getLocalSocketAddress());
+        return this;
+    }
+
+    /**
+     * Writes the port and the token to {@link #portFile}, readable by the owner only where the file system supports
+     * POSIX permissions.
+     *
+     * @param localPort the port to write
+     * @throws IOException on I/O problems
+     */
+    private void writePortFile(int localPort) throws IOException {
+        final Path tmp = Paths.get(portFile.toString() + ".tmp");
+        Files.deleteIfExists(tmp);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(tmp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        Files.write(tmp, (localPort + "\n" + token + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, portFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
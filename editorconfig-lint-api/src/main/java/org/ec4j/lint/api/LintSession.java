@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+import org.ec4j.core.ResourceProperties;
+
+/**
+ * Runs all {@link Linter}s applicable to a single {@link Resource}. If more than one {@link Linter} is going to read
+ * the {@link Resource}, it is sniffed and decoded once up front and all {@link Linter}s then work on the same in-memory
+ * content, including the line index built on the first {@link Resource#findLocation(int)} call. {@link Linter}s
+ * skipping the {@link Resource} because a {@link LintCache} records it as clean do not count, so that a fully cached
+ * file is not decoded at all. Files bigger than {@link Resource.Options#getStreamingThreshold()} are not decoded up
+ * front so that the {@link Linter}s can keep streaming them.
+ * <p>
+ * The time spent in the individual phases is available through {@link #getTimings()} and it is logged on debug level
+ * after each {@link #process(ViolationHandler)} call.
+ *
+ * @since 2.2.3
+ */
+public class LintSession {
+
+    /**
+     * The time spent in the individual phases of the last {@link LintSession#process(ViolationHandler)} call.
+     */
+    public static class Timings {
+        private final List<Linter> linters;
+        private final long[] linterNanos;
+        private int loadCount;
+        private long loadNanos;
+        private long sniffNanos;
+
+        Timings(List<Linter> linters) {
+            super();
+            this.linters = linters;
+            this.linterNanos = new long[linters.size()];
+        }
+
+        private static void appendMillis(StringBuilder sb, long nanos) {
+            sb.append(String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000d));
+        }
+
+        /**
+         * @param index the index of the {@link Linter} in the list passed to {@link LintSession}
+         * @return the time spent in the given {@link Linter} in nanoseconds, excluding the time spent decoding the
+         *         {@link Resource} if it was the {@link Linter} that triggered it
+         */
+        public long getLinterNanos(int index) {
+            return linterNanos[index];
+        }
+
+        /**
+         * @return the number of passes decoding the underlying file, including the streaming ones; {@code 1} unless
+         *         the file was streamed by more than one {@link Linter}
+         */
+        public int getLoadCount() {
+            return loadCount;
+        }
+
+        /**
+         * @return the time spent decoding the underlying file to memory in nanoseconds; the streaming passes are
+         *         accounted to the {@link Linter}s
+         */
+        public long getLoadNanos() {
+            return loadNanos;
+        }
+
+        /**
+         * @return the time spent by {@link Resource#isBinary()} in nanoseconds
+         */
+        public long getSniffNanos() {
+            return sniffNanos;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("sniff ");
+            appendMillis(sb, sniffNanos);
+            sb.append(", decode ");
+            appendMillis(sb, loadNanos);
+            sb.append(" (").append(loadCount).append(loadCount == 1 ? " pass)" : " passes)");
+            for (int i = 0; i < linterNanos.length; i++) {
+                sb.append(", ").append(linters.get(i).getClass().getSimpleName()).append(' ');
+                appendMillis(sb, linterNanos[i]);
+            }
+            return sb.toString();
+        }
+    }
+
+    private final List<Linter> linters;
+    private final ResourceProperties properties;
+    private final Resource resource;
+    private Timings timings;
+
+    /**
+     * @param resource the {@link Resource} to lint
+     * @param properties the {@code .editorconfig} properties of the {@code resource}
+     * @param linters the {@link Linter}s to use
+     */
+    public LintSession(Resource resource, ResourceProperties properties, List<Linter> linters) {
+        super();
+        this.resource = resource;
+        this.properties = properties;
+        this.linters = linters;
+    }
+
+    /**
+     * @return the number of {@link #linters} that are not going to skip {@link #resource} as clean according to a
+     *         {@link LintCache}
+     * @throws IOException on I/O problems
+     */
+    private int countReadingLinters() throws IOException {
+        int count = 0;
+        for (Linter linter : linters) {
+            if (!(linter instanceof CachingLinter) || !((CachingLinter) linter).isClean(resource, properties)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the {@link Timings} of the last {@link #process(ViolationHandler)} call or {@code null} if there was
+     *         none
+     */
+    public Timings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Passes the {@link Resource} to all {@link Linter}s of this session.
+     *
+     * @param handler the {@link ViolationHandler} to report to
+     * @throws IOException on I/O problems
+     */
+    public void process(ViolationHandler handler) throws IOException {
+        process(handler, CancellationToken.NONE);
+    }
+
+    /**
+     * Passes the {@link Resource} to all {@link Linter}s of this session, polling the given
+     * {@link CancellationToken} before each {@link Linter} and passing it to the {@link Linter}s.
+     *
+     * @param handler the {@link ViolationHandler} to report to
+     * @param cancellationToken the {@link CancellationToken} to poll
+     * @throws IOException on I/O problems
+     * @throws LintCancelledException if the {@code cancellationToken} got cancelled; some {@link Violation}s may
+     *         have been reported to the {@code handler} already
+     */
+    public void process(ViolationHandler handler, CancellationToken cancellationToken) throws IOException {
+        final Logger log = handler.getLogger();
+        final Timings t = new Timings(linters);
+        final int loadCount = resource.loadCount;
+        final long loadNanos = resource.loadNanos;
+        final long sniffStart = System.nanoTime();
+        final boolean binary = resource.isBinary();
+        t.sniffNanos = System.nanoTime() - sniffStart;
+        if (linters.size() > 1 && !binary && !resource.isLoaded()
+                && Files.size(resource.getPath()) < resource.getOptions().getStreamingThreshold()
+                && countReadingLinters() > 1) {
+            resource.length();
+        }
+        for (int i = 0; i < linters.size(); i++) {
+            final Linter linter = linters.get(i);
+            cancellationToken.throwIfCancelled();
+            if (log.isDebugEnabled()) {
+                log.debug("Processing file '{}' using linter {}", resource, linter.getClass().getName());
+            }
+            final long linterLoadNanos = resource.loadNanos;
+            final long start = System.nanoTime();
+            linter.process(resource, properties, handler, cancellationToken);
+            t.linterNanos[i] = System.nanoTime() - start - (resource.loadNanos - linterLoadNanos);
+        }
+        t.loadCount = resource.loadCount - loadCount;
+        t.loadNanos = resource.loadNanos - loadNanos;
+        this.timings = t;
+        if (log.isDebugEnabled()) {
+            log.debug("Linted file '{}': {}", resource, t);
+        }
+    }
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.ec4j.core.ResourceProperties;
+import org.ec4j.lint.api.LintEngine.PropertiesResolver;
+
+/**
+ * Keeps linting the files under a directory as they change. The {@link LinterRegistry} and the {@link LintEngine} are
+ * created once and the {@code .editorconfig} properties of the files are cached until some {@code .editorconfig} file
+ * changes. The changes are observed through a {@link WatchService}; bursts of events, such as those caused by
+ * switching branches, are collected until there are no new events for {@link Builder#debounceMillis(long)} and then
+ * linted in a single {@link LintEngine#lint(Path, Iterable, ViolationHandler)} call. Only the changed files are linted
+ * unless some {@code .editorconfig} file has changed or the {@link WatchService} has lost some events.
+ * <p>
+ * {@link #run()} blocks until {@link #close()} is called from another thread.
+ *
+ * @since 2.2.3
+ */
+public class LintWatcher implements Closeable {
+
+    /**
+     * A {@link LintWatcher} builder.
+     */
+    public static class Builder {
+        private long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+        private LintEngine.Builder engine;
+        private ViolationHandler handler;
+        private boolean initialRun = true;
+        private PropertiesResolver propertiesResolver;
+        private Path rootDirectory;
+
+        Builder() {
+            super();
+        }
+
+        /**
+         * @return a new {@link LintWatcher} watching {@link #rootDirectory(Path)}
+         * @throws IOException on I/O problems
+         */
+        public LintWatcher build() throws IOException {
+            final CachingPropertiesResolver cache = new CachingPropertiesResolver(
+                    Objects.requireNonNull(propertiesResolver, "propertiesResolver"));
+            final LintEngine lintEngine = Objects.requireNonNull(engine, "engine").propertiesResolver(cache).build();
+            final LintWatcher result = new LintWatcher(
+                    Objects.requireNonNull(rootDirectory, "rootDirectory").toAbsolutePath().normalize(), lintEngine,
+                    cache, Objects.requireNonNull(handler, "handler"), debounceMillis, initialRun);
+            result.registerAll(result.rootDirectory, null);
+            return result;
+        }
+
+        /**
+         * @param debounceMillis the number of milliseconds without any new events to wait for before linting the
+         *        changed files. The default is {@value LintWatcher#DEFAULT_DEBOUNCE_MILLIS}
+         * @return this {@link Builder}
+         */
+        public Builder debounceMillis(long debounceMillis) {
+            if (debounceMillis < 0) {
+                throw new IllegalArgumentException("debounceMillis must be >= 0; found " + debounceMillis);
+            }
+            this.debounceMillis = debounceMillis;
+            return this;
+        }
+
+        /**
+         * @param engine the {@link LintEngine.Builder} to create the {@link LintEngine} with; its properties resolver
+         *        is replaced by a caching wrapper of {@link #propertiesResolver(PropertiesResolver)}
+         * @return this {@link Builder}
+         */
+        public Builder engine(LintEngine.Builder engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        /**
+         * @param handler the {@link ViolationHandler} to report to; gets a {@link ViolationHandler#startFiles()} and
+         *        {@link ViolationHandler#endFiles()} call for each batch of changed files
+         * @return this {@link Builder}
+         */
+        public Builder handler(ViolationHandler handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        /**
+         * @param initialRun if {@code true} {@link LintWatcher#run()} lints all files before waiting for changes; the
+         *        default is {@code true}
+         * @return this {@link Builder}
+         */
+        public Builder initialRun(boolean initialRun) {
+            this.initialRun = initialRun;
+            return this;
+        }
+
+        /**
+         * @param propertiesResolver the {@link PropertiesResolver} to find the {@code .editorconfig} properties of
+         *        the files with
+         * @return this {@link Builder}
+         */
+        public Builder propertiesResolver(PropertiesResolver propertiesResolver) {
+            this.propertiesResolver = propertiesResolver;
+            return this;
+        }
+
+        /**
+         * @param rootDirectory the directory to watch
+         * @return this {@link Builder}
+         */
+        public Builder rootDirectory(Path rootDirectory) {
+            this.rootDirectory = rootDirectory;
+            return this;
+        }
+    }
+
+    /**
+     * A {@link PropertiesResolver} caching the results of a delegate until {@link #clear()} is called.
+     */
+    static class CachingPropertiesResolver implements PropertiesResolver {
+        private final Map<Path, ResourceProperties> cache = new ConcurrentHashMap<>();
+        private final PropertiesResolver delegate;
+
+        CachingPropertiesResolver(PropertiesResolver delegate) {
+            super();
+            this.delegate = delegate;
+        }
+
+        void clear() {
+            cache.clear();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ResourceProperties resolve(Path file) throws IOException {
+            ResourceProperties result = cache.get(file);
+            if (result == null) {
+                result = delegate.resolve(file);
+                cache.put(file, result);
+            }
+            return result;
+        }
+    }
+
+    /** The default value of {@link Builder#debounceMillis(long)} */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    private static final String EDITORCONFIG = ".editorconfig";
+
+    /** A burst of events is linted after this many debounce periods at the latest */
+    private static final int MAX_DEBOUNCE_PERIODS = 20;
+
+    /**
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** {@code true} if all files need to be linted in the current batch */
+    private boolean all;
+
+    private int batchCount;
+
+    /** The files changed in the current batch, relative to {@link #rootDirectory} */
+    private final TreeSet<Path> changed = new TreeSet<>();
+
+    private final long debounceMillis;
+
+    private final LintEngine engine;
+
+    private final ViolationHandler handler;
+
+    private final boolean initialRun;
+
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+
+    private final CachingPropertiesResolver propertiesResolver;
+
+    private final Path rootDirectory;
+
+    private final WatchService watchService;
+
+    LintWatcher(Path rootDirectory, LintEngine engine, CachingPropertiesResolver propertiesResolver,
+            ViolationHandler handler, long debounceMillis, boolean initialRun) throws IOException {
+        super();
+        this.rootDirectory = rootDirectory;
+        this.engine = engine;
+        this.propertiesResolver = propertiesResolver;
+        this.handler = handler;
+        this.debounceMillis = debounceMillis;
+        this.initialRun = initialRun;
+        this.watchService = rootDirectory.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Stops watching and makes {@link #run()} return.
+     *
+     * @throws IOException on I/O problems
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Adds the events of the given {@link WatchKey} to the current batch.
+     *
+     * @param key the {@link WatchKey} to consume
+     * @throws IOException on I/O problems
+     */
+    private void consume(WatchKey key) throws IOException {
+        final Path dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            final WatchEvent.Kind<?> kind = event.kind();
+            if (kind == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                all = true;
+                continue;
+            }
+            final Path child = dir.resolve((Path) event.context());
+            if (EDITORCONFIG.equals(child.getFileName().toString())) {
+                all = true;
+            } else if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                /* the files might have been created before we started watching the new directory */
+                registerAll(child, changed);
+            } else {
+                changed.add(rootDirectory.relativize(child));
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * @return the number of batches linted so far, including the initial run
+     */
+    public synchronized int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Lints the current batch and resets it.
+     */
+    private void lintBatch() {
+        final Logger log = handler.getLogger();
+        try {
+            if (all) {
+                log.debug("Linting all files under {}", rootDirectory);
+                propertiesResolver.clear();
+                engine.lint(rootDirectory, handler);
+            } else {
+                final List<Path> files = new ArrayList<>(changed.size());
+                for (Path file : changed) {
+                    if (Files.isRegularFile(rootDirectory.resolve(file))) {
+                        files.add(file);
+                    }
+                }
+                if (files.isEmpty()) {
+                    return;
+                }
+                log.debug("Linting {} changed files under {}", files.size(), rootDirectory);
+                engine.lint(rootDirectory, files, handler);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not lint the files under {}: {}", rootDirectory, e.toString());
+        } finally {
+            all = false;
+            changed.clear();
+            synchronized (this) {
+                batchCount++;
+            }
+        }
+    }
+
+    /**
+     * Registers the given directory and all its subdirectories with {@link #watchService}, except for those having no
+     * files to lint according to {@link LinterRegistry#mayLintUnder(Path)}.
+     *
+     * @param start the directory to register
+     * @param files the collection to add the regular files found under {@code start} to or {@code null}
+     * @throws IOException on I/O problems
+     */
+    private void registerAll(Path start, final TreeSet<Path> files) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(rootDirectory) && !engine.getRegistry().mayLintUnder(rootDirectory.relativize(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                final WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (files != null && attrs.isRegularFile()) {
+                    files.add(rootDirectory.relativize(file));
+                    if (EDITORCONFIG.equals(file.getFileName().toString())) {
+                        all = true;
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Lints all files if {@link Builder#initialRun(boolean)} is {@code true} and then keeps linting the changed files
+     * until {@link #close()} is called.
+     *
+     * @throws IOException on I/O problems
+     */
+    public void run() throws IOException {
+        if (initialRun) {
+            all = true;
+            lintBatch();
+        }
+        try {
+            while (true) {
+                consume(watchService.take());
+                /* debounce */
+                final long deadline = System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(debounceMillis * MAX_DEBOUNCE_PERIODS);
+                WatchKey key;
+                while (System.nanoTime() < deadline
+                        && (key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    consume(key);
+                }
+                lintBatch();
+            }
+        } catch (ClosedWatchServiceException e) {
+            /* closed */
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while watching " + rootDirectory);
+        }
+    }
+
+}
@@ -54,4 +54,28 @@ public interface Linter {
      */
     void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
             throws IOException;
+
+    /**
+     * Same as {@link #process(Resource, ResourceProperties, ViolationHandler)} but polling the given
+     * {@link CancellationToken} through {@link CancellationToken#throwIfCancelled()} often enough to abort in a
+     * timely manner. The default implementation ignores the {@code cancellationToken}.
+     *
+     * @param resource
+     *        the {@link Resource} to process
+     * @param properties
+     *        a set of {@code .editorconfig} properties
+     * @param violationHandler
+     *        the {@link ViolationHandler} to report to
+     * @param cancellationToken
+     *        the {@link CancellationToken} to poll
+     * @throws IOException
+     *         on I/O problems
+     * @throws LintCancelledException
+     *         if the {@code cancellationToken} got cancelled
+     * @since 2.2.3
+     */
+    default void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler,
+            CancellationToken cancellationToken) throws IOException {
+        process(resource, properties, violationHandler);
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the linter index generated by {@link LinterIndexProcessor}.
+ * <p>
+ * The index is a UTF-8 text file stored under {@link #RESOURCE}. Each {@link Linter} starts with a line containing its
+ * class name, followed by a line for each default include prefixed with {@code +} and each default exclude prefixed
+ * with {@code -}. Empty lines and lines starting with {@code #} are ignored.
+ *
+ * @since 2.2.3
+ */
+final class LinterIndex {
+
+    /**
+     * An entry of the linter index.
+     */
+    static final class Entry {
+        private final String className;
+        private final List<String> excludes;
+        private final List<String> includes;
+
+        Entry(String className, List<String> includes, List<String> excludes) {
+            super();
+            this.className = className;
+            this.includes = includes;
+            this.excludes = excludes;
+        }
+
+        /**
+         * @return the fully qualified name of the {@link Linter} class
+         */
+        String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return the {@link Linter#getDefaultExcludes()} of the {@link Linter}
+         */
+        List<String> getExcludes() {
+            return excludes;
+        }
+
+        /**
+         * @return the {@link Linter#getDefaultIncludes()} of the {@link Linter}
+         */
+        List<String> getIncludes() {
+            return includes;
+        }
+    }
+
+    /** The path of the index resource */
+    static final String RESOURCE = "META-INF/ec4j/linters.idx";
+
+    /** The path of the {@link java.util.ServiceLoader} provider configuration file for {@link Linter}s */
+    static final String SERVICES_RESOURCE = "META-INF/services/" + Linter.class.getName();
+
+    /**
+     * @param classLoader the {@link ClassLoader} to read the indexes from
+     * @return the {@link Entry}s of all indexes visible to the given {@link ClassLoader} by class name, in the order
+     *         of their appearance
+     * @throws IOException on I/O problems
+     */
+    static Map<String, Entry> load(ClassLoader classLoader) throws IOException {
+        final Map<String, Entry> result = new LinkedHashMap<>();
+        final Enumeration<URL> urls = classLoader.getResources(RESOURCE);
+        while (urls.hasMoreElements()) {
+            final URL url = urls.nextElement();
+            String className = null;
+            List<String> includes = null;
+            List<String> excludes = null;
+            for (String line : readLines(url)) {
+                final char first = line.charAt(0);
+                if (first == '+' || first == '-') {
+                    if (className == null) {
+                        throw new IOException("Glob without a linter class in " + url + ": " + line);
+                    }
+                    (first == '+' ? includes : excludes).add(line.substring(1));
+                } else {
+                    if (className != null) {
+                        result.put(className, new Entry(className, Collections.unmodifiableList(includes),
+                                Collections.unmodifiableList(excludes)));
+                    }
+                    className = line;
+                    includes = new ArrayList<>();
+                    excludes = new ArrayList<>();
+                }
+            }
+            if (className != null) {
+                result.put(className, new Entry(className, Collections.unmodifiableList(includes),
+                        Collections.unmodifiableList(excludes)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param url the resource to read
+     * @return the non-empty lines of the given resource, not starting with {@code #}
+     * @throws IOException on I/O problems
+     */
+    private static List<String> readLines(URL url) throws IOException {
+        final List<String> result = new ArrayList<>();
+        try (InputStream in = url.openStream();
+                BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (!line.isEmpty() && line.charAt(0) != '#') {
+                    result.add(line);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the {@link java.util.ServiceLoader} provider configuration files for {@link Linter}s without loading the
+     * provider classes.
+     *
+     * @param classLoader the {@link ClassLoader} to read the provider configuration files from
+     * @return the provider class names in the order of their appearance
+     * @throws IOException on I/O problems
+     */
+    static Set<String> serviceProviders(ClassLoader classLoader) throws IOException {
+        final Set<String> result = new LinkedHashSet<>();
+        final Enumeration<URL> urls = classLoader.getResources(SERVICES_RESOURCE);
+        while (urls.hasMoreElements()) {
+            for (String line : readLines(urls.nextElement())) {
+                final int hash = line.indexOf('#');
+                final String className = (hash >= 0 ? line.substring(0, hash) : line).trim();
+                if (!className.isEmpty()) {
+                    result.add(className);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param entries the {@link Entry}s to write
+     * @param out where to write the index
+     * @throws IOException on I/O problems
+     */
+    static void write(Iterable<Entry> entries, Writer out) throws IOException {
+        out.write("# Generated by " + LinterIndexProcessor.class.getName() + "\n");
+        for (Entry entry : entries) {
+            out.write(entry.getClassName());
+            out.write('\n');
+            for (String glob : entry.getIncludes()) {
+                out.write('+');
+                out.write(glob);
+                out.write('\n');
+            }
+            for (String glob : entry.getExcludes()) {
+                out.write('-');
+                out.write(glob);
+                out.write('\n');
+            }
+        }
+    }
+
+    private LinterIndex() {
+    }
+
+}
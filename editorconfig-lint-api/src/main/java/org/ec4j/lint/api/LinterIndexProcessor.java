@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes the {@link Linter} classes annotated with {@link IndexedLinter} and their default globs to
+ * {@link LinterIndex#RESOURCE}. Deliberately not registered as a {@link javax.annotation.processing.Processor}
+ * service, so that it does not run in every build having {@code editorconfig-lint-api} on the class path; modules
+ * providing {@link IndexedLinter}s have to name it explicitly, e.g. in the {@code annotationProcessors} of the
+ * {@code maven-compiler-plugin}.
+ *
+ * @since 2.2.3
+ */
+@SupportedAnnotationTypes("org.ec4j.lint.api.IndexedLinter")
+public class LinterIndexProcessor extends AbstractProcessor {
+
+    /** Sorted by class name so that the index does not depend on the order of the sources */
+    private final Map<String, LinterIndex.Entry> entries = new TreeMap<>();
+
+    /** {@inheritDoc} */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * @param element the annotated element
+     * @return {@code true} if the given {@code element} is a class {@link java.util.ServiceLoader} could instantiate
+     *         as a {@link Linter}, otherwise reports an error and returns {@code false}
+     */
+    private boolean isValid(TypeElement element) {
+        final Set<Modifier> modifiers = element.getModifiers();
+        String error = null;
+        if (element.getKind() != ElementKind.CLASS || !modifiers.contains(Modifier.PUBLIC)
+                || modifiers.contains(Modifier.ABSTRACT)
+                || (element.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC))
+                || (element.getNestingKind() != NestingKind.TOP_LEVEL
+                        && element.getNestingKind() != NestingKind.MEMBER)) {
+            error = "must be a public non-abstract top level or static member class";
+        } else if (!processingEnv.getTypeUtils().isAssignable(element.asType(),
+                processingEnv.getElementUtils().getTypeElement(Linter.class.getName()).asType())) {
+            error = "must implement " + Linter.class.getName();
+        } else {
+            error = "must have a public no-arg constructor";
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+                if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                    error = null;
+                    break;
+                }
+            }
+        }
+        if (error != null) {
+            processingEnv.getMessager().printMessage(Kind.ERROR,
+                    "A class annotated with @" + IndexedLinter.class.getSimpleName() + " " + error, element);
+            return false;
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!entries.isEmpty()) {
+                write();
+            }
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(IndexedLinter.class)) {
+            if (element instanceof TypeElement && isValid((TypeElement) element)) {
+                final TypeElement type = (TypeElement) element;
+                final String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+                final IndexedLinter annotation = type.getAnnotation(IndexedLinter.class);
+                entries.put(className, new LinterIndex.Entry(className, Arrays.asList(annotation.includes()),
+                        Arrays.asList(annotation.excludes())));
+            }
+        }
+        return true;
+    }
+
+    private void write() {
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    LinterIndex.RESOURCE);
+            try (Writer out = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                LinterIndex.write(entries.values(), out);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR,
+                    "Could not write " + LinterIndex.RESOURCE + ": " + e.getMessage());
+        }
+    }
+
+}
@@ -16,18 +16,31 @@
  */
 package org.ec4j.lint.api;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.ServiceLoader;
+import java.util.Set;
+
+import org.ec4j.lint.api.GlobTrie.LiteralTable;
+import org.ec4j.lint.api.PathSet.NameRule;
 
 /**
  * A registry for {@link Linter}s.
+ * <p>
+ * If the includes and excludes of all entries depend just on the file name, like {@code **}{@code /*.xml} or
+ * {@code **}{@code /*} do, the registry precomputes the {@link Linter} list for each file name and extension the globs
+ * mention and {@link #filter(Path)} becomes a hash lookup returning a cached list. Otherwise each entry's
+ * {@link PathSet} is evaluated for each file.
+ * <p>
+ * The {@link Linter}s listed in a linter index generated by {@link LinterIndexProcessor} are instantiated only when
+ * {@link #filter(Path)} returns them for the first time.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
@@ -37,7 +50,10 @@ public class LinterRegistry {
      * A {@link LinterRegistry} builder.
      */
     public static class Builder {
+        private LintCache cache;
         private final Map<String, LinterEntry.Builder> entries = new LinkedHashMap<>();
+        private int filterCacheSize = DEFAULT_FILTER_CACHE_SIZE;
+        private final Map<ClassLoader, Map<String, LinterIndex.Entry>> indexes = new HashMap<>();
         private Logger log;
 
         Builder() {
@@ -50,9 +66,20 @@ public class LinterRegistry {
         public LinterRegistry build() {
             Map<String, LinterEntry> useEntries = new LinkedHashMap<>(entries.size());
             for (Map.Entry<String, LinterEntry.Builder> en : entries.entrySet()) {
-                useEntries.put(en.getKey(), en.getValue().build());
+                useEntries.put(en.getKey(), en.getValue().build(cache));
             }
-            return new LinterRegistry(Collections.unmodifiableMap(useEntries), log);
+            return new LinterRegistry(Collections.unmodifiableMap(useEntries), log, filterCacheSize);
+        }
+
+        /**
+         * @param cache the {@link LintCache} to consult before passing a {@link Resource} to a {@link Linter}, or
+         *        {@code null} to process all {@link Resource}s
+         * @return this {@link Builder}
+         * @since 2.2.3
+         */
+        public Builder cache(LintCache cache) {
+            this.cache = cache;
+            return this;
         }
 
         public Builder entry(Linter linter) {
@@ -80,15 +107,10 @@ public class LinterRegistry {
                 String[] excludes, boolean useDefaultIncludesAndExcludes) {
             LinterEntry.Builder en = entries.get(id);
             if (en == null) {
-                try {
-                    @SuppressWarnings("unchecked")
-                    Class<Linter> cl = (Class<Linter>) classLoader.loadClass(linterClass);
-                    Linter linter = cl.newInstance();
-                    en = new LinterEntry.Builder(linter);
-                    entries.put(id, en);
-                } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
-                    throw new RuntimeException("Could not load class " + linterClass, e);
-                }
+                final LinterIndex.Entry indexEntry = index(classLoader).get(linterClass);
+                en = indexEntry != null ? new LinterEntry.Builder(indexEntry, classLoader)
+                        : new LinterEntry.Builder(LinterEntry.newInstance(linterClass, classLoader));
+                entries.put(id, en);
             }
             en.useDefaultIncludesAndExcludes = useDefaultIncludesAndExcludes;
             final PathSet.Builder pathSetBuilder = en.pathSetBuilder;
@@ -97,6 +119,43 @@ public class LinterRegistry {
             return this;
         }
 
+        /**
+         * The results of {@link LinterRegistry#filter(Path)} are cached per directory and file name class, unless the
+         * globs of the entries depend just on the file names, in which case they are indexed up front. Globs using
+         * {@code [}, <code>{</code> or {@code \} as well as file systems not using {@code /} as separator disable the
+         * cache.
+         *
+         * @param filterCacheSize the maximal number of cached {@link LinterRegistry#filter(Path)} results; {@code 0}
+         *        disables the cache; the default is {@value LinterRegistry#DEFAULT_FILTER_CACHE_SIZE}
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code filterCacheSize} is negative
+         * @since 2.2.3
+         */
+        public Builder filterCacheSize(int filterCacheSize) {
+            if (filterCacheSize < 0) {
+                throw new IllegalArgumentException("filterCacheSize must be >= 0; found " + filterCacheSize);
+            }
+            this.filterCacheSize = filterCacheSize;
+            return this;
+        }
+
+        /**
+         * @param classLoader the {@link ClassLoader} to read the linter index from
+         * @return the {@link LinterIndex.Entry}s visible to the given {@link ClassLoader} by class name
+         */
+        private Map<String, LinterIndex.Entry> index(ClassLoader classLoader) {
+            Map<String, LinterIndex.Entry> result = indexes.get(classLoader);
+            if (result == null) {
+                try {
+                    result = LinterIndex.load(classLoader);
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not read " + LinterIndex.RESOURCE, e);
+                }
+                indexes.put(classLoader, result);
+            }
+            return result;
+        }
+
         public Builder log(Logger log) {
             this.log = log;
             return this;
@@ -107,18 +166,67 @@ public class LinterRegistry {
             return this;
         }
 
+        /**
+         * Adds the {@link Linter}s registered as {@link java.util.ServiceLoader} providers. The providers also listed
+         * in the linter indexes generated by {@link LinterIndexProcessor} are not instantiated here but only when
+         * {@link LinterRegistry#filter(Path)} returns them for the first time. Indexed classes that are not registered
+         * as providers are ignored.
+         *
+         * @param classLoader the {@link ClassLoader} to scan
+         * @return this {@link Builder}
+         */
         public Builder scan(ClassLoader classLoader) {
-            final ServiceLoader<Linter> loader = java.util.ServiceLoader.load(Linter.class, classLoader);
-            final Iterator<Linter> it = loader.iterator();
-            while (it.hasNext()) {
-                Linter linter = it.next();
-                entry(linter);
+            final Map<String, LinterIndex.Entry> index = index(classLoader);
+            final Set<String> providers;
+            try {
+                providers = LinterIndex.serviceProviders(classLoader);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read " + LinterIndex.SERVICES_RESOURCE, e);
+            }
+            for (String linterClass : providers) {
+                final LinterIndex.Entry indexEntry = index.get(linterClass);
+                if (indexEntry == null) {
+                    entry(LinterEntry.newInstance(linterClass, classLoader));
+                } else if (!entries.containsKey(linterClass)) {
+                    entries.put(linterClass, new LinterEntry.Builder(indexEntry, classLoader));
+                }
             }
             return this;
         }
 
     }
 
+    /**
+     * An unmodifiable list of the {@link Linter}s of some {@link LinterEntry}s, created on the first {@link #get()}
+     * call.
+     */
+    static final class LazyLinterList {
+        private final LinterEntry[] entries;
+        private volatile List<Linter> linters;
+
+        LazyLinterList(LinterEntry[] entries) {
+            super();
+            this.entries = entries;
+        }
+
+        /**
+         * @return the unmodifiable list of the {@link Linter}s of the {@link LinterEntry}s passed to the constructor
+         */
+        List<Linter> get() {
+            List<Linter> result = linters;
+            if (result == null) {
+                /* concurrent callers may both get here; LinterEntry.getLinter() makes them create equal lists */
+                final List<Linter> list = new ArrayList<>(entries.length);
+                for (LinterEntry entry : entries) {
+                    list.add(entry.getLinter());
+                }
+                result = Collections.unmodifiableList(list);
+                linters = result;
+            }
+            return result;
+        }
+    }
+
     /**
      * A pair consisting of a {@link PathSet} and a {@link Linter}.
      */
@@ -128,6 +236,8 @@ public class LinterRegistry {
          * A {@link LinterEntry} builder.
          */
         public static class Builder {
+            private final ClassLoader classLoader;
+            private final LinterIndex.Entry indexEntry;
             private final Linter linter;
             private final PathSet.Builder pathSetBuilder = new PathSet.Builder();
             private boolean useDefaultIncludesAndExcludes = true;
@@ -135,35 +245,103 @@ public class LinterRegistry {
             Builder(Linter linter) {
                 super();
                 this.linter = linter;
+                this.indexEntry = null;
+                this.classLoader = null;
             }
 
             /**
+             * A {@link Builder} of a {@link LinterEntry} instantiating its {@link Linter} on the first
+             * {@link LinterEntry#getLinter()} call. The class is loaded, though not initialized, right away so that a
+             * stale index fails here rather than in the middle of a lint run.
+             *
+             * @param indexEntry the {@link LinterIndex.Entry} of the {@link Linter}
+             * @param classLoader the {@link ClassLoader} to load the {@link Linter} class from
+             */
+            Builder(LinterIndex.Entry indexEntry, ClassLoader classLoader) {
+                super();
+                final String linterClass = indexEntry.getClassName();
+                try {
+                    Class.forName(linterClass, false, classLoader).asSubclass(Linter.class);
+                } catch (ClassNotFoundException | LinkageError | ClassCastException e) {
+                    throw new RuntimeException("Could not load class " + linterClass, e);
+                }
+                this.linter = null;
+                this.indexEntry = indexEntry;
+                this.classLoader = classLoader;
+            }
+
+            /**
+             * @param cache the {@link LintCache} to wrap the {@link Linter} with or {@code null}
              * @return a new {@link LinterEntry}
              */
-            public LinterEntry build() {
+            public LinterEntry build(LintCache cache) {
                 if (this.useDefaultIncludesAndExcludes) {
-                    pathSetBuilder.includes(linter.getDefaultIncludes());
-                    pathSetBuilder.excludes(linter.getDefaultExcludes());
+                    pathSetBuilder.includes(linter != null ? linter.getDefaultIncludes() : indexEntry.getIncludes());
+                    pathSetBuilder.excludes(linter != null ? linter.getDefaultExcludes() : indexEntry.getExcludes());
+                }
+                if (linter != null) {
+                    return new LinterEntry(cache == null ? linter : cache.wrap(linter), null, null, null,
+                            pathSetBuilder.build());
                 }
-                return new LinterEntry(linter, pathSetBuilder.build());
+                return new LinterEntry(null, indexEntry.getClassName(), classLoader, cache, pathSetBuilder.build());
+            }
+        }
+
+        /**
+         * @param linterClass the fully qualified name of a {@link Linter} class having a public no-arg constructor
+         * @param classLoader the {@link ClassLoader} to load the {@code linterClass} from
+         * @return a new instance of the given {@code linterClass}
+         */
+        static Linter newInstance(String linterClass, ClassLoader classLoader) {
+            try {
+                return classLoader.loadClass(linterClass).asSubclass(Linter.class).getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("Could not load class " + linterClass, e);
             }
         }
 
-        private final Linter linter;
+        private final LintCache cache;
+        private final ClassLoader classLoader;
+        private volatile Linter linter;
+        private final String linterClass;
         private final PathSet pathSet;
 
-        LinterEntry(Linter linter, PathSet pathSet) {
+        /**
+         * @param linter the {@link Linter} or {@code null} if it should be instantiated lazily
+         * @param linterClass the class of the {@link Linter} to instantiate lazily
+         * @param classLoader the {@link ClassLoader} to load the {@code linterClass} from
+         * @param cache the {@link LintCache} to wrap the lazily instantiated {@link Linter} with or {@code null}
+         * @param pathSet the {@link PathSet} whose {@link Path}s should be handled by the {@link Linter}
+         */
+        LinterEntry(Linter linter, String linterClass, ClassLoader classLoader, LintCache cache, PathSet pathSet) {
             super();
             this.linter = linter;
+            this.linterClass = linterClass;
+            this.classLoader = classLoader;
+            this.cache = cache;
             this.pathSet = pathSet;
         }
 
         /**
          * @return the Linter responsible for handling {@link Path}s contained in the {@link PathSet} returned by
-         *         {@link #getPathSet()}
+         *         {@link #getPathSet()}; instantiated on the first call if the entry comes from a linter index
          */
         public Linter getLinter() {
-            return linter;
+            Linter result = linter;
+            if (result == null) {
+                synchronized (this) {
+                    result = linter;
+                    if (result == null) {
+                        result = newInstance(linterClass, classLoader);
+                        if (cache != null) {
+                            result = cache.wrap(result);
+                        }
+                        linter = result;
+                    }
+                }
+            }
+            return result;
         }
 
         /**
@@ -176,19 +354,68 @@ public class LinterRegistry {
 
     }
 
+    /** The default value of {@link Builder#filterCacheSize(int)} */
+    public static final int DEFAULT_FILTER_CACHE_SIZE = 1024;
+
     public static Builder builder() {
         return new Builder();
     }
 
     private final Map<String, LinterEntry> entries;
 
+    /** The {@link Linter}s by the extensions the globs mention or {@code null} if there is no such index */
+    private final LiteralTable<LazyLinterList> extensionIndex;
+
+    /** The cache of {@link #filter(Path)} results or {@code null} if the results are not cached */
+    private final FilterCache filterCache;
+
     private final Logger log;
 
-    LinterRegistry(Map<String, LinterEntry> entries, Logger log) {
+    /** The {@link Linter}s by the file names the globs mention or {@code null} if there is no such index */
+    private final LiteralTable<LazyLinterList> nameIndex;
+
+    /** The {@link Linter}s for the file names and extensions not present in the indexes */
+    private final LazyLinterList otherFiles;
+
+    LinterRegistry(Map<String, LinterEntry> entries, Logger log, int filterCacheSize) {
         super();
         this.entries = entries;
         Objects.requireNonNull(log, "log");
         this.log = log;
+
+        final Set<String> extensions = new HashSet<>();
+        final Set<String> names = new HashSet<>();
+        final List<PathSet> pathSets = new ArrayList<>(entries.size());
+        boolean indexable = true;
+        for (LinterEntry linterEntry : entries.values()) {
+            final NameRule rule = linterEntry.getPathSet().getNameRule();
+            if (rule == null) {
+                indexable = false;
+            } else {
+                rule.keys(extensions, names);
+            }
+            pathSets.add(linterEntry.getPathSet());
+        }
+        if (!indexable) {
+            this.extensionIndex = null;
+            this.nameIndex = null;
+            this.otherFiles = null;
+            this.filterCache = filterCacheSize > 0 ? FilterCache.of(pathSets, filterCacheSize) : null;
+            return;
+        }
+        /* the index makes the filterCache superfluous */
+        this.filterCache = null;
+        this.nameIndex = new LiteralTable<>();
+        for (String name : names) {
+            nameIndex.put(name, filterByName(name));
+        }
+        this.extensionIndex = new LiteralTable<>();
+        /* a name that is not in the nameIndex, has the given extension and no other extension has a rule */
+        final String otherName = "\u0000";
+        for (String extension : extensions) {
+            extensionIndex.put(extension, filterByName(otherName + "." + extension));
+        }
+        this.otherFiles = filterByName(otherName);
     }
 
     /**
@@ -198,6 +425,25 @@ public class LinterRegistry {
      * @return an unmodifiable list of {@link Linter}s
      */
     public List<Linter> filter(Path path) {
+        if (nameIndex != null) {
+            final List<Linter> result = lookup(path);
+            if (result != null) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Found linters {} for file '{}' in the file name index", result, path);
+                }
+                return result;
+            }
+        }
+        final FilterCache.Key key = filterCache == null ? null : filterCache.key(path);
+        if (key != null) {
+            final List<Linter> result = filterCache.get(key);
+            if (result != null) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Found linters {} for file '{}' in the filter cache", result, path);
+                }
+                return result;
+            }
+        }
         log.trace("Filtering linters for file '{}'", path);
         final List<Linter> result = new ArrayList<>(entries.size());
         for (LinterEntry linterEntry : entries.values()) {
@@ -209,6 +455,91 @@ public class LinterRegistry {
                 result.add(linter);
             }
         }
-        return Collections.unmodifiableList(result);
+        final List<Linter> unmodifiable = Collections.unmodifiableList(result);
+        if (key != null) {
+            filterCache.put(key, unmodifiable);
+        }
+        return unmodifiable;
+    }
+
+    /**
+     * @param directory the directory to check, relative like the {@link Path}s passed to {@link #filter(Path)}
+     * @return {@code false} if {@link #filter(Path)} certainly returns an empty list for all {@link Path}s under the
+     *         given {@code directory}, so that a directory walk can skip it; {@code true} otherwise
+     * @since 2.2.3
+     */
+    public boolean mayLintUnder(Path directory) {
+        for (LinterEntry linterEntry : entries.values()) {
+            if (linterEntry.getPathSet().mayContainUnder(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param name a file name
+     * @return the list of the {@link Linter}s whose {@link NameRule}s contain the given {@code name}
+     */
+    private LazyLinterList filterByName(String name) {
+        final List<LinterEntry> result = new ArrayList<>();
+        for (LinterEntry linterEntry : entries.values()) {
+            if (linterEntry.getPathSet().getNameRule().contains(name)) {
+                result.add(linterEntry);
+            }
+        }
+        return new LazyLinterList(result.toArray(new LinterEntry[0]));
+    }
+
+    /**
+     * @param path the {@link Path} to find {@link Linter}s for
+     * @return the cached list of {@link Linter}s from {@link #nameIndex}, {@link #extensionIndex} or
+     *         {@link #otherFiles}, or {@code null} if the given {@link Path} has no file name
+     */
+    private List<Linter> lookup(Path path) {
+        final String s = path.toString();
+        final int len = s.length();
+        final int nameStart = s.lastIndexOf('/') + 1;
+        if (nameStart == len) {
+            return null;
+        }
+        LazyLinterList result = nameIndex.get(s, 0, nameStart, len);
+        if (result == null) {
+            final int dot = s.lastIndexOf('.');
+            if (dot >= nameStart) {
+                result = extensionIndex.get(s, 0, dot + 1, len);
+            }
+        }
+        return (result != null ? result : otherFiles).get();
+    }
+
+    /**
+     * @return the number of {@link #filter(Path)} calls answered from the filter cache; always {@code 0} if the
+     *         results are not cached
+     * @since 2.2.3
+     */
+    public long getFilterCacheHits() {
+        return filterCache == null ? 0 : filterCache.getHits();
+    }
+
+    /**
+     * @return the number of {@link #filter(Path)} calls that had to evaluate the {@link PathSet}s although the results
+     *         are cached; always {@code 0} if the results are not cached
+     * @since 2.2.3
+     */
+    public long getFilterCacheMisses() {
+        return filterCache == null ? 0 : filterCache.getMisses();
+    }
+
+    /**
+     * @return the {@link Linter}s of all entries in the order of their registration
+     * @since 2.2.3
+     */
+    List<Linter> getLinters() {
+        final List<Linter> result = new ArrayList<>(entries.size());
+        for (LinterEntry linterEntry : entries.values()) {
+            result.add(linterEntry.getLinter());
+        }
+        return result;
     }
 }
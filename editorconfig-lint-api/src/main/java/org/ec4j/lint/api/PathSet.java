@@ -23,10 +23,14 @@ import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * A set of {@link Path}s defined by include and exclude globs.
+ * A set of {@link Path}s defined by include and exclude globs. The globs are compiled into a single {@link GlobTrie}
+ * matched in one pass over the path segments.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
@@ -38,22 +42,61 @@ public class PathSet {
     public static class Builder {
 
         private static final FileSystem fileSystem = FileSystems.getDefault();
-        private List<PathMatcher> excludes = new ArrayList<>();
-        private List<PathMatcher> includes = new ArrayList<>();
+        /** {@link GlobTrie} implements the glob semantics of the file systems using {@code /} as separator only */
+        private static final boolean trieCompatible = "/".equals(fileSystem.getSeparator());
+        private List<String> excludes = new ArrayList<>();
+        private List<String> includes = new ArrayList<>();
 
         Builder() {
             super();
         }
 
         /**
+         * Compiles the globs into a single {@link GlobTrie}. Only the globs the {@link GlobTrie} does not support are
+         * kept as separate {@link PathMatcher}s.
+         *
          * @return a new {@link PathSet}
          */
         public PathSet build() {
-            List<PathMatcher> useExcludes = this.excludes;
+            final NameRule nameRule = trieCompatible ? NameRule.of(includes, excludes) : null;
+            final GlobTrie trie = new GlobTrie();
+            boolean trieUsed = false;
+            final Set<String> fileNameGlobs = new LinkedHashSet<>();
+            final List<PathMatcher> useExcludes = new ArrayList<>();
+            for (String glob : this.excludes) {
+                if (trieCompatible && trie.add(glob, GlobTrie.EXCLUDE)) {
+                    trieUsed = true;
+                    addFileNameGlob(glob, fileNameGlobs);
+                } else {
+                    useExcludes.add(fileSystem.getPathMatcher("glob:" + glob));
+                }
+            }
             this.excludes = null;
-            List<PathMatcher> useIncludes = this.includes;
+            final List<PathMatcher> useIncludes = new ArrayList<>();
+            for (String glob : this.includes) {
+                if (trieCompatible && trie.add(glob, GlobTrie.INCLUDE)) {
+                    trieUsed = true;
+                    addFileNameGlob(glob, fileNameGlobs);
+                } else {
+                    useIncludes.add(fileSystem.getPathMatcher("glob:" + glob));
+                }
+            }
             this.includes = null;
-            return new PathSet(Collections.unmodifiableList(useIncludes), Collections.unmodifiableList(useExcludes));
+            final boolean allInTrie = trieCompatible && useExcludes.isEmpty() && useIncludes.isEmpty();
+            return new PathSet(trieUsed ? trie : null, Collections.unmodifiableList(useIncludes),
+                    Collections.unmodifiableList(useExcludes), nameRule,
+                    allInTrie ? Collections.unmodifiableSet(fileNameGlobs) : null);
+        }
+
+        /**
+         * @param glob a glob supported by {@link GlobTrie}
+         * @param fileNameGlobs receives the last segment of the given {@code glob} unless it is {@code **}
+         */
+        private static void addFileNameGlob(String glob, Set<String> fileNameGlobs) {
+            final String lastSegment = glob.substring(glob.lastIndexOf('/') + 1);
+            if (!"**".equals(lastSegment)) {
+                fileNameGlobs.add(lastSegment);
+            }
         }
 
         /**
@@ -64,7 +107,7 @@ public class PathSet {
          * @return this {@link Builder}
          */
         public Builder exclude(String glob) {
-            excludes.add(fileSystem.getPathMatcher("glob:" + glob));
+            excludes.add(glob);
             return this;
         }
 
@@ -78,7 +121,7 @@ public class PathSet {
         public Builder excludes(List<String> globs) {
             if (globs != null) {
                 for (String glob : globs) {
-                    excludes.add(fileSystem.getPathMatcher("glob:" + glob));
+                    excludes.add(glob);
                 }
             }
             return this;
@@ -94,7 +137,7 @@ public class PathSet {
         public Builder excludes(String... globs) {
             if (globs != null) {
                 for (String glob : globs) {
-                    excludes.add(fileSystem.getPathMatcher("glob:" + glob));
+                    excludes.add(glob);
                 }
             }
             return this;
@@ -108,7 +151,7 @@ public class PathSet {
          * @return this {@link Builder}
          */
         public Builder include(String glob) {
-            includes.add(fileSystem.getPathMatcher("glob:" + glob));
+            includes.add(glob);
             return this;
         }
 
@@ -121,7 +164,7 @@ public class PathSet {
          */
         public Builder includes(List<String> globs) {
             for (String glob : globs) {
-                includes.add(fileSystem.getPathMatcher("glob:" + glob));
+                includes.add(glob);
             }
             return this;
         }
@@ -136,7 +179,7 @@ public class PathSet {
         public Builder includes(String... globs) {
             if (globs != null) {
                 for (String glob : globs) {
-                    includes.add(fileSystem.getPathMatcher("glob:" + glob));
+                    includes.add(glob);
                 }
             }
             return this;
@@ -144,6 +187,157 @@ public class PathSet {
 
     }
 
+    /**
+     * The equivalent of a {@link PathSet} whose globs all have the shape {@code **}, {@code **}{@code /*},
+     * {@code **}{@code /*.ext} or {@code **}{@code /name}, so that whether it contains a {@link Path} depends only on
+     * the file name of the {@link Path}. Used by {@link LinterRegistry} to index the {@link Linter}s by file name and
+     * extension.
+     */
+    static final class NameRule {
+        private static final int KIND_ALL = 0;
+        private static final int KIND_EXTENSION = 1;
+        private static final int KIND_NAME = 2;
+
+        /**
+         * @param globs the globs to classify
+         * @param all receives {@code true} if some glob matches all files, at index {@code 0}
+         * @param extensions receives the extensions of the {@code **}{@code /*.ext} globs
+         * @param names receives the names of the {@code **}{@code /name} globs
+         * @return {@code false} if some glob has none of the supported shapes
+         */
+        private static boolean classify(List<String> globs, boolean[] all, Set<String> extensions, Set<String> names) {
+            for (String glob : globs) {
+                switch (kind(glob)) {
+                    case KIND_ALL:
+                        all[0] = true;
+                        break;
+                    case KIND_EXTENSION:
+                        extensions.add(glob.substring("**/*.".length()));
+                        break;
+                    case KIND_NAME:
+                        names.add(glob.substring("**/".length()));
+                        break;
+                    default:
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param name a file name
+         * @return the part of the file name after the last dot or {@code null} if there is no dot
+         */
+        static String extension(String name) {
+            final int dot = name.lastIndexOf('.');
+            return dot >= 0 ? name.substring(dot + 1) : null;
+        }
+
+        private static boolean isLiteral(String s, boolean dotAllowed) {
+            if (s.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < s.length(); i++) {
+                switch (s.charAt(i)) {
+                    case '/':
+                    case '*':
+                    case '?':
+                    case '\\':
+                    case '[':
+                    case ']':
+                    case '{':
+                    case '}':
+                    case ',':
+                        return false;
+                    case '.':
+                        if (!dotAllowed) {
+                            return false;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return true;
+        }
+
+        private static int kind(String glob) {
+            if ("**".equals(glob) || "**/*".equals(glob)) {
+                return KIND_ALL;
+            } else if (glob.startsWith("**/*.") && isLiteral(glob.substring("**/*.".length()), false)) {
+                /* without dots in the extension, "ends with .ext" is the same as "the last dot is followed by ext" */
+                return KIND_EXTENSION;
+            } else if (glob.startsWith("**/") && isLiteral(glob.substring("**/".length()), true)) {
+                return KIND_NAME;
+            }
+            return -1;
+        }
+
+        /**
+         * @param includes the include globs
+         * @param excludes the exclude globs
+         * @return a new {@link NameRule} equivalent to the given globs or {@code null} if some of the globs does not
+         *         depend just on the file name
+         */
+        static NameRule of(List<String> includes, List<String> excludes) {
+            final boolean[] includeAll = new boolean[1];
+            final Set<String> includeExtensions = new HashSet<>();
+            final Set<String> includeNames = new HashSet<>();
+            final boolean[] excludeAll = new boolean[1];
+            final Set<String> excludeExtensions = new HashSet<>();
+            final Set<String> excludeNames = new HashSet<>();
+            if (classify(includes, includeAll, includeExtensions, includeNames)
+                    && classify(excludes, excludeAll, excludeExtensions, excludeNames)) {
+                return new NameRule(includeAll[0], includeExtensions, includeNames, excludeAll[0], excludeExtensions,
+                        excludeNames);
+            }
+            return null;
+        }
+
+        private final Set<String> excludeExtensions;
+        private final boolean excludeAll;
+        private final Set<String> excludeNames;
+        private final Set<String> includeExtensions;
+        private final boolean includeAll;
+        private final Set<String> includeNames;
+
+        NameRule(boolean includeAll, Set<String> includeExtensions, Set<String> includeNames, boolean excludeAll,
+                Set<String> excludeExtensions, Set<String> excludeNames) {
+            super();
+            this.includeAll = includeAll;
+            this.includeExtensions = includeExtensions;
+            this.includeNames = includeNames;
+            this.excludeAll = excludeAll;
+            this.excludeExtensions = excludeExtensions;
+            this.excludeNames = excludeNames;
+        }
+
+        /**
+         * @param name a non-empty file name
+         * @return {@code true} if the {@link PathSet} contains the {@link Path}s having the given file name
+         */
+        boolean contains(String name) {
+            final String extension = extension(name);
+            if (excludeAll || excludeNames.contains(name)
+                    || (extension != null && excludeExtensions.contains(extension))) {
+                return false;
+            }
+            return includeAll || includeNames.contains(name)
+                    || (extension != null && includeExtensions.contains(extension));
+        }
+
+        /**
+         * @param extensions receives all extensions this {@link NameRule} looks at
+         * @param names receives all file names this {@link NameRule} looks at
+         */
+        void keys(Set<String> extensions, Set<String> names) {
+            extensions.addAll(includeExtensions);
+            extensions.addAll(excludeExtensions);
+            names.addAll(includeNames);
+            names.addAll(excludeNames);
+        }
+    }
+
     private static final Path CURRENT_DIR = Paths.get(".");
 
     /**
@@ -162,27 +356,94 @@ public class PathSet {
         return builder().includes(includes).build();
     }
 
+    /** The globs not supported by {@link #trie} */
     private final List<PathMatcher> excludes;
 
+    /**
+     * The last segments of all globs except {@code **} or {@code null} if some glob is not supported by {@link #trie}
+     */
+    private final Set<String> fileNameGlobs;
+
+    /** The globs not supported by {@link #trie} */
     private final List<PathMatcher> includes;
 
-    PathSet(List<PathMatcher> includes, List<PathMatcher> excludes) {
+    /** The equivalent of this {@link PathSet} or {@code null} if it does not depend just on file names */
+    private final NameRule nameRule;
+
+    /** All supported globs or {@code null} if there are none */
+    private final GlobTrie trie;
+
+    PathSet(GlobTrie trie, List<PathMatcher> includes, List<PathMatcher> excludes, NameRule nameRule,
+            Set<String> fileNameGlobs) {
+        this.trie = trie;
+        this.nameRule = nameRule;
+        this.fileNameGlobs = fileNameGlobs;
         this.includes = includes;
         this.excludes = excludes;
     }
 
+    /**
+     * All globs of this {@link PathSet} match the file name of a {@link Path} either with their last segment or with a
+     * trailing {@code **}. Hence two {@link Path}s having the same parent directory and file names matched by the same
+     * subset of the returned globs are either both contained in this {@link PathSet} or none of them is.
+     *
+     * @return the last segments of the globs of this {@link PathSet} except for {@code **} or {@code null} if some of
+     *         the globs is not compiled to a {@link GlobTrie}
+     */
+    Set<String> getFileNameGlobs() {
+        return fileNameGlobs;
+    }
+
+    /**
+     * @return the {@link NameRule} equivalent to this {@link PathSet} or {@code null} if there is none
+     */
+    NameRule getNameRule() {
+        return nameRule;
+    }
+
+    /**
+     * Tells whether a directory walk needs to descend into the given {@code directory}. It does not if an exclude glob
+     * matches all paths under it, like {@code **}{@code /target/**} does for {@code module/target}, or if no include
+     * glob can match any path under it.
+     *
+     * @param directory
+     *        the directory to check, relative like the {@link Path}s passed to {@link #contains(Path)}
+     * @return {@code false} if this {@link PathSet} certainly contains no {@link Path} under the given
+     *         {@code directory}; {@code true} if it may contain some
+     * @since 2.2.3
+     */
+    public boolean mayContainUnder(Path directory) {
+        final int trieMatch = trie == null ? 0 : trie.matchUnder(directory);
+        if ((trieMatch & GlobTrie.EXCLUDE) != 0) {
+            return false;
+        }
+        /* the includes not compiled to the trie cannot be analyzed */
+        return (trieMatch & GlobTrie.INCLUDE) != 0 || !includes.isEmpty();
+    }
+
     /**
      * @param path
      *        the {@link Path} to check
      * @return {@code true} if this {@link PathSet} contains the given {@link Path} or {@code false} otherwise
      */
     public boolean contains(Path path) {
+        final int trieMatch = trie == null ? 0 : trie.match(path);
+        if ((trieMatch & GlobTrie.EXCLUDE) != 0) {
+            return false;
+        }
+        if (excludes.isEmpty() && (includes.isEmpty() || (trieMatch & GlobTrie.INCLUDE) != 0)) {
+            /* the common case: no need to resolve the path */
+            return (trieMatch & GlobTrie.INCLUDE) != 0;
+        }
         path = CURRENT_DIR.resolve(path);
         for (PathMatcher exclude : excludes) {
             if (exclude.matches(path)) {
                 return false;
             }
         }
+        if ((trieMatch & GlobTrie.INCLUDE) != 0) {
+            return true;
+        }
         for (PathMatcher include : includes) {
             if (include.matches(path)) {
                 return true;
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+/**
+ * A {@link TextBuffer} whose edits do not move the text around. The text is described by a sequence of pieces, each of
+ * them referring to a range either of the original text as loaded from the file or of an append-only buffer
+ * collecting all inserted text. An edit thus only splits, shortens or adds pieces.
+ * <p>
+ * The pieces are stored in parallel arrays sorted by their start offset. Edits shift the start offsets of the pieces
+ * after the edited range, which is cheap for series of edits running from the beginning towards the end of the text,
+ * as produced by {@link FormattingHandler}. Sequential access through {@link #charAt(int)} is served from the last
+ * piece accessed without any lookup.
+ *
+ * @since 2.2.3
+ */
+final class PieceTable extends TextBuffer {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The buffer collecting all inserted text */
+    private final StringBuilder added;
+
+    /** The index of the piece accessed last */
+    private int cursor;
+
+    private int length;
+
+    /** The original text; never modified */
+    private final StringBuilder original;
+
+    /** The number of pieces */
+    private int pieceCount;
+
+    /** {@code true} if the piece at the given index refers to {@link #added}, {@code false} for {@link #original} */
+    private boolean[] pieceFromAdded;
+
+    /** The lengths of the pieces, always greater than zero */
+    private int[] pieceLengths;
+
+    /** The start offsets of the pieces in {@link #added} or {@link #original} */
+    private int[] pieceOffsets;
+
+    /** The start offsets of the pieces in the text */
+    private int[] pieceStarts;
+
+    /**
+     * @param original the original text; must not be modified by the caller afterwards
+     */
+    PieceTable(StringBuilder original) {
+        super();
+        this.original = original;
+        this.added = new StringBuilder();
+        this.pieceFromAdded = new boolean[INITIAL_CAPACITY];
+        this.pieceLengths = new int[INITIAL_CAPACITY];
+        this.pieceOffsets = new int[INITIAL_CAPACITY];
+        this.pieceStarts = new int[INITIAL_CAPACITY];
+        this.length = original.length();
+        if (length > 0) {
+            pieceLengths[0] = length;
+            pieceCount = 1;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        final int i = findPiece(index);
+        return source(i).charAt(pieceOffsets[i] + index - pieceStarts[i]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    void delete(int start, int end) {
+        if (start < 0) {
+            throw new StringIndexOutOfBoundsException(start);
+        }
+        if (end > length) {
+            end = length;
+        }
+        if (start > end) {
+            throw new StringIndexOutOfBoundsException();
+        }
+        remove(start, end);
+    }
+
+    /**
+     * Makes room for {@code count} pieces at the given {@code index}.
+     *
+     * @param index the index of the first new piece
+     * @param count the number of new pieces
+     */
+    private void expand(int index, int count) {
+        final int newCount = pieceCount + count;
+        if (newCount > pieceLengths.length) {
+            final int capacity = Math.max(newCount, pieceLengths.length * 2);
+            final boolean[] newFromAdded = new boolean[capacity];
+            final int[] newLengths = new int[capacity];
+            final int[] newOffsets = new int[capacity];
+            final int[] newStarts = new int[capacity];
+            System.arraycopy(pieceFromAdded, 0, newFromAdded, 0, index);
+            System.arraycopy(pieceLengths, 0, newLengths, 0, index);
+            System.arraycopy(pieceOffsets, 0, newOffsets, 0, index);
+            System.arraycopy(pieceStarts, 0, newStarts, 0, index);
+            System.arraycopy(pieceFromAdded, index, newFromAdded, index + count, pieceCount - index);
+            System.arraycopy(pieceLengths, index, newLengths, index + count, pieceCount - index);
+            System.arraycopy(pieceOffsets, index, newOffsets, index + count, pieceCount - index);
+            System.arraycopy(pieceStarts, index, newStarts, index + count, pieceCount - index);
+            pieceFromAdded = newFromAdded;
+            pieceLengths = newLengths;
+            pieceOffsets = newOffsets;
+            pieceStarts = newStarts;
+        } else {
+            System.arraycopy(pieceFromAdded, index, pieceFromAdded, index + count, pieceCount - index);
+            System.arraycopy(pieceLengths, index, pieceLengths, index + count, pieceCount - index);
+            System.arraycopy(pieceOffsets, index, pieceOffsets, index + count, pieceCount - index);
+            System.arraycopy(pieceStarts, index, pieceStarts, index + count, pieceCount - index);
+        }
+        pieceCount = newCount;
+    }
+
+    /**
+     * @param index an offset in the text, must be in the range {@code [0, length)}
+     * @return the index of the piece containing the given {@code index}
+     */
+    private int findPiece(int index) {
+        int i = cursor;
+        if (i < pieceCount && pieceStarts[i] <= index) {
+            if (index < pieceStarts[i] + pieceLengths[i]) {
+                return i;
+            }
+            i++;
+            if (i < pieceCount && index < pieceStarts[i] + pieceLengths[i]) {
+                return cursor = i;
+            }
+        }
+        int low = 0;
+        int high = pieceCount - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (pieceStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return cursor = low;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        if (srcBegin < 0) {
+            throw new StringIndexOutOfBoundsException(srcBegin);
+        }
+        if (srcEnd < 0 || srcEnd > length) {
+            throw new StringIndexOutOfBoundsException(srcEnd);
+        }
+        if (srcBegin > srcEnd) {
+            throw new StringIndexOutOfBoundsException("srcBegin > srcEnd");
+        }
+        if (srcBegin == srcEnd) {
+            return;
+        }
+        int i = findPiece(srcBegin);
+        int pos = srcBegin;
+        while (pos < srcEnd) {
+            final int pieceStart = pieceStarts[i];
+            final int end = Math.min(srcEnd, pieceStart + pieceLengths[i]);
+            final int offset = pieceOffsets[i] - pieceStart;
+            source(i).getChars(offset + pos, offset + end, dst, dstBegin + pos - srcBegin);
+            pos = end;
+            i++;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    void insert(int offset, CharSequence s) {
+        if (s == null) {
+            s = "null";
+        }
+        if (offset < 0 || offset > length) {
+            throw new IndexOutOfBoundsException("dstOffset " + offset);
+        }
+        put(offset, s);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the number of pieces; for testing purposes
+     */
+    int pieceCount() {
+        return pieceCount;
+    }
+
+    /**
+     * Inserts {@code s} at {@code offset} without checking the arguments.
+     */
+    private void put(int offset, CharSequence s) {
+        final int len = s.length();
+        if (len == 0) {
+            return;
+        }
+        final int addedOffset = added.length();
+        added.append(s);
+        int i = split(offset);
+        final int prev = i - 1;
+        if (prev >= 0 && pieceFromAdded[prev] && pieceOffsets[prev] + pieceLengths[prev] == addedOffset) {
+            /* typing-like insertion right after the previous insertion */
+            pieceLengths[prev] += len;
+        } else {
+            expand(i, 1);
+            pieceFromAdded[i] = true;
+            pieceLengths[i] = len;
+            pieceOffsets[i] = addedOffset;
+            pieceStarts[i] = offset;
+            i++;
+        }
+        shiftStarts(i, len);
+        length += len;
+    }
+
+    /**
+     * Removes the range {@code [start, end)} without checking the arguments.
+     */
+    private void remove(int start, int end) {
+        if (start == end) {
+            return;
+        }
+        final int i = split(start);
+        final int j = split(end);
+        System.arraycopy(pieceFromAdded, j, pieceFromAdded, i, pieceCount - j);
+        System.arraycopy(pieceLengths, j, pieceLengths, i, pieceCount - j);
+        System.arraycopy(pieceOffsets, j, pieceOffsets, i, pieceCount - j);
+        System.arraycopy(pieceStarts, j, pieceStarts, i, pieceCount - j);
+        pieceCount -= j - i;
+        shiftStarts(i, start - end);
+        length -= end - start;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    void replace(int start, int end, String str) {
+        if (start < 0) {
+            throw new StringIndexOutOfBoundsException(start);
+        }
+        if (start > length) {
+            throw new StringIndexOutOfBoundsException("start > length()");
+        }
+        if (start > end) {
+            throw new StringIndexOutOfBoundsException("start > end");
+        }
+        if (end > length) {
+            end = length;
+        }
+        remove(start, end);
+        put(start, str);
+    }
+
+    /**
+     * Adds {@code delta} to the start offsets of the pieces at {@code from} and after.
+     */
+    private void shiftStarts(int from, int delta) {
+        final int[] starts = pieceStarts;
+        for (int i = from; i < pieceCount; i++) {
+            starts[i] += delta;
+        }
+    }
+
+    private StringBuilder source(int piece) {
+        return pieceFromAdded[piece] ? added : original;
+    }
+
+    /**
+     * Makes sure that a piece starts at the given {@code offset}.
+     *
+     * @param offset an offset in the range {@code [0, length]}
+     * @return the index of the piece starting at {@code offset} or {@link #pieceCount} if {@code offset} is equal to
+     *         {@link #length}
+     */
+    private int split(int offset) {
+        if (offset == length) {
+            return pieceCount;
+        }
+        final int i = findPiece(offset);
+        final int head = offset - pieceStarts[i];
+        if (head == 0) {
+            return i;
+        }
+        expand(i + 1, 1);
+        final int next = i + 1;
+        pieceFromAdded[next] = pieceFromAdded[i];
+        pieceLengths[next] = pieceLengths[i] - head;
+        pieceOffsets[next] = pieceOffsets[i] + head;
+        pieceStarts[next] = offset;
+        pieceLengths[i] = head;
+        return next;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0) {
+            throw new StringIndexOutOfBoundsException(start);
+        }
+        if (end > length) {
+            throw new StringIndexOutOfBoundsException(end);
+        }
+        if (start > end) {
+            throw new StringIndexOutOfBoundsException(end - start);
+        }
+        final char[] chars = new char[end - start];
+        getChars(start, end, chars, 0);
+        return new String(chars);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        final char[] chars = new char[length];
+        getChars(0, length, chars, 0);
+        return new String(chars);
+    }
+
+}
@@ -17,20 +17,22 @@
 package org.ec4j.lint.api;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.MalformedInputException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Objects;
 
 import org.ec4j.core.Resource.Bom;
 
@@ -41,6 +43,243 @@ import org.ec4j.core.Resource.Bom;
  */
 public class Resource {
 
+    /** The size of the byte and char windows used by {@link #openStreamingReader()} */
+    private static final int STREAMING_WINDOW_SIZE = 64 * 1024;
+
+    /**
+     * Strategies for reading the content of the underlying file.
+     *
+     * @since 2.2.3
+     */
+    public enum LoadMode {
+        /**
+         * Read or map the whole file through a {@link FileChannel}, sizing the buffers from the file length up front
+         * and decoding the bytes in one go through a {@link java.nio.charset.CharsetDecoder} reused by the current
+         * thread. Pure ASCII content of UTF-8, US-ASCII and ISO-8859-1 files bypasses the decoder altogether.
+         */
+        CHANNEL,
+        /**
+         * Like {@link #CHANNEL} but files bigger than 64 KiB are mapped to memory rather than read into a heap buffer.
+         * Note that on some platforms (notably on Windows) a mapped file cannot be overwritten until the mapping is
+         * garbage collected, so this mode is best suited for check-only runs.
+         */
+        MAPPED,
+        /**
+         * Decode through an {@link InputStreamReader} chunk by chunk.
+         */
+        STREAM;
+    }
+
+    /**
+     * Strategies for writing the content back to the underlying file.
+     *
+     * @since 2.2.3
+     */
+    public enum StoreMode {
+        /**
+         * Write to a temporary file in the same directory and rename it over the underlying file. Hence a crash can
+         * never leave a partially written file behind. Note that the renamed file is a new file, so that hard links to
+         * the original file keep pointing to the old content.
+         */
+        ATOMIC,
+        /**
+         * Truncate the underlying file and write the new content to it. Keeps the identity of the file.
+         */
+        IN_PLACE;
+    }
+
+    /**
+     * Settings influencing how a {@link Resource} reads and writes the underlying file.
+     *
+     * @since 2.2.3
+     */
+    public static class Options {
+
+        /**
+         * An {@link Options} builder.
+         */
+        public static class Builder {
+            private ContentClassifier contentClassifier = Constants.DEFAULT_CONTENT_CLASSIFIER;
+            private FsyncBatch fsync;
+            private LoadMode loadMode = LoadMode.CHANNEL;
+            private int pieceTableThreshold = DEFAULT_PIECE_TABLE_THRESHOLD;
+            private StoreMode storeMode = StoreMode.IN_PLACE;
+            private long streamingThreshold = DEFAULT_STREAMING_THRESHOLD;
+
+            Builder() {
+                super();
+            }
+
+            /**
+             * @return new {@link Options}
+             */
+            public Options build() {
+                return new Options(loadMode, pieceTableThreshold, streamingThreshold, storeMode, fsync,
+                        contentClassifier);
+            }
+
+            /**
+             * @param contentClassifier the {@link ContentClassifier} to use in {@link Resource#isBinary()}; if
+             *        {@code null}, all files are regarded as text. The default is
+             *        {@link Constants#DEFAULT_CONTENT_CLASSIFIER}
+             * @return this {@link Builder}
+             */
+            public Builder contentClassifier(ContentClassifier contentClassifier) {
+                this.contentClassifier = contentClassifier;
+                return this;
+            }
+
+            /**
+             * @param fsync if not {@code null}, {@link Resource#store()} forces the content of the stored file to the
+             *        storage device and records the directories that need to be synced in the given
+             *        {@link FsyncBatch}; if {@code null} (the default), syncing is left to the operating system
+             * @return this {@link Builder}
+             */
+            public Builder fsync(FsyncBatch fsync) {
+                this.fsync = fsync;
+                return this;
+            }
+
+            /**
+             * @param loadMode the {@link LoadMode} to use
+             * @return this {@link Builder}
+             */
+            public Builder loadMode(LoadMode loadMode) {
+                this.loadMode = Objects.requireNonNull(loadMode, "loadMode");
+                return this;
+            }
+
+            /**
+             * @param pieceTableThreshold the minimal number of {@code char}s a {@link Resource} must have so that a
+             *        piece table is used rather than a flat {@link StringBuilder} to store its content. Use
+             *        {@code 0} to always use a piece table and {@link Integer#MAX_VALUE} to never use it. The
+             *        default is {@value Options#DEFAULT_PIECE_TABLE_THRESHOLD}
+             * @return this {@link Builder}
+             */
+            public Builder pieceTableThreshold(int pieceTableThreshold) {
+                if (pieceTableThreshold < 0) {
+                    throw new IllegalArgumentException(
+                            "pieceTableThreshold must be >= 0; found " + pieceTableThreshold);
+                }
+                this.pieceTableThreshold = pieceTableThreshold;
+                return this;
+            }
+
+            /**
+             * @param storeMode the {@link StoreMode} to use; the default is {@link StoreMode#IN_PLACE}
+             * @return this {@link Builder}
+             */
+            public Builder storeMode(StoreMode storeMode) {
+                this.storeMode = Objects.requireNonNull(storeMode, "storeMode");
+                return this;
+            }
+
+            /**
+             * @param streamingThreshold the minimal size in bytes of a file so that
+             *        {@link Resource#openStreamingReader()} reads it through a fixed-size window rather than loading
+             *        it to memory as a whole. Use {@link Long#MAX_VALUE} to always load the file. The default is
+             *        {@value Options#DEFAULT_STREAMING_THRESHOLD}
+             * @return this {@link Builder}
+             */
+            public Builder streamingThreshold(long streamingThreshold) {
+                if (streamingThreshold < 0) {
+                    throw new IllegalArgumentException("streamingThreshold must be >= 0; found " + streamingThreshold);
+                }
+                this.streamingThreshold = streamingThreshold;
+                return this;
+            }
+        }
+
+        /** The default value of {@link #getPieceTableThreshold()} */
+        public static final int DEFAULT_PIECE_TABLE_THRESHOLD = 256 * 1024;
+
+        /** The default value of {@link #getStreamingThreshold()} */
+        public static final long DEFAULT_STREAMING_THRESHOLD = 32 * 1024 * 1024;
+
+        /** The {@link Options} used by {@link Resource}s created without passing any explicit {@link Options} */
+        public static final Options DEFAULT = builder().build();
+
+        /**
+         * @return a new {@link Builder}
+         */
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        private final ContentClassifier contentClassifier;
+
+        private final FsyncBatch fsync;
+
+        private final LoadMode loadMode;
+
+        private final int pieceTableThreshold;
+
+        private final StoreMode storeMode;
+
+        private final long streamingThreshold;
+
+        Options(LoadMode loadMode, int pieceTableThreshold, long streamingThreshold, StoreMode storeMode,
+                FsyncBatch fsync, ContentClassifier contentClassifier) {
+            super();
+            this.loadMode = loadMode;
+            this.pieceTableThreshold = pieceTableThreshold;
+            this.streamingThreshold = streamingThreshold;
+            this.storeMode = storeMode;
+            this.fsync = fsync;
+            this.contentClassifier = contentClassifier;
+        }
+
+        /**
+         * @return the {@link ContentClassifier} to use in {@link Resource#isBinary()} or {@code null} if all files
+         *         should be regarded as text
+         */
+        public ContentClassifier getContentClassifier() {
+            return contentClassifier;
+        }
+
+        /**
+         * @return the {@link FsyncBatch} to record the directories to sync in or {@code null} if stored files should
+         *         not be synced at all
+         */
+        public FsyncBatch getFsync() {
+            return fsync;
+        }
+
+        /**
+         * @return the {@link LoadMode} to use when reading the underlying file
+         */
+        public LoadMode getLoadMode() {
+            return loadMode;
+        }
+
+        /**
+         * Edits of a flat {@link StringBuilder} shift the whole tail of the text and thus get expensive for big files
+         * with many formatting violations. A piece table makes the edits independent of the length of the text at
+         * the price of slightly slower random access.
+         *
+         * @return the minimal number of {@code char}s a {@link Resource} must have so that its content is stored in a
+         *         piece table rather than in a flat {@link StringBuilder}
+         */
+        public int getPieceTableThreshold() {
+            return pieceTableThreshold;
+        }
+
+        /**
+         * @return the minimal size in bytes of a file so that {@link Resource#openStreamingReader()} reads it through
+         *         a fixed-size window rather than loading it to memory as a whole
+         */
+        public long getStreamingThreshold() {
+            return streamingThreshold;
+        }
+
+        /**
+         * @return the {@link StoreMode} to use when writing to the underlying file
+         */
+        public StoreMode getStoreMode() {
+            return storeMode;
+        }
+    }
+
     /**
      * A utility for line Number %lt;-&gt; file offset transformations.
      *
@@ -54,7 +293,19 @@ public class Resource {
         static class Builder {
             private static final int[] EMPTY = new int[0];
             private int length = 0;
-            private int[] lineStartOffsets = EMPTY;
+            private int[] lineStartOffsets;
+
+            Builder() {
+                this(EMPTY);
+            }
+
+            /**
+             * @param lineStartOffsets the initial array to store the line starts in
+             */
+            Builder(int[] lineStartOffsets) {
+                super();
+                this.lineStartOffsets = lineStartOffsets;
+            }
 
             /**
              * @return a new {@link LineIndex}
@@ -74,7 +325,7 @@ public class Resource {
              */
             public Builder lineStartOffset(int offset) {
                 if (length >= lineStartOffsets.length) {
-                    final int[] newArr = new int[lineStartOffsets.length + 16];
+                    final int[] newArr = new int[Math.max(16, lineStartOffsets.length * 2)];
                     System.arraycopy(lineStartOffsets, 0, newArr, 0, lineStartOffsets.length);
                     lineStartOffsets = newArr;
                 }
@@ -95,36 +346,61 @@ public class Resource {
          * @return a new {@link LineIndex} for the given {@code text}
          */
         public static LineIndex of(CharSequence text) {
-            final Builder b = new Builder();
+            final BufferArena arena = BufferArena.current();
+            /* a guess good enough for source code so that the array does not need to grow */
+            final Builder b = new Builder(arena.acquireInts(text.length() / 16 + 16));
+            scan(text, 1, text.length(), b);
+            final int[] scratch = b.lineStartOffsets;
+            final LineIndex result = b.build();
+            arena.release(scratch);
+            return result;
+        }
+
+        /**
+         * Adds the line starts found in the given range of {@code text} to the given {@link Builder}. A line starts
+         * after {@code '\n'} and after {@code '\r'} not followed by {@code '\n'}.
+         *
+         * @param text the text to scan
+         * @param from the first offset to check whether a line starts there, must be greater than zero
+         * @param to the last offset to check whether a line starts there, inclusive; may be equal to
+         *        {@code text.length()}
+         * @param b the {@link Builder} to add the line starts to
+         */
+        static void scan(CharSequence text, int from, int to, Builder b) {
             final int len = text.length();
-            Matcher m = EOL_MATCHER.matcher(text);
-            while (m.find()) {
-                int end = m.end();
-                if (end < len) {
-                    switch (text.charAt(end)) {
-                        case '\n':
-                            b.lineStartOffset(end + 1);
-                            break;
-                        case '\r':
-                            end++;
-                            if (end < len && text.charAt(end) == '\n') {
-                                b.lineStartOffset(end + 1);
-                                break;
-                            } else {
-                                b.lineStartOffset(end);
-                                break;
-                            }
-                    }
+            for (int i = from - 1; i < to; i++) {
+                switch (text.charAt(i)) {
+                    case '\n':
+                        b.lineStartOffset(i + 1);
+                        break;
+                    case '\r':
+                        if (i + 1 >= len || text.charAt(i + 1) != '\n') {
+                            b.lineStartOffset(i + 1);
+                        }
+                        break;
+                    default:
+                        break;
                 }
             }
-            return b.build();
         }
 
         /**
          * First line start offset is always zero. The first element in {@link #lineStartOffsets} thus contains the
-         * start offset of the second line.
+         * start offset of the second line. The elements at {@link #pendingFrom} and after are off by
+         * {@link #pendingDelta}, see {@link #lineStart(int)}.
+         */
+        int[] lineStartOffsets;
+
+        /**
+         * The shift not applied yet to the elements of {@link #lineStartOffsets} at {@link #pendingFrom} and after
          */
-        final int[] lineStartOffsets;
+        private int pendingDelta = 0;
+
+        /**
+         * The index of the first element of {@link #lineStartOffsets} that needs to be shifted by {@link #pendingDelta}
+         * or {@link Integer#MAX_VALUE} if there is no pending shift
+         */
+        private int pendingFrom = Integer.MAX_VALUE;
 
         LineIndex(int[] lineStartOffsets) {
             this.lineStartOffsets = lineStartOffsets;
@@ -141,7 +417,7 @@ public class Resource {
                 throw new ArrayIndexOutOfBoundsException(String.format("Cannot access line %d, %s has only %d entries",
                         lineNumber, LineIndex.class.getName(), lineStartOffsets.length + 1));
             } else {
-                return lineStartOffsets[lineNumber - 2];
+                return lineStart(lineNumber - 2);
             }
         }
 
@@ -153,42 +429,212 @@ public class Resource {
             if (offset == 0) {
                 return Location.initial();
             }
+            /* the number of line starts <= offset */
+            int low = 0;
+            int high = lineStartOffsets.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (lineStart(mid) <= offset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return location(low, offset);
+        }
+
+        /**
+         * Transforms multiple offsets to {@link Location}s in a single sweep over the index.
+         *
+         * @param offsets zero based offsets sorted in ascending order
+         * @return an array of {@link Location}s having the same length as {@code offsets}
+         * @throws IllegalArgumentException if {@code offsets} are not sorted
+         * @since 2.2.3
+         */
+        public Location[] findLocations(int[] offsets) {
+            final Location[] result = new Location[offsets.length];
             final int len = lineStartOffsets.length;
-            if (len == 0) {
+            int lineIndex = 0;
+            int previousOffset = Integer.MIN_VALUE;
+            for (int i = 0; i < offsets.length; i++) {
+                final int offset = offsets[i];
+                if (offset < previousOffset) {
+                    throw new IllegalArgumentException(
+                            String.format("offsets must be sorted in ascending order; found %d after %d at index %d",
+                                    offset, previousOffset, i));
+                }
+                previousOffset = offset;
+                while (lineIndex < len && lineStart(lineIndex) <= offset) {
+                    lineIndex++;
+                }
+                result[i] = offset == 0 ? Location.initial() : location(lineIndex, offset);
+            }
+            return result;
+        }
+
+        /**
+         * Applies the pending shift to all elements of {@link #lineStartOffsets}.
+         */
+        private void flush() {
+            if (pendingFrom < lineStartOffsets.length) {
+                shift(pendingFrom, lineStartOffsets.length, pendingDelta);
+            }
+            pendingFrom = Integer.MAX_VALUE;
+            pendingDelta = 0;
+        }
+
+        /**
+         * @param index an index into {@link #lineStartOffsets}
+         * @return the element of {@link #lineStartOffsets} at the given {@code index} with the pending shift applied
+         */
+        private int lineStart(int index) {
+            final int result = lineStartOffsets[index];
+            return index >= pendingFrom ? result + pendingDelta : result;
+        }
+
+        /**
+         * @return {@link #lineStartOffsets} with all pending shifts applied
+         */
+        int[] lineStartOffsets() {
+            flush();
+            return lineStartOffsets;
+        }
+
+        /**
+         * @param lineStartsBefore the number of elements of {@link #lineStartOffsets} lower than or equal to
+         *        {@code offset}
+         * @param offset the zero based offset
+         * @return a new {@link Location}
+         */
+        private Location location(int lineStartsBefore, int offset) {
+            if (lineStartsBefore == 0) {
                 return new Location(1, offset + 1);
+            } else {
+                return new Location(lineStartsBefore + 1, offset - lineStart(lineStartsBefore - 1) + 1);
             }
-            for (int i = 0; i < len; i++) {
-                if (lineStartOffsets[i] == offset) {
-                    return new Location(i + 2, 1);
-                } else if (lineStartOffsets[i] > offset) {
-                    if (i == 0) {
-                        return new Location(1, offset + 1);
-                    } else {
-                        final int column = offset - lineStartOffsets[i - 1] + 1;
-                        return new Location(i + 1, column);
-                    }
+        }
+
+        /**
+         * The number of elements of {@link #lineStartOffsets} lower than the given {@code offset}.
+         *
+         * @param offset the offset to search for
+         * @return an index into {@link #lineStartOffsets}
+         */
+        private int lowerBound(int offset) {
+            int low = 0;
+            int high = lineStartOffsets.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (lineStart(mid) < offset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
                 }
             }
-            final int column = offset - lineStartOffsets[len - 1] + 1;
-            return new Location(len + 1, column);
+            return low;
         }
-    }
 
-    private static final Pattern EOL_MATCHER = Pattern.compile("$", Pattern.MULTILINE);
+        /**
+         * Adds {@code delta} to the elements of {@link #lineStartOffsets} in the range {@code [from, to)}.
+         */
+        private void shift(int from, int to, int delta) {
+            final int[] offsets = lineStartOffsets;
+            for (int i = from; i < to; i++) {
+                offsets[i] += delta;
+            }
+        }
+
+        /**
+         * Updates this {@link LineIndex} in place after the range {@code [start, start + removedLength)} of the
+         * indexed text was replaced by {@code insertedLength} characters. Only the line breaks within and directly
+         * around the edited range are rescanned.
+         * <p>
+         * As long as the number of lines does not change, the line starts after the edited range are not shifted
+         * eagerly. Rather, the shift is recorded and folded into the next edit. Hence a series of edits running from
+         * the beginning towards the end of the text (as produced by {@link FormattingHandler}) costs time
+         * proportional to the number of lines only once, not once per edit.
+         *
+         * @param text the text after the edit
+         * @param start the offset where the edit starts
+         * @param removedLength the number of characters removed at {@code start}
+         * @param insertedLength the number of characters inserted at {@code start}
+         * @since 2.2.3
+         */
+        void update(CharSequence text, int start, int removedLength, int insertedLength) {
+            /*
+             * Whether a line starts at offset p depends only on the characters at p - 1 and p. Hence only the line
+             * starts in [start, start + removedLength] of the old text may have changed
+             */
+            final int from = lowerBound(start);
+            final int to = lowerBound(start + removedLength + 1);
+            final Builder b = new Builder();
+            scan(text, Math.max(start, 1), start + insertedLength, b);
+            final int delta = insertedLength - removedLength;
+            final int[] old = lineStartOffsets;
+            if (from + b.length != to) {
+                /* the number of lines has changed, so the tail needs to be moved anyway */
+                flush();
+                final int[] result = new int[from + b.length + old.length - to];
+                System.arraycopy(old, 0, result, 0, from);
+                System.arraycopy(b.lineStartOffsets, 0, result, from, b.length);
+                for (int i = to, j = from + b.length; i < old.length; i++, j++) {
+                    result[j] = old[i] + delta;
+                }
+                this.lineStartOffsets = result;
+            } else {
+                if (pendingFrom == Integer.MAX_VALUE) {
+                    pendingFrom = to;
+                    pendingDelta = delta;
+                } else if (pendingFrom <= to) {
+                    /* the usual case of edits performed in ascending order */
+                    shift(pendingFrom, to, pendingDelta);
+                    pendingFrom = to;
+                    pendingDelta += delta;
+                } else if (pendingFrom - to <= old.length - pendingFrom) {
+                    shift(to, pendingFrom, delta);
+                    pendingDelta += delta;
+                } else {
+                    flush();
+                    pendingFrom = to;
+                    pendingDelta = delta;
+                }
+                /* the elements in [from, to) are below pendingFrom now */
+                System.arraycopy(b.lineStartOffsets, 0, old, from, b.length);
+            }
+        }
+    }
 
     private final Path absPath;
+
+    /** The result of {@link #isBinary()} or {@code null} if not known yet */
+    private Boolean binary;
+
+    /**
+     * The result of {@link LintCache#contentDigest(Resource)} or {@code null} if not known yet or outdated by an edit
+     * or {@link #store()}
+     */
+    String contentDigest;
     private final Charset encoding;
     /**
-     * The hash code at load time. Can be used to decide if this {@link Resource} was changed since it was loaded.
+     * The edits performed since {@link #text} was loaded. Used to decide if this {@link Resource} was changed since it
+     * was loaded.
      */
-    private int hashCodeLoaded;
+    private final EditJournal journal = new EditJournal();
 
     private LineIndex lineIndex;
 
+    /** The number of times the underlying file was decoded, either to {@link #text} or through a streaming reader */
+    int loadCount;
+
+    /** The time spent decoding the underlying file to {@link #text} in nanoseconds */
+    long loadNanos;
+
+    private final Options options;
+
     private final Path relPath;
 
     /** The content of this {@link Resource} */
-    StringBuilder text;
+    TextBuffer text;
 
     /**
      * @param absPath the absolute path to the underlying file
@@ -197,10 +643,23 @@ public class Resource {
      * @param encoding the {@link Charset} to use when reading from the underlying file
      */
     public Resource(Path absPath, Path relPath, Charset encoding) {
+        this(absPath, relPath, encoding, Options.DEFAULT);
+    }
+
+    /**
+     * @param absPath the absolute path to the underlying file
+     * @param relPath the path to the underlying file relative to the current projects root directory (used for
+     *        reporting only)
+     * @param encoding the {@link Charset} to use when reading from the underlying file
+     * @param options the {@link Options} to use when reading from and writing to the underlying file
+     * @since 2.2.3
+     */
+    public Resource(Path absPath, Path relPath, Charset encoding, Options options) {
         super();
         this.absPath = absPath;
         this.relPath = relPath;
         this.encoding = encoding;
+        this.options = Objects.requireNonNull(options, "options");
     }
 
     /**
@@ -212,9 +671,22 @@ public class Resource {
      * @param text
      */
     public Resource(Path absPath, Path relPath, Charset encoding, String text) {
-        this(absPath, relPath, encoding);
-        this.text = new StringBuilder(text);
-        this.hashCodeLoaded = text.hashCode();
+        this(absPath, relPath, encoding, text, Options.DEFAULT);
+    }
+
+    /**
+     * Primarily for testing.
+     *
+     * @param absPath
+     * @param relPath
+     * @param encoding
+     * @param text
+     * @param options
+     * @since 2.2.3
+     */
+    public Resource(Path absPath, Path relPath, Charset encoding, String text, Options options) {
+        this(absPath, relPath, encoding, options);
+        loaded(new StringBuilder(text));
     }
 
     /**
@@ -222,13 +694,11 @@ public class Resource {
      *         otherwise
      */
     public boolean changed() {
-        final int len = text.length();
-        int hash = 0;
-        for (int i = 0; i < len; i++) {
-            // h = 31 * h + val[i];
-            hash = 31 * hash + text.charAt(i);
+        if (text == null) {
+            /* not loaded at all, e.g. because it was read through openStreamingReader() or skipped by LintCache */
+            return false;
         }
-        return hash != this.hashCodeLoaded;
+        return journal.changed(text);
     }
 
     /**
@@ -251,8 +721,24 @@ public class Resource {
      */
     public void delete(int start, int end) {
         ensureReadSilent();
+        final String removed = removed(start, end);
         text.delete(start, end);
-        invalidateIndex();
+        edited(start, removed, 0);
+    }
+
+    /**
+     * Updates {@link #lineIndex} (if available) and {@link #journal} after an edit of {@link #text}.
+     *
+     * @param start the offset where the edit starts
+     * @param removed the characters removed at {@code start}
+     * @param insertedLength the number of characters inserted at {@code start}
+     */
+    private void edited(int start, String removed, int insertedLength) {
+        contentDigest = null;
+        if (lineIndex != null) {
+            lineIndex.update(text, start, removed.length(), insertedLength);
+        }
+        journal.record(start, removed, insertedLength, text.length());
     }
 
     /**
@@ -272,36 +758,23 @@ public class Resource {
      */
     private void ensureRead() throws IOException {
         if (text == null) {
-            InputStream in = null;
-            Reader r = null;
-            try {
-                in = Bom.skipBom(Files.newInputStream(absPath), encoding);
-                r = new BufferedReader(new InputStreamReader(in, encoding));
-                int hash = 0;
-                StringBuilder sb = new StringBuilder(256);
-                char[] cbuf = new char[8192];
-                int len;
-                while ((len = r.read(cbuf)) >= 0) {
-                    sb.append(cbuf, 0, len);
-                    for (int i = 0; i < len; i++) {
-                        hash = 31 * hash + cbuf[i];
-                    }
-                }
-                this.text = sb;
-                invalidateIndex();
-                this.hashCodeLoaded = hash;
-            } catch (MalformedInputException e) {
-                throw new FormatException("Could not read " + absPath
-                        + ". This may mean that it is a binary file and you should exclude it from editorconfig processing.",
-                        e);
-            } finally {
-                if (r != null) {
-                    r.close();
-                }
-                if (in != null) {
-                    in.close();
-                }
+            final long start = System.nanoTime();
+            switch (options.getLoadMode()) {
+                case CHANNEL:
+                    loaded(TextLoader.load(absPath, encoding, false));
+                    break;
+                case MAPPED:
+                    loaded(TextLoader.load(absPath, encoding, true));
+                    break;
+                case STREAM:
+                    loaded(readStream());
+                    break;
+                default:
+                    throw new IllegalStateException(
+                            "Unexpected " + LoadMode.class.getName() + " " + options.getLoadMode());
             }
+            loadNanos += System.nanoTime() - start;
+            loadCount++;
         }
     }
 
@@ -350,38 +823,31 @@ public class Resource {
      * @return the {@link Location} at the given {@code offset}
      */
     public Location findLocation(int offset) {
-        ensureReadSilent();
-        if (offset == 0) {
-            return Location.initial();
-        }
-        int line = 1;
-        int column = 1;
-        for (int i = 0; i < text.length() && i <= offset; i++) {
-            if (i == offset) {
-                return new Location(line, column);
-            }
-            char ch = text.charAt(i);
-            switch (ch) {
-                case '\r':
-                    if (i + 1 < text.length() && text.charAt(i + 1) == '\n') {
-                        i++;
-                        if (i == offset) {
-                            return new Location(line, column + 1);
-                        }
-                    }
-                    line++;
-                    column = 1;
-                    break;
-                case '\n':
-                    line++;
-                    column = 1;
-                    break;
-                default:
-                    column++;
-                    break;
+        ensureIndexAvailable();
+        return lineIndex.findLocation(Math.min(offset, text.length()));
+    }
+
+    /**
+     * Transforms multiple offsets to {@link Location}s in a single sweep over the line index.
+     *
+     * @param offsets zero based offsets in {@link #text} sorted in ascending order
+     * @return an array of {@link Location}s having the same length as {@code offsets}
+     * @throws IllegalArgumentException if {@code offsets} are not sorted
+     * @since 2.2.3
+     */
+    public Location[] findLocations(int[] offsets) {
+        ensureIndexAvailable();
+        final int len = text.length();
+        int[] useOffsets = offsets;
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] > len) {
+                if (useOffsets == offsets) {
+                    useOffsets = offsets.clone();
+                }
+                useOffsets[i] = len;
             }
         }
-        return new Location(line, column);
+        return lineIndex.findLocations(useOffsets);
     }
 
     /**
@@ -391,6 +857,14 @@ public class Resource {
         return encoding;
     }
 
+    /**
+     * @return the {@link Options} of this {@link Resource}
+     * @since 2.2.3
+     */
+    public Options getOptions() {
+        return options;
+    }
+
     /**
      * @return the absolute {@link Path} to the underlying file
      */
@@ -409,7 +883,7 @@ public class Resource {
     }
 
     /**
-     * @return the internal {@link #text} {@link StringBuilder}
+     * @return the internal {@link #text} buffer
      */
     public CharSequence getTextAsCharSequence() {
         ensureReadSilent();
@@ -435,7 +909,7 @@ public class Resource {
     public void insert(int offset, CharSequence string) {
         ensureReadSilent();
         text.insert(offset, string);
-        invalidateIndex();
+        edited(offset, "", string.length());
     }
 
     /**
@@ -445,6 +919,44 @@ public class Resource {
         this.lineIndex = null;
     }
 
+    /**
+     * Classifies the underlying file using the {@link Options#getContentClassifier()} reading just the first few bytes
+     * of it, so that binary files can be skipped without decoding them to a text buffer. The result is cached.
+     *
+     * @return {@code true} if the underlying file looks like a binary file; {@code false} if it looks like a text
+     *         file, if it does not exist or if there is no {@link ContentClassifier} configured
+     * @throws IOException on I/O problems
+     * @since 2.2.3
+     */
+    public boolean isBinary() throws IOException {
+        if (binary == null) {
+            final ContentClassifier classifier = options.getContentClassifier();
+            if (classifier == null || !Files.isRegularFile(absPath)) {
+                binary = Boolean.FALSE;
+            } else {
+                final ByteBuffer head = ByteBuffer.allocate(classifier.getSniffLength());
+                try (FileChannel channel = FileChannel.open(absPath, StandardOpenOption.READ)) {
+                    while (head.hasRemaining() && channel.read(head) >= 0) {
+                        /* read until the buffer is full or the file ends */
+                    }
+                }
+                ((Buffer) head).flip();
+                TextLoader.skipBomIfPresent(head, encoding);
+                binary = Boolean.valueOf(classifier.isBinary(head, encoding));
+            }
+        }
+        return binary.booleanValue();
+    }
+
+    /**
+     * @return {@code true} if the content of the underlying file was decoded to memory already, so that
+     *         {@link #getTextAsCharSequence()} and {@link #openReader()} do not need to touch the file anymore
+     * @since 2.2.3
+     */
+    public boolean isLoaded() {
+        return text != null;
+    }
+
     /**
      * @return the number of <code>char</code>s in the {@link #text}.
      */
@@ -453,6 +965,18 @@ public class Resource {
         return text.length();
     }
 
+    /**
+     * Sets the freshly read content.
+     *
+     * @param sb the content of the underlying file
+     */
+    private void loaded(StringBuilder sb) {
+        final int len = sb.length();
+        this.text = len >= options.getPieceTableThreshold() ? new PieceTable(sb) : TextBuffer.of(sb);
+        invalidateIndex();
+        journal.reset(len);
+    }
+
     /**
      * @return a new Reader from the underlying file
      * @throws IOException on I/O problems
@@ -462,6 +986,86 @@ public class Resource {
         return LineReader.of(text);
     }
 
+    /**
+     * Opens a {@link Reader} that does not require the whole content of this {@link Resource} to be held in memory.
+     * If the content was read already or if the underlying file is smaller than {@link Options#getStreamingThreshold()}
+     * this is the same as {@link #openReader()}. Otherwise, the underlying file is decoded through a fixed-size window
+     * and the content of this {@link Resource} is not loaded at all.
+     *
+     * @return a new {@link Reader}
+     * @throws IOException on I/O problems
+     * @since 2.2.3
+     */
+    public Reader openStreamingReader() throws IOException {
+        if (text == null) {
+            final FileChannel channel = FileChannel.open(absPath, StandardOpenOption.READ);
+            boolean close = true;
+            try {
+                if (channel.size() >= options.getStreamingThreshold()) {
+                    close = false;
+                    loadCount++;
+                    return new ChannelReader(channel, encoding, STREAMING_WINDOW_SIZE);
+                }
+            } finally {
+                if (close) {
+                    channel.close();
+                }
+            }
+        }
+        return openReader();
+    }
+
+    /**
+     * Read the content of the underlying file through an {@link InputStreamReader}.
+     *
+     * @return the content of the underlying file
+     * @throws IOException
+     */
+    private StringBuilder readStream() throws IOException {
+        InputStream in = null;
+        Reader r = null;
+        try {
+            in = Bom.skipBom(Files.newInputStream(absPath), encoding);
+            r = new BufferedReader(new InputStreamReader(in, encoding));
+            /* most files have about as many chars as bytes */
+            StringBuilder sb = new StringBuilder((int) Math.min(Files.size(absPath) + 16, Integer.MAX_VALUE - 8));
+            final BufferArena arena = BufferArena.current();
+            final char[] cbuf = arena.acquireChars(8192);
+            try {
+                int len;
+                while ((len = r.read(cbuf)) >= 0) {
+                    sb.append(cbuf, 0, len);
+                }
+            } finally {
+                arena.release(cbuf);
+            }
+            return sb;
+        } catch (MalformedInputException e) {
+            throw new FormatException("Could not read " + absPath
+                    + ". This may mean that it is a binary file and you should exclude it from editorconfig processing.",
+                    e);
+        } finally {
+            if (r != null) {
+                r.close();
+            }
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * @param start the start of an edit
+     * @param end the end of an edit
+     * @return the part of {@link #text} an edit from {@code start} to {@code end} would remove or an empty string if
+     *         the bounds are invalid, in which case the edit will throw the appropriate exception itself
+     */
+    private String removed(int start, int end) {
+        final int len = text.length();
+        return start >= 0 && start <= len && start <= end ? text.subSequence(start, Math.min(end, len)).toString()
+                : "";
+    }
+
     /**
      * Replace the subsequence given by {@code start} and {@code end} by the given {@code replacement}.
      *
@@ -471,46 +1075,85 @@ public class Resource {
      */
     public void replace(int start, int end, String replacement) {
         ensureReadSilent();
+        final String removed = removed(start, end);
         text.replace(start, end, replacement);
-        invalidateIndex();
+        edited(start, removed, replacement.length());
     }
 
     /**
-     * Write {@link #text} back to the underlying file.
+     * Write {@link #text} back to the underlying file as specified by {@link Options#getStoreMode()}.
      *
      * @throws IOException
      */
     public void store() throws IOException {
-        OutputStream out = null;
-        Writer w = null;
+        ensureRead();
+        contentDigest = null;
+        final FsyncBatch fsync = options.getFsync();
+        switch (options.getStoreMode()) {
+            case IN_PLACE:
+                try (FileChannel channel = FileChannel.open(absPath, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    TextStorer.write(text, encoding, channel);
+                    if (fsync != null) {
+                        channel.force(false);
+                    }
+                }
+                break;
+            case ATOMIC:
+                storeAtomically(fsync);
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Unexpected " + StoreMode.class.getName() + " " + options.getStoreMode());
+        }
+    }
+
+    /**
+     * Writes {@link #text} to a temporary file in the directory of {@link #absPath} and renames it to
+     * {@link #absPath}.
+     *
+     * @param fsync the {@link FsyncBatch} to use or {@code null}
+     * @throws IOException on I/O problems
+     */
+    private void storeAtomically(FsyncBatch fsync) throws IOException {
+        final Path dir = absPath.toAbsolutePath().getParent();
+        final Path tmp = Files.createTempFile(dir, "." + absPath.getFileName().toString() + ".", ".tmp");
+        boolean moved = false;
         try {
-            out = Bom.writeBom(Files.newOutputStream(absPath), encoding);
-            w = new BufferedWriter(new OutputStreamWriter(out, encoding));
-            char[] cbuf = new char[1024];
-            int len = text.length();
-            int i = 0;
-            while (i < len) {
-                final int srcEnd = Math.min(len, i + cbuf.length);
-                text.getChars(i, srcEnd, cbuf, 0);
-                w.write(cbuf, 0, srcEnd - i);
-                i += srcEnd - i;
+            if (Files.exists(absPath)) {
+                /* Files.createTempFile() creates files readable only by the owner */
+                final PosixFileAttributeView view = Files.getFileAttributeView(absPath, PosixFileAttributeView.class);
+                if (view != null) {
+                    Files.setPosixFilePermissions(tmp, view.readAttributes().permissions());
+                }
             }
-        } finally {
-            if (w != null) {
-                w.close();
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                TextStorer.write(text, encoding, channel);
+                if (fsync != null) {
+                    channel.force(false);
+                }
             }
-            if (out != null) {
-                out.close();
+            try {
+                Files.move(tmp, absPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, absPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+            if (fsync != null) {
+                fsync.add(dir);
+            }
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(tmp);
             }
         }
-
     }
 
     /**
      * @param start the start index, inclusive
      * @param end the end index, exclusive
      *
-     * @return a subsequence in the internal {@link #text} {@link StringBuilder}
+     * @return a subsequence of the internal {@link #text} buffer
      *
      * @throws IndexOutOfBoundsException if <tt>start</tt> or <tt>end</tt> are negative, if <tt>end</tt> is greater than
      *         <tt>length()</tt>, or if <tt>start</tt> is greater than <tt>end</tt>
@@ -526,4 +1169,15 @@ public class Resource {
         return relPath.toString();
     }
 
+    /**
+     * Drops the decoded content unless it was changed, so that it does not occupy memory while this {@link Resource}
+     * is only waiting to be reported. It gets re-read from the underlying file on demand.
+     */
+    void unload() {
+        if (text != null && !changed()) {
+            text = null;
+            invalidateIndex();
+        }
+    }
+
 }
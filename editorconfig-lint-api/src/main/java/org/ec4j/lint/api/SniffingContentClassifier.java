@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A {@link ContentClassifier} regarding a file as binary if its head contains a NUL character or if too many of its
+ * bytes are either not valid in the expected encoding or decode to control characters other than the ones common in
+ * text files (tab, line feed, carriage return, form feed, vertical tab, backspace and escape).
+ *
+ * @since 2.2.3
+ */
+public final class SniffingContentClassifier implements ContentClassifier {
+
+    /**
+     * A {@link SniffingContentClassifier} builder.
+     */
+    public static class Builder {
+        private int maxNonTextPercent = DEFAULT_MAX_NON_TEXT_PERCENT;
+        private int sniffLength = DEFAULT_SNIFF_LENGTH;
+
+        Builder() {
+            super();
+        }
+
+        /**
+         * @return a new {@link SniffingContentClassifier}
+         */
+        public SniffingContentClassifier build() {
+            return new SniffingContentClassifier(sniffLength, maxNonTextPercent);
+        }
+
+        /**
+         * @param maxNonTextPercent the maximal percentage of the inspected bytes that may be invalid in the expected
+         *        encoding or decode to unusual control characters for the file still to be regarded as text. The
+         *        default is {@value SniffingContentClassifier#DEFAULT_MAX_NON_TEXT_PERCENT}
+         * @return this {@link Builder}
+         */
+        public Builder maxNonTextPercent(int maxNonTextPercent) {
+            if (maxNonTextPercent < 0 || maxNonTextPercent > 100) {
+                throw new IllegalArgumentException(
+                        "maxNonTextPercent must be in the range 0 - 100; found " + maxNonTextPercent);
+            }
+            this.maxNonTextPercent = maxNonTextPercent;
+            return this;
+        }
+
+        /**
+         * @param sniffLength the number of bytes to inspect at the beginning of each file. The default is
+         *        {@value SniffingContentClassifier#DEFAULT_SNIFF_LENGTH}
+         * @return this {@link Builder}
+         */
+        public Builder sniffLength(int sniffLength) {
+            if (sniffLength <= 0) {
+                throw new IllegalArgumentException("sniffLength must be > 0; found " + sniffLength);
+            }
+            this.sniffLength = sniffLength;
+            return this;
+        }
+    }
+
+    /** The default value of {@link Builder#maxNonTextPercent(int)} */
+    public static final int DEFAULT_MAX_NON_TEXT_PERCENT = 10;
+
+    /** The default value of {@link #getSniffLength()} */
+    public static final int DEFAULT_SNIFF_LENGTH = 8 * 1024;
+
+    /**
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param c the {@code char} to check
+     * @return {@code true} if {@code c} is a control character unusual in text files
+     */
+    private static boolean isUnusualControl(char c) {
+        if (c >= 0x20) {
+            return false;
+        }
+        switch (c) {
+            case '\b':
+            case '\t':
+            case '\n':
+            case 0x0b:
+            case '\f':
+            case '\r':
+            case 0x1b:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private final int maxNonTextPercent;
+
+    private final int sniffLength;
+
+    SniffingContentClassifier(int sniffLength, int maxNonTextPercent) {
+        super();
+        this.sniffLength = sniffLength;
+        this.maxNonTextPercent = maxNonTextPercent;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getSniffLength() {
+        return sniffLength;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isBinary(ByteBuffer head, Charset encoding) {
+        final int byteCount = head.remaining();
+        if (byteCount == 0) {
+            return false;
+        }
+        final ByteBuffer in = head.duplicate();
+        final CharsetDecoder decoder = encoding.newDecoder() //
+                .onMalformedInput(CodingErrorAction.REPORT) //
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        final CharBuffer out = CharBuffer.allocate(Math.min(byteCount, 4096));
+        final long maxNonText = (long) byteCount * maxNonTextPercent / 100;
+        long nonText = 0;
+        while (true) {
+            /*
+             * endOfInput == false so that a multi-byte sequence cut off at the end of the head does not count as
+             * malformed
+             */
+            final CoderResult cr = decoder.decode(in, out, false);
+            ((Buffer) out).flip();
+            while (out.hasRemaining()) {
+                final char c = out.get();
+                if (c == 0) {
+                    return true;
+                } else if (isUnusualControl(c)) {
+                    nonText++;
+                }
+            }
+            ((Buffer) out).clear();
+            if (cr.isError()) {
+                nonText += cr.length();
+                ((Buffer) in).position(in.position() + cr.length());
+            } else if (cr.isUnderflow()) {
+                break;
+            }
+            if (nonText > maxNonText) {
+                return true;
+            }
+        }
+        return nonText > maxNonText;
+    }
+
+}
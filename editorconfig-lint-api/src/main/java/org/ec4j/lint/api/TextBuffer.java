@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+/**
+ * An editable sequence of {@code char}s backing a {@link Resource}. The edit methods have the same contracts as their
+ * namesakes in {@link StringBuilder}.
+ *
+ * @since 2.2.3
+ */
+abstract class TextBuffer implements CharSequence {
+
+    /**
+     * A {@link TextBuffer} delegating to a {@link StringBuilder}. Edits shift the tail of the buffer and are thus
+     * proportional to the length of the text.
+     */
+    static final class StringBuilderBuffer extends TextBuffer {
+        private final StringBuilder text;
+
+        StringBuilderBuffer(StringBuilder text) {
+            super();
+            this.text = text;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        void delete(int start, int end) {
+            text.delete(start, end);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+            text.getChars(srcBegin, srcEnd, dst, dstBegin);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        void insert(int offset, CharSequence s) {
+            text.insert(offset, s);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        void replace(int start, int end, String str) {
+            text.replace(start, end, str);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    /**
+     * @param text the {@link StringBuilder} to wrap
+     * @return a new {@link TextBuffer} delegating to the given {@link StringBuilder}
+     */
+    static TextBuffer of(StringBuilder text) {
+        return new StringBuilderBuffer(text);
+    }
+
+    /**
+     * Removes the {@code char}s in the range {@code [start, end)}.
+     *
+     * @param start the beginning index, inclusive
+     * @param end the ending index, exclusive; values greater than {@link #length()} are treated as {@link #length()}
+     * @throws StringIndexOutOfBoundsException if {@code start} is negative, greater than {@link #length()}, or greater
+     *         than {@code end}
+     */
+    abstract void delete(int start, int end);
+
+    /**
+     * Copies the {@code char}s in the range {@code [srcBegin, srcEnd)} to {@code dst}.
+     *
+     * @param srcBegin start copying at this offset
+     * @param srcEnd stop copying at this offset
+     * @param dst the array to copy the data into
+     * @param dstBegin offset into {@code dst}
+     * @throws IndexOutOfBoundsException if any of the indices is out of range
+     */
+    abstract void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin);
+
+    /**
+     * Inserts the given {@link CharSequence} at the given {@code offset}.
+     *
+     * @param offset the offset
+     * @param s the sequence to insert
+     * @throws IndexOutOfBoundsException if {@code offset} is invalid
+     */
+    abstract void insert(int offset, CharSequence s);
+
+    /**
+     * Replaces the {@code char}s in the range {@code [start, end)} with the given {@link String}.
+     *
+     * @param start the beginning index, inclusive
+     * @param end the ending index, exclusive; values greater than {@link #length()} are treated as {@link #length()}
+     * @param str the replacement
+     * @throws StringIndexOutOfBoundsException if {@code start} is negative, greater than {@link #length()}, or greater
+     *         than {@code end}
+     */
+    abstract void replace(int start, int end, String str);
+
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ec4j.core.Resource.Bom;
+
+/**
+ * Reads whole files through a {@link FileChannel} and decodes them in one go. Used by {@link Resource} in
+ * {@link Resource.LoadMode#CHANNEL} and {@link Resource.LoadMode#MAPPED} modes.
+ * <p>
+ * The byte buffer is sized from the file length up front. The {@link CharsetDecoder}s are cached per thread and
+ * {@link Charset}. Pure ASCII content in ASCII compatible encodings is inflated to {@code char}s directly, without
+ * going through the decoder at all.
+ *
+ * @since 2.2.3
+ */
+final class TextLoader {
+
+    /** Files smaller than this are read to a heap buffer also in {@link Resource.LoadMode#MAPPED} mode */
+    static final int MAP_THRESHOLD = 64 * 1024;
+
+    private static final Map<Charset, byte[]> BOMS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Map<Charset, CharsetDecoder>> DECODERS = //
+            new ThreadLocal<Map<Charset, CharsetDecoder>>() {
+                @Override
+                protected Map<Charset, CharsetDecoder> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
+    private static final byte[] NO_BOM = new byte[0];
+
+    /**
+     * @param encoding the {@link Charset} to find the Byte Order Mark for
+     * @return the Byte Order Mark bytes {@link Bom} would write for the given {@code encoding}, possibly an empty array
+     */
+    static byte[] bomBytes(Charset encoding) {
+        byte[] result = BOMS.get(encoding);
+        if (result == null) {
+            try {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream(4);
+                Bom.writeBom(out, encoding);
+                result = out.size() == 0 ? NO_BOM : out.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            BOMS.put(encoding, result);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the remaining bytes of the given {@link ByteBuffer}.
+     *
+     * @param bytes the bytes to decode
+     * @param encoding the {@link Charset} to use
+     * @return a new {@link StringBuilder} containing the decoded text
+     * @throws CharacterCodingException never in practice because the decoders replace malformed input
+     */
+    static StringBuilder decode(ByteBuffer bytes, Charset encoding) throws CharacterCodingException {
+        final CharsetDecoder decoder = decoder(encoding);
+        final int byteCount = bytes.remaining();
+        final BufferArena arena = BufferArena.current();
+        char[] chars = arena.acquireChars((int) Math.min(Integer.MAX_VALUE - 8,
+                (long) Math.ceil(byteCount * (double) decoder.maxCharsPerByte())));
+        int charCount = 0;
+        if (isAsciiCompatible(decoder.charset())) {
+            charCount = inflateAscii(bytes, chars);
+        }
+        if (bytes.hasRemaining()) {
+            CharBuffer out = CharBuffer.wrap(chars);
+            ((Buffer) out).position(charCount);
+            decoder.reset();
+            while (true) {
+                CoderResult cr = bytes.hasRemaining() ? decoder.decode(bytes, out, true) : CoderResult.UNDERFLOW;
+                if (cr.isUnderflow()) {
+                    cr = decoder.flush(out);
+                }
+                if (cr.isUnderflow()) {
+                    break;
+                } else if (cr.isOverflow()) {
+                    final char[] newChars = new char[2 * chars.length + 16];
+                    System.arraycopy(chars, 0, newChars, 0, out.position());
+                    final int pos = out.position();
+                    chars = newChars;
+                    out = CharBuffer.wrap(chars);
+                    ((Buffer) out).position(pos);
+                } else {
+                    cr.throwException();
+                }
+            }
+            charCount = out.position();
+        }
+        final StringBuilder result = new StringBuilder(charCount);
+        result.append(chars, 0, charCount);
+        arena.release(chars);
+        return result;
+    }
+
+    /**
+     * @param encoding the {@link Charset} to get a decoder for
+     * @return a {@link CharsetDecoder} owned by the current thread, replacing malformed and unmappable input just like
+     *         {@link java.io.InputStreamReader} does
+     */
+    static CharsetDecoder decoder(Charset encoding) {
+        final Map<Charset, CharsetDecoder> decoders = DECODERS.get();
+        CharsetDecoder result = decoders.get(encoding);
+        if (result == null) {
+            result = encoding.newDecoder() //
+                    .onMalformedInput(CodingErrorAction.REPLACE) //
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            decoders.put(encoding, result);
+        }
+        return result;
+    }
+
+    /**
+     * Copies the leading ASCII bytes of {@code bytes} to {@code chars} and stops at the first non-ASCII byte.
+     *
+     * @param bytes the source
+     * @param chars the destination
+     * @return the number of {@code char}s written to {@code chars}
+     */
+    private static int inflateAscii(ByteBuffer bytes, char[] chars) {
+        final int start = bytes.position();
+        final int end = bytes.limit();
+        int i = start;
+        if (bytes.hasArray()) {
+            final byte[] src = bytes.array();
+            final int offset = bytes.arrayOffset();
+            for (; i < end; i++) {
+                final byte b = src[offset + i];
+                if (b < 0) {
+                    break;
+                }
+                chars[i - start] = (char) b;
+            }
+        } else {
+            for (; i < end; i++) {
+                final byte b = bytes.get(i);
+                if (b < 0) {
+                    break;
+                }
+                chars[i - start] = (char) b;
+            }
+        }
+        ((Buffer) bytes).position(i);
+        return i - start;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        return StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset)
+                || StandardCharsets.ISO_8859_1.equals(charset);
+    }
+
+    /**
+     * Reads and decodes the given file.
+     *
+     * @param path the file to read
+     * @param encoding the {@link Charset} to use for decoding
+     * @param map if {@code true} files bigger than {@link #MAP_THRESHOLD} will be mapped to memory rather than read
+     *        into a heap buffer
+     * @return a new {@link StringBuilder} containing the decoded content of the given file
+     * @throws IOException on I/O problems
+     */
+    static StringBuilder load(Path path, Charset encoding, boolean map) throws IOException {
+        final ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new FormatException("Could not read " + path + ": files bigger than " + (Integer.MAX_VALUE - 8)
+                        + " bytes are not supported");
+            }
+            if (map && size >= MAP_THRESHOLD) {
+                bytes = channel.map(MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = readFully(channel, (int) size);
+            }
+        }
+        try {
+            skipBom(bytes, encoding);
+            return decode(bytes, encoding);
+        } finally {
+            BufferArena.current().release(bytes);
+        }
+    }
+
+    /**
+     * Reads the given {@link FileChannel} until its end.
+     *
+     * @param channel the {@link FileChannel} to read
+     * @param expectedSize the expected number of bytes; the buffer grows if more is available
+     * @return a flipped {@link ByteBuffer} obtained from {@link BufferArena#current()}
+     * @throws IOException on I/O problems
+     */
+    private static ByteBuffer readFully(FileChannel channel, int expectedSize) throws IOException {
+        /* one spare byte so that we detect the end of the file in a single pass */
+        final BufferArena arena = BufferArena.current();
+        ByteBuffer result = arena.acquireBytes(expectedSize + 1);
+        while (channel.read(result) >= 0) {
+            if (!result.hasRemaining()) {
+                final ByteBuffer newBuffer = arena.acquireBytes(result.capacity() * 2);
+                ((Buffer) result).flip();
+                newBuffer.put(result);
+                arena.release(result);
+                result = newBuffer;
+            }
+        }
+        ((Buffer) result).flip();
+        return result;
+    }
+
+    /**
+     * Moves the position of the given {@link ByteBuffer} past the Byte Order Mark expected for the given
+     * {@code encoding}. Fails the same way as {@link Bom#skipBom(java.io.InputStream, Charset)} if the BOM is
+     * required but not available.
+     *
+     * @param bytes the bytes to check
+     * @param encoding the encoding that may require a BOM
+     * @throws IOException on I/O problems
+     */
+    static void skipBom(ByteBuffer bytes, Charset encoding) throws IOException {
+        final byte[] bom = bomBytes(encoding);
+        if (bom.length > 0 && bytes.hasRemaining()) {
+            final int start = bytes.position();
+            boolean matches = bytes.remaining() >= bom.length;
+            for (int i = 0; matches && i < bom.length; i++) {
+                matches = bytes.get(start + i) == bom[i];
+            }
+            if (!matches) {
+                final byte[] head = new byte[Math.min(bom.length, bytes.remaining())];
+                bytes.get(head);
+                /* let Bom produce the error message */
+                Bom.skipBom(new ByteArrayInputStream(head), encoding);
+                throw new IllegalStateException("Expected " + encoding + " content to start with a Byte Order Mark");
+            }
+            ((Buffer) bytes).position(start + bom.length);
+        }
+    }
+
+    /**
+     * Moves the position of the given {@link ByteBuffer} past the Byte Order Mark expected for the given
+     * {@code encoding} if the bytes start with it. Unlike {@link #skipBom(ByteBuffer, Charset)} does not fail if the
+     * BOM is not there.
+     *
+     * @param bytes the bytes to check
+     * @param encoding the encoding that may require a BOM
+     */
+    static void skipBomIfPresent(ByteBuffer bytes, Charset encoding) {
+        final byte[] bom = bomBytes(encoding);
+        final int start = bytes.position();
+        if (bom.length == 0 || bytes.remaining() < bom.length) {
+            return;
+        }
+        for (int i = 0; i < bom.length; i++) {
+            if (bytes.get(start + i) != bom[i]) {
+                return;
+            }
+        }
+        ((Buffer) bytes).position(start + bom.length);
+    }
+
+    private TextLoader() {
+    }
+
+}
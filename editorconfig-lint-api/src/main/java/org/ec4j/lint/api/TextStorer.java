@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes a {@link TextBuffer} straight into a {@link WritableByteChannel} in big chunks. Used by
+ * {@link Resource#store()}.
+ *
+ * @since 2.2.3
+ */
+final class TextStorer {
+
+    /** The size of the char and byte chunks */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Writes all remaining bytes of the given {@link ByteBuffer} and clears it.
+     */
+    private static void drain(ByteBuffer bytes, WritableByteChannel channel) throws IOException {
+        ((Buffer) bytes).flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        ((Buffer) bytes).clear();
+    }
+
+    /**
+     * Encodes the given {@code text} and writes it to the given {@code channel}, prepending the Byte Order Mark
+     * required by {@code encoding}, if any. Malformed and unmappable input is replaced the same way as
+     * {@link java.io.OutputStreamWriter} does.
+     *
+     * @param text the text to write
+     * @param encoding the {@link Charset} to use
+     * @param channel the {@link WritableByteChannel} to write to
+     * @throws IOException on I/O problems
+     */
+    static void write(TextBuffer text, Charset encoding, WritableByteChannel channel) throws IOException {
+        final CharsetEncoder encoder = encoding.newEncoder() //
+                .onMalformedInput(CodingErrorAction.REPLACE) //
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final BufferArena arena = BufferArena.current();
+        final ByteBuffer bytes = arena.acquireBytes(CHUNK_SIZE);
+        final char[] chars = arena.acquireChars(CHUNK_SIZE);
+        try {
+            bytes.put(TextLoader.bomBytes(encoding));
+            final CharBuffer in = CharBuffer.wrap(chars);
+            ((Buffer) in).flip();
+            final int len = text.length();
+            int pos = 0;
+            boolean endOfInput;
+            do {
+                /* keep the unconsumed chars, such as a high surrogate at the end of the previous chunk */
+                in.compact();
+                final int count = Math.min(in.remaining(), len - pos);
+                text.getChars(pos, pos + count, chars, in.position());
+                ((Buffer) in).position(in.position() + count);
+                ((Buffer) in).flip();
+                pos += count;
+                endOfInput = pos >= len;
+                CoderResult cr;
+                while ((cr = encoder.encode(in, bytes, endOfInput)).isOverflow()) {
+                    drain(bytes, channel);
+                }
+                if (cr.isError()) {
+                    cr.throwException();
+                }
+            } while (!endOfInput);
+            while (encoder.flush(bytes).isOverflow()) {
+                drain(bytes, channel);
+            }
+            drain(bytes, channel);
+        } finally {
+            arena.release(chars);
+            arena.release(bytes);
+        }
+    }
+
+    private TextStorer() {
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the {@link ExecutorService}s for {@link LintEngine.ExecutionMode#VIRTUAL_THREADS}. This is the Java 21+
+ * variant packaged under {@code META-INF/versions/21} of the multi-release jar.
+ *
+ * @since 2.2.3
+ */
+final class LintExecutors {
+
+    /**
+     * @return {@code true} if {@link #newPerFileExecutor(int)} runs each task in a new virtual thread; {@code false}
+     *         otherwise
+     */
+    static boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     * @param maxOpenFiles the maximal number of files open at once; not needed here because {@link LintEngine} limits
+     *        the open files itself
+     * @return a new {@link ExecutorService} starting a new virtual thread for each task
+     */
+    static ExecutorService newPerFileExecutor(int maxOpenFiles) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ec4j-lint-", 0).factory());
+    }
+
+    private LintExecutors() {
+    }
+
+}
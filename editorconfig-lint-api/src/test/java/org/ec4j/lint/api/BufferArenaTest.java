@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BufferArenaTest {
+
+    @Test
+    public void attach() {
+        final BufferArena arena = new BufferArena();
+        BufferArena.attach(arena);
+        try {
+            Assert.assertSame(arena, BufferArena.current());
+        } finally {
+            BufferArena.attach(null);
+        }
+        Assert.assertNotSame(arena, BufferArena.current());
+    }
+
+    @Test
+    public void bestFit() {
+        final BufferArena arena = new BufferArena();
+        final char[] big = arena.acquireChars(1000);
+        final char[] small = arena.acquireChars(100);
+        arena.release(big);
+        arena.release(small);
+        Assert.assertSame(small, arena.acquireChars(50));
+        Assert.assertSame(big, arena.acquireChars(50));
+    }
+
+    @Test
+    public void bytes() {
+        final BufferArena arena = new BufferArena();
+        final ByteBuffer buffer = arena.acquireBytes(16);
+        buffer.put((byte) 1).flip();
+        arena.release(buffer);
+        final ByteBuffer reused = arena.acquireBytes(8);
+        Assert.assertSame(buffer, reused);
+        Assert.assertEquals(0, reused.position());
+        Assert.assertEquals(reused.capacity(), reused.limit());
+
+        /* direct and read-only buffers are not pooled */
+        arena.release(ByteBuffer.allocateDirect(16));
+        arena.release(ByteBuffer.allocate(16).asReadOnlyBuffer());
+        final long misses = arena.misses;
+        arena.acquireBytes(16);
+        Assert.assertEquals(misses + 1, arena.misses);
+    }
+
+    @Test
+    public void doubleRelease() {
+        final BufferArena arena = new BufferArena();
+        final char[] chars = arena.acquireChars(10);
+        arena.release(chars);
+        arena.release(chars);
+        Assert.assertSame(chars, arena.acquireChars(10));
+        Assert.assertNotSame(chars, arena.acquireChars(10));
+
+        final int[] ints = arena.acquireInts(10);
+        arena.release(ints);
+        arena.release(ints);
+        Assert.assertSame(ints, arena.acquireInts(10));
+        Assert.assertNotSame(ints, arena.acquireInts(10));
+
+        final ByteBuffer bytes = arena.acquireBytes(10);
+        arena.release(bytes);
+        arena.release(bytes);
+        Assert.assertSame(bytes, arena.acquireBytes(10));
+        Assert.assertNotSame(bytes, arena.acquireBytes(10));
+    }
+
+    @Test
+    public void limits() {
+        final BufferArena arena = new BufferArena();
+        arena.release(new int[BufferArena.MAX_POOLED_LENGTH + 1]);
+        final long misses = arena.misses;
+        arena.acquireInts(1);
+        Assert.assertEquals(misses + 1, arena.misses);
+
+        for (int i = 0; i <= BufferArena.MAX_POOLED; i++) {
+            arena.release(new int[i + 1]);
+        }
+        /* the smallest one was dropped */
+        Assert.assertEquals(2, arena.acquireInts(1).length);
+    }
+
+    @Test
+    public void nested() {
+        final BufferArena arena = new BufferArena();
+        final int[] a = arena.acquireInts(10);
+        final int[] b = arena.acquireInts(10);
+        Assert.assertNotSame(a, b);
+        arena.release(a);
+        arena.release(b);
+        final int[] c = arena.acquireInts(10);
+        final int[] d = arena.acquireInts(10);
+        Assert.assertNotSame(c, d);
+        Assert.assertEquals(2, arena.misses);
+    }
+
+    @Test
+    public void resourceLifeCycleReusesBuffers() throws IOException {
+        final Path path = Paths.get("target/buffer-arena-" + UUID.randomUUID().toString().replace("-", "") + ".txt");
+        Files.createDirectories(path.getParent());
+        Files.write(path, "hello\nworld\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            final BufferArena arena = BufferArena.current();
+            for (int i = 0; i < 2; i++) {
+                final Resource resource = new Resource(path, path, StandardCharsets.UTF_8);
+                Assert.assertEquals(6, resource.findLineStart(2));
+                resource.replace(0, 1, "H");
+                resource.store();
+            }
+            final long misses = arena.misses;
+            final Resource resource = new Resource(path, path, StandardCharsets.UTF_8);
+            Assert.assertEquals(6, resource.findLineStart(2));
+            resource.replace(0, 1, "h");
+            resource.store();
+            Assert.assertEquals(misses, arena.misses);
+            Assert.assertEquals("hello\nworld\n", new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+}
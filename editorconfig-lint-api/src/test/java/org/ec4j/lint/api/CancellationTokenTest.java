@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CancellationTokenTest {
+
+    @Test
+    public void cancel() {
+        final CancellationToken parent = CancellationToken.create();
+        final CancellationToken child = parent.withTimeout(1, TimeUnit.HOURS);
+        Assert.assertFalse(child.isCancelled());
+        child.throwIfCancelled();
+        parent.cancel();
+        Assert.assertTrue(child.isCancelled());
+        Assert.assertFalse(child.isTimedOut());
+        try {
+            child.throwIfCancelled();
+            Assert.fail("LintCancelledException expected");
+        } catch (LintCancelledException expected) {
+            Assert.assertFalse(expected.isTimeout());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void none() {
+        CancellationToken.NONE.cancel();
+    }
+
+    @Test
+    public void timeout() throws InterruptedException {
+        final CancellationToken token = CancellationToken.NONE.withTimeout(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(5);
+        Assert.assertTrue(token.isCancelled());
+        Assert.assertTrue(token.isTimedOut());
+        try {
+            token.throwIfCancelled();
+            Assert.fail("LintCancelledException expected");
+        } catch (LintCancelledException expected) {
+            Assert.assertTrue(expected.isTimeout());
+        }
+    }
+
+}
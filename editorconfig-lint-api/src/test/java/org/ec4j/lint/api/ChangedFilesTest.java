@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.ec4j.lint.api.LintEngineTest.BadLinter;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangedFilesTest {
+
+    private Path dir;
+
+    private LinterRegistry registry = LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter()).build();
+
+    @Before
+    public void before() throws IOException {
+        dir = Paths.get("target/changed-files-" + UUID.randomUUID().toString().replace("-", ""));
+        write("a.txt", "good\n");
+        write("b.txt", "bad\n");
+        write("c.skip", "bad\n");
+        write("sub/d.txt", "good\n");
+        write(".editorconfig", "root = true\n");
+    }
+
+    private ChangedFiles changedFiles() throws IOException {
+        return ChangedFiles.builder().registry(registry).indexFile(Paths.get(dir + ".index")).build();
+    }
+
+    private List<Path> lintIncrementally() throws IOException {
+        try (ChangedFiles changedFiles = changedFiles()) {
+            final List<Path> result = changedFiles.fromIndex(dir);
+            LintEngine.builder().registry(registry).propertiesResolver(LintEngineTest.LF).build().lint(dir, result,
+                    changedFiles.record(new ViolationCollector(false, "", Logger.NO_OP)));
+            return result;
+        }
+    }
+
+    @Test
+    public void fromIndex() throws IOException {
+        final List<Path> all = paths(".editorconfig", "a.txt", "b.txt", "sub/d.txt");
+        Assert.assertEquals(all, lintIncrementally());
+        /* b.txt has violations so it is linted again */
+        Assert.assertEquals(paths("b.txt"), lintIncrementally());
+
+        write("sub/d.txt", "good good\n");
+        Assert.assertEquals(paths("b.txt", "sub/d.txt"), lintIncrementally());
+        Assert.assertEquals(paths("b.txt"), lintIncrementally());
+
+        Files.delete(dir.resolve("a.txt"));
+        Assert.assertEquals(paths("b.txt"), lintIncrementally());
+
+        write(".editorconfig", "root = true\n\n");
+        Assert.assertEquals(paths(".editorconfig", "b.txt", "sub/d.txt"), lintIncrementally());
+    }
+
+    @Test
+    public void fromIndexExcludedDirectories() throws IOException {
+        /* the globs are compiled to a GlobTrie only on file systems using / as separator */
+        Assume.assumeTrue("/".equals(FileSystems.getDefault().getSeparator()));
+        registry = LinterRegistry.builder().log(Logger.NO_OP)
+                .entry(BadLinter.class.getName(), BadLinter.class.getName(), getClass().getClassLoader(),
+                        new String[0], new String[] { "**/target/**" }, true)
+                .build();
+        write("target/e.txt", "bad\n");
+        write("target/.editorconfig", "[*]\n");
+        Assert.assertEquals(paths(".editorconfig", "a.txt", "b.txt", "sub/d.txt"), lintIncrementally());
+        /* target is not walked, so its .editorconfig file does not invalidate the index */
+        write("target/.editorconfig", "[*]\nend_of_line = lf\n");
+        Assert.assertEquals(paths("b.txt"), lintIncrementally());
+    }
+
+    @Test
+    public void fromList() throws IOException {
+        try (ChangedFiles changedFiles = ChangedFiles.builder().registry(registry).build()) {
+            Assert.assertEquals(paths("a.txt", "sub/d.txt"), changedFiles.fromList(dir,
+                    new StringReader("sub/d.txt\n\n  a.txt \nmissing.txt\nc.skip\n../outside.txt\nsub\na.txt\n")));
+            Assert.assertEquals(paths(".editorconfig", "a.txt", "b.txt", "sub/d.txt"),
+                    changedFiles.fromList(dir, new StringReader("a.txt\n.editorconfig\n")));
+        }
+    }
+
+    private static List<Path> paths(String... paths) {
+        final Path[] result = new Path[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            result[i] = Paths.get(paths[i]);
+        }
+        return Arrays.asList(result);
+    }
+
+    private void write(String relPath, String content) throws IOException {
+        final Path file = dir.resolve(relPath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        /* older than ChangedFiles.RACY_MILLIS so that it can enter the index */
+        Files.setLastModifiedTime(file,
+                FileTime.fromMillis(System.currentTimeMillis() - 60000 + content.length() * 1000));
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import org.ec4j.lint.api.Logger.LogLevel;
+import org.ec4j.lint.api.Logger.LogLevelSupplier;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentViolationCollectorTest {
+
+    private static final LogLevelSupplier INFO = new LogLevelSupplier() {
+        @Override
+        public LogLevel getLogLevel() {
+            return LogLevel.INFO;
+        }
+    };
+
+    private static String lint(Path dir, int parallelism) throws IOException {
+        final StringBuilder log = new StringBuilder();
+        final ConcurrentViolationCollector collector = new ConcurrentViolationCollector(false, "",
+                new Logger.AppendableLogger(INFO, log));
+        LintEngine.builder() //
+                .registry(LinterRegistry.builder().log(Logger.NO_OP).entry(new LintEngineTest.BadLinter()).build()) //
+                .propertiesResolver(LintEngineTest.LF) //
+                .parallelism(parallelism) //
+                .build() //
+                .lint(dir, collector);
+        Assert.assertEquals(80, collector.getProcessedFileCount());
+        return collector.getViolations().toString() + "\n" + log;
+    }
+
+    @Test
+    public void concurrentThreads() throws InterruptedException {
+        final ConcurrentViolationCollector collector = new ConcurrentViolationCollector(false, "", Logger.NO_OP);
+        collector.startFiles();
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int threadIndex = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = threadIndex; i < 1000; i += threadCount) {
+                        final Path path = Paths.get("file" + (1000 + i) + ".txt");
+                        final Resource resource = new Resource(path, path, StandardCharsets.UTF_8, "bad bad");
+                        collector.startFile(resource);
+                        collector.handle(new Violation(resource, new Location(1, 1), new Delete(3), null, "bad",
+                                "false"));
+                        collector.handle(new Violation(resource, new Location(1, 5), new Delete(3), null, "bad",
+                                "false"));
+                        collector.endFile();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(1000, collector.getProcessedFileCount());
+        Assert.assertTrue(collector.shards.size() <= threadCount);
+        final Map<Resource, List<Violation>> violations = collector.getViolations();
+        Assert.assertEquals(1000, violations.size());
+        int i = 1000;
+        for (Map.Entry<Resource, List<Violation>> en : violations.entrySet()) {
+            Assert.assertEquals("file" + (i++) + ".txt", en.getKey().toString());
+            Assert.assertEquals(2, en.getValue().size());
+            Assert.assertEquals(1, en.getValue().get(0).getLocation().getColumn());
+            Assert.assertEquals(5, en.getValue().get(1).getLocation().getColumn());
+        }
+    }
+
+    @Test
+    public void threadPerFile() throws InterruptedException {
+        final ConcurrentViolationCollector collector = new ConcurrentViolationCollector(false, "", Logger.NO_OP);
+        collector.startFiles();
+        for (int i = 0; i < 20; i++) {
+            final Path path = Paths.get("file" + (100 + i) + ".txt");
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    final Resource resource = new Resource(path, path, StandardCharsets.UTF_8, "bad");
+                    collector.startFile(resource);
+                    collector.handle(new Violation(resource, new Location(1, 1), new Delete(3), null, "bad", "false"));
+                    collector.endFile();
+                }
+            };
+            thread.start();
+            thread.join();
+        }
+        /* the threads finished one after the other, so they all used the same shard */
+        Assert.assertEquals(1, collector.shards.size());
+        Assert.assertEquals(20, collector.getProcessedFileCount());
+        Assert.assertEquals(20, collector.getViolations().size());
+    }
+
+    @Test
+    public void identicalReports() throws IOException {
+        final Path dir = Paths.get("target/concurrent-collector-" + UUID.randomUUID().toString().replace("-", ""));
+        for (int i = 0; i < 80; i++) {
+            final Path file = dir.resolve("dir" + (i % 7)).resolve("file" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            final StringBuilder content = new StringBuilder();
+            for (int j = 0; j < i % 5; j++) {
+                content.append("good bad\n");
+            }
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        final String expected = lint(dir, 1);
+        Assert.assertTrue(expected, expected.contains("Checked 80 files"));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(expected, lint(dir, 8));
+        }
+    }
+
+}
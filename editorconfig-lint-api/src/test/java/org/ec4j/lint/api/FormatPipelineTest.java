@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import org.ec4j.core.ResourceProperties;
+import org.ec4j.lint.api.LintEngine.PropertiesResolver;
+import org.ec4j.lint.api.LintEngineTest.BadLinter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FormatPipelineTest {
+
+    private Path dir;
+
+    @Before
+    public void before() throws IOException {
+        dir = Paths.get("target/format-pipeline-" + UUID.randomUUID().toString().replace("-", ""));
+        for (int i = 0; i < 50; i++) {
+            final Path file = dir.resolve("dir" + (i % 7)).resolve("file" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            final StringBuilder content = new StringBuilder();
+            for (int j = 0; j < i % 5; j++) {
+                content.append("good bad bad\n");
+            }
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private FormatPipeline.Builder pipeline() {
+        return FormatPipeline.builder() //
+                .registry(LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter()).build()) //
+                .propertiesResolver(LintEngineTest.LF);
+    }
+
+    @Test
+    public void failure() throws IOException {
+        final PropertiesResolver failing = new PropertiesResolver() {
+            @Override
+            public ResourceProperties resolve(Path file) throws IOException {
+                if (file.endsWith(Paths.get("dir3", "file24.txt"))) {
+                    throw new IOException("Cannot resolve " + file);
+                }
+                return LintEngineTest.LF.resolve(file);
+            }
+        };
+        try {
+            pipeline().propertiesResolver(failing).queueCapacity(1).build().format(dir);
+            Assert.fail("IOException expected");
+        } catch (IOException expected) {
+            Assert.assertTrue(expected.getMessage().endsWith("file24.txt"));
+        }
+        /* the files after the failing one in the walk order were not touched */
+        Assert.assertEquals("good bad bad\n",
+                new String(Files.readAllBytes(dir.resolve("dir4/file46.txt")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void format() throws IOException {
+        /* a budget smaller than most files lets just one file through at a time */
+        pipeline().backup(true).queueCapacity(1).maxBytesInFlight(16).build().format(dir);
+        for (int i = 0; i < 50; i++) {
+            final Path file = dir.resolve("dir" + (i % 7)).resolve("file" + i + ".txt");
+            final StringBuilder expected = new StringBuilder();
+            for (int j = 0; j < i % 5; j++) {
+                expected.append("good  \n");
+            }
+            Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            Assert.assertEquals(i % 5 != 0, Files.exists(Paths.get(file.toString() + ".orig")));
+        }
+    }
+
+}
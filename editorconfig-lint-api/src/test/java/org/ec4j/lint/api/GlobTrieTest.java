@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class GlobTrieTest {
+
+    private static final List<String> GLOBS = Arrays.asList("**", "**/*", "*", "*.txt", "**/*.txt", "src/**/*.java",
+            "./src/**/*.java",
+            "**/a?c/**", "a/*/b", "/abs/**", "**/*.x*y", "**/.*", "**/target/**", "**/-darcs-backup*", "./**/b",
+            "**/a/**/b", "a/**", "./a", "**/");
+
+    private static final List<String> PATHS = Arrays.asList("", ".", "a", "a.txt", "a/b", "a/x/b", "a/x/y/b",
+            "src/main/Foo.java", "src/Foo.java", "Foo.java", "abc/d", "x/abc/d", "x/abd/d", "/abs/x", "/abs", "/",
+            "dir/file.xay", "dir/file.xy", "dir/file.y", ".hidden", "dir/.hidden", "target/classes/A.class",
+            "x/target", "x/target/y", "-darcs-backup1", "x/-darcs-backup", "a/b/c/a/d/b", "a/.txt", "..",
+            "../a.txt");
+
+    private static void assertSame(String glob, boolean include) {
+        final GlobTrie trie = new GlobTrie();
+        final int kind = include ? GlobTrie.INCLUDE : GlobTrie.EXCLUDE;
+        Assert.assertTrue(glob, trie.add(glob, kind));
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        for (String p : PATHS) {
+            final Path path = Paths.get(p);
+            final boolean expected = matcher.matches(Paths.get(".").resolve(path));
+            Assert.assertEquals(glob + " vs. '" + p + "'", expected ? kind : 0, trie.match(path));
+        }
+    }
+
+    @Test
+    public void combined() {
+        Assume.assumeTrue("/".equals(FileSystems.getDefault().getSeparator()));
+        final GlobTrie trie = new GlobTrie();
+        final List<PathMatcher> excludes = new ArrayList<>();
+        for (String glob : Constants.DEFAULT_EXCLUDES) {
+            Assert.assertTrue(glob, trie.add(glob, GlobTrie.EXCLUDE));
+            excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+        trie.add("**/*.txt", GlobTrie.INCLUDE);
+        for (String p : Arrays.asList("a.txt", "x/target/a.txt", "x/.git/a.txt", "x/.gitignore", "a.txt~", "#a#",
+                "x/.#a", "x/b.xml", "CVS/Entries", "x/.svn", "x/build/a.txt", "build.txt")) {
+            final Path path = Paths.get(p);
+            boolean excluded = false;
+            for (PathMatcher exclude : excludes) {
+                excluded |= exclude.matches(Paths.get(".").resolve(path));
+            }
+            final int match = trie.match(path);
+            Assert.assertEquals(p, excluded, (match & GlobTrie.EXCLUDE) != 0);
+            if (!excluded) {
+                Assert.assertEquals(p, p.endsWith(".txt"), (match & GlobTrie.INCLUDE) != 0);
+            }
+        }
+    }
+
+    @Test
+    public void matchUnder() {
+        Assume.assumeTrue("/".equals(FileSystems.getDefault().getSeparator()));
+        final GlobTrie trie = new GlobTrie();
+        for (String glob : Constants.DEFAULT_EXCLUDES) {
+            trie.add(glob, GlobTrie.EXCLUDE);
+        }
+        trie.add("./src/**/*.java", GlobTrie.INCLUDE);
+        trie.add("**/*.xml", GlobTrie.INCLUDE);
+        final GlobTrie javaOnly = new GlobTrie();
+        javaOnly.add("./src/**/*.java", GlobTrie.INCLUDE);
+        javaOnly.add("**/a?c/**", GlobTrie.EXCLUDE);
+
+        Assert.assertEquals(GlobTrie.EXCLUDE, trie.matchUnder(Paths.get("target")));
+        Assert.assertEquals(GlobTrie.EXCLUDE, trie.matchUnder(Paths.get("module/target")));
+        Assert.assertEquals(GlobTrie.EXCLUDE, trie.matchUnder(Paths.get("module/.git/objects")));
+        Assert.assertEquals(GlobTrie.INCLUDE, trie.matchUnder(Paths.get("module/src")));
+        Assert.assertEquals(GlobTrie.INCLUDE, javaOnly.matchUnder(Paths.get("src")));
+        Assert.assertEquals(GlobTrie.INCLUDE, javaOnly.matchUnder(Paths.get("src/main")));
+        Assert.assertEquals(0, javaOnly.matchUnder(Paths.get("docs")));
+        Assert.assertEquals(GlobTrie.EXCLUDE, javaOnly.matchUnder(Paths.get("src/abc")));
+
+        /* the verdicts must hold for the files under the directories */
+        for (GlobTrie t : Arrays.asList(trie, javaOnly)) {
+            for (String dir : Arrays.asList("target", "module/target", "src", "src/main", "docs", "src/abc", "x",
+                    ".git", "CVS")) {
+                final int under = t.matchUnder(Paths.get(dir));
+                for (String file : Arrays.asList("a.java", "b.xml", "c.txt", "target/d.xml", "main/e.java")) {
+                    final int match = t.match(Paths.get(dir, file));
+                    if (under == GlobTrie.EXCLUDE) {
+                        Assert.assertEquals(dir + "/" + file, GlobTrie.EXCLUDE, match & GlobTrie.EXCLUDE);
+                    } else if (under == 0) {
+                        Assert.assertEquals(dir + "/" + file, 0, match & GlobTrie.INCLUDE);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameAsPathMatcher() {
+        Assume.assumeTrue("/".equals(FileSystems.getDefault().getSeparator()));
+        for (String glob : GLOBS) {
+            assertSame(glob, true);
+            assertSame(glob, false);
+        }
+        for (String glob : Constants.DEFAULT_EXCLUDES) {
+            assertSame(glob, false);
+        }
+    }
+
+    @Test
+    public void unsupported() {
+        final GlobTrie trie = new GlobTrie();
+        for (String glob : Arrays.asList("**/*.{xml,xsl}", "**/[ab].txt", "a\\*b", "a**b/c")) {
+            Assert.assertFalse(glob, trie.add(glob, GlobTrie.INCLUDE));
+        }
+    }
+
+}
@@ -16,6 +16,8 @@
  */
 package org.ec4j.lint.api;
 
+import java.util.Random;
+
 import org.ec4j.lint.api.Resource.LineIndex;
 import org.junit.Assert;
 import org.junit.Test;
@@ -34,7 +36,7 @@ public class LineIndexTest {
 
     private static void assertOf(String source, int[] expectedIndex) {
         final LineIndex li = LineIndex.of(source);
-        Assert.assertArrayEquals(expectedIndex, li.lineStartOffsets);
+        Assert.assertArrayEquals(expectedIndex, li.lineStartOffsets());
     }
 
     @Test
@@ -65,6 +67,106 @@ public class LineIndexTest {
         assertFindLocation(" \n", 2, 2, 1);
     }
 
+    @Test
+    public void findLocations() {
+        final String source = " \n\r\n  \r \n";
+        final int[] offsets = new int[source.length() + 1];
+        final Location[] expected = new Location[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = i;
+            expected[i] = LineIndex.of(source).findLocation(i);
+        }
+        Assert.assertArrayEquals(expected, LineIndex.of(source).findLocations(offsets));
+        Assert.assertArrayEquals(
+                new Location[] { new Location(1, 1), new Location(1, 2), new Location(1, 2), new Location(4, 1) },
+                LineIndex.of(source).findLocations(new int[] { 0, 1, 1, 7 }));
+        Assert.assertArrayEquals(new Location[0], LineIndex.of(source).findLocations(new int[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void findLocationsUnsorted() {
+        LineIndex.of(" \n \n").findLocations(new int[] { 3, 1 });
+    }
+
+    private static void assertUpdate(String source, int start, int end, String replacement) {
+        final LineIndex li = LineIndex.of(source);
+        final StringBuilder text = new StringBuilder(source).replace(start, end, replacement);
+        li.update(text, start, end - start, replacement.length());
+        Assert.assertArrayEquals(source + " -> " + text, LineIndex.of(text).lineStartOffsets, li.lineStartOffsets());
+    }
+
+    @Test
+    public void update() {
+        assertUpdate("", 0, 0, "\n");
+        assertUpdate("\n", 0, 1, "");
+        assertUpdate(" \n \n", 1, 1, "\r");
+        assertUpdate(" \n \n", 1, 2, "\r\n");
+        /* removing the \r of \r\n */
+        assertUpdate(" \r\n", 1, 2, "");
+        /* joining \r and \n */
+        assertUpdate(" \r \n", 2, 3, "");
+        assertUpdate(" \r", 2, 2, "\n");
+        /* splitting \r\n */
+        assertUpdate(" \r\n", 2, 2, " ");
+        assertUpdate("a\n\nb\nc", 0, 0, "xx");
+        assertUpdate("a\n\nb\nc", 6, 7, "\r\r\n");
+    }
+
+    @Test
+    public void updateRandom() {
+        final Random rnd = new Random(42);
+        final char[] alphabet = { 'a', ' ', '\n', '\r' };
+        for (int round = 0; round < 2000; round++) {
+            final StringBuilder text = new StringBuilder();
+            for (int i = rnd.nextInt(12); i > 0; i--) {
+                text.append(alphabet[rnd.nextInt(alphabet.length)]);
+            }
+            final LineIndex li = LineIndex.of(text);
+            for (int edit = 0; edit < 5; edit++) {
+                final int start = rnd.nextInt(text.length() + 1);
+                final int end = start + rnd.nextInt(text.length() - start + 1);
+                final StringBuilder replacement = new StringBuilder();
+                for (int i = rnd.nextInt(4); i > 0; i--) {
+                    replacement.append(alphabet[rnd.nextInt(alphabet.length)]);
+                }
+                text.replace(start, end, replacement.toString());
+                li.update(text, start, end - start, replacement.length());
+                Assert.assertArrayEquals(LineIndex.of(text).lineStartOffsets, li.lineStartOffsets());
+            }
+        }
+    }
+
+    @Test
+    public void updateRandomDeferred() {
+        final Random rnd = new Random(42);
+        final char[] alphabet = { 'a', ' ', ' ', '\n', '\r' };
+        for (int round = 0; round < 500; round++) {
+            final StringBuilder text = new StringBuilder();
+            for (int i = rnd.nextInt(40); i > 0; i--) {
+                text.append(alphabet[rnd.nextInt(alphabet.length)]);
+            }
+            final LineIndex li = LineIndex.of(text);
+            int start = 0;
+            for (int edit = 0; edit < 20; edit++) {
+                /* mostly ascending edits that do not change the number of lines */
+                start = rnd.nextInt(8) == 0 ? rnd.nextInt(text.length() + 1)
+                        : Math.min(text.length(), start + rnd.nextInt(4));
+                final int end = start + rnd.nextInt(Math.min(3, text.length() - start + 1));
+                final String replacement = rnd.nextInt(8) == 0 ? "\n" : "  ".substring(rnd.nextInt(3));
+                text.replace(start, end, replacement);
+                li.update(text, start, end - start, replacement.length());
+                final LineIndex expected = LineIndex.of(text);
+                for (int offset = 0; offset <= text.length(); offset++) {
+                    Assert.assertEquals(expected.findLocation(offset), li.findLocation(offset));
+                }
+                for (int line = 1; line <= expected.lineStartOffsets.length + 1; line++) {
+                    Assert.assertEquals(expected.findLineStart(line), li.findLineStart(line));
+                }
+            }
+            Assert.assertArrayEquals(LineIndex.of(text).lineStartOffsets, li.lineStartOffsets());
+        }
+    }
+
     @Test
     public void of() {
         assertOf("", new int[0]);
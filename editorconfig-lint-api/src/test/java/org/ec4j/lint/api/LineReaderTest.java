@@ -23,6 +23,7 @@ import java.util.List;
 
 import org.ec4j.lint.api.LineReader.DelegatingLineReader;
 import org.ec4j.lint.api.LineReader.StringBuilderReader;
+import org.ec4j.lint.api.LineReader.TextBufferReader;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -118,6 +119,20 @@ public class LineReaderTest {
             public String toString() {
                 return StringBuilderReader.class.getSimpleName();
             }
+        }, new LineReaderFactory() {
+            @Override
+            public LineReader create(String text) {
+                /* split the text over several pieces */
+                final int half = text.length() / 2;
+                final PieceTable pieceTable = new PieceTable(new StringBuilder(text.substring(half)));
+                pieceTable.insert(0, text.substring(0, half));
+                return LineReader.of(pieceTable);
+            }
+
+            @Override
+            public String toString() {
+                return TextBufferReader.class.getSimpleName();
+            }
         } };
         List<Object[]> result = new ArrayList<>();
 
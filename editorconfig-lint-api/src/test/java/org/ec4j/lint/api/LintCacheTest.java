@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.ec4j.core.ResourceProperties;
+import org.ec4j.core.model.Property;
+import org.ec4j.core.model.PropertyType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LintCacheTest {
+
+    /**
+     * Reports a violation if the text contains {@code "bad"}.
+     */
+    static class CountingLinter implements Linter {
+        private int processed;
+
+        @Override
+        public List<String> getDefaultExcludes() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getDefaultIncludes() {
+            return Collections.singletonList("**/*");
+        }
+
+        @Override
+        public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
+                throws IOException {
+            processed++;
+            final int offset = resource.getText().indexOf("bad");
+            if (offset >= 0) {
+                violationHandler.handle(new Violation(resource, resource.findLocation(offset), new Delete(3), this,
+                        "bad", "false"));
+            }
+        }
+    }
+
+    private static final ResourceProperties LF = ResourceProperties.builder()
+            .property(new Property.Builder(null).type(PropertyType.end_of_line).value("lf").build()).build();
+
+    private static final ResourceProperties CRLF = ResourceProperties.builder()
+            .property(new Property.Builder(null).type(PropertyType.end_of_line).value("crlf").build()).build();
+
+    private Path dir;
+
+    private final CountingLinter linter = new CountingLinter();
+
+    private void lint(LintCache cache, Path file, ResourceProperties props) throws IOException {
+        final Linter l = LinterRegistry.builder().log(Logger.NO_OP).cache(cache).entry(linter).build()
+                .filter(file).get(0);
+        final ViolationCollector collector = new ViolationCollector(false, "", Logger.NO_OP);
+        collector.startFile(new Resource(file, file, StandardCharsets.UTF_8));
+        l.process(new Resource(file, file, StandardCharsets.UTF_8), props, collector);
+    }
+
+    @Before
+    public void before() throws IOException {
+        dir = Paths.get("target/lint-cache-" + UUID.randomUUID().toString().replace("-", ""));
+        Files.createDirectories(dir);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        final Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        /* older than LintCache.RACY_MILLIS so that the file digest gets remembered */
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        return file;
+    }
+
+    @Test
+    public void cleanSkipped() throws IOException {
+        final Path file = write("clean.txt", "good\n");
+        final Path cacheDir = dir.resolve("cache");
+        try (LintCache cache = LintCache.builder().directory(cacheDir).build()) {
+            lint(cache, file, LF);
+            Assert.assertEquals(1, linter.processed);
+            lint(cache, file, LF);
+            Assert.assertEquals(1, linter.processed);
+
+            /* different properties */
+            lint(cache, file, CRLF);
+            Assert.assertEquals(2, linter.processed);
+        }
+
+        /* reloaded from disk */
+        try (LintCache cache = LintCache.builder().directory(cacheDir).build()) {
+            Assert.assertEquals(2, cache.size());
+            lint(cache, file, LF);
+            Assert.assertEquals(2, linter.processed);
+
+            /* the file digest is remembered, so the content is not read at all */
+            final Resource resource = new Resource(file, file, StandardCharsets.UTF_8);
+            cache.key(resource, LF, linter);
+            Assert.assertNull(resource.text);
+
+            /* changed content */
+            write("clean.txt", "better\n");
+            lint(cache, file, LF);
+            Assert.assertEquals(3, linter.processed);
+
+            cache.invalidate();
+            Assert.assertEquals(0, cache.size());
+            lint(cache, file, LF);
+            Assert.assertEquals(4, linter.processed);
+        }
+    }
+
+    @Test
+    public void contentDigestRemembered() throws IOException {
+        /* modified just now, hence too fresh for the file digests of the cache */
+        final Path file = dir.resolve("fresh.txt");
+        Files.write(file, "good\n".getBytes(StandardCharsets.UTF_8));
+        try (LintCache cache = LintCache.builder().directory(dir.resolve("cache")).build()) {
+            final Resource resource = new Resource(file, file, StandardCharsets.UTF_8);
+            final String digest = cache.contentDigest(resource);
+            /* the same size and a fresh modification time; only a new Resource reads the file again */
+            Files.write(file, "fine\n".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(digest, cache.contentDigest(resource));
+            Assert.assertNotEquals(digest, cache.contentDigest(new Resource(file, file, StandardCharsets.UTF_8)));
+
+            resource.replace(0, 4, "fine");
+            final String edited = cache.contentDigest(resource);
+            Assert.assertNotEquals(digest, edited);
+            resource.replace(0, 4, "nice");
+            Assert.assertNotEquals(edited, cache.contentDigest(resource));
+        }
+    }
+
+    @Test
+    public void eviction() throws IOException {
+        final Path cacheDir = dir.resolve("cache");
+        try (LintCache cache = LintCache.builder().directory(cacheDir).maxEntries(2).build()) {
+            final Path file1 = write("file1.txt", "one\n");
+            final Path file2 = write("file2.txt", "two\n");
+            final Path file3 = write("file3.txt", "three\n");
+            lint(cache, file1, LF);
+            lint(cache, file2, LF);
+            lint(cache, file1, LF);
+            Assert.assertEquals(2, linter.processed);
+            /* evicts file2, the least recently used one */
+            lint(cache, file3, LF);
+            Assert.assertEquals(2, cache.size());
+            Assert.assertEquals(3, linter.processed);
+            lint(cache, file1, LF);
+            Assert.assertEquals(3, linter.processed);
+            lint(cache, file2, LF);
+            Assert.assertEquals(4, linter.processed);
+        }
+    }
+
+    @Test
+    public void version() {
+        /* the test classes have no Implementation-Version, hence the class files identify the versions */
+        final String version = LintCache.version(new CountingLinter());
+        Assert.assertTrue(version, version.matches("unknown lastModified:\\d+ sha256:[0-9a-f]{64}, lint-api .+"));
+        Assert.assertTrue(version, version.endsWith(LintCache.classVersion(Linter.class)));
+        Assert.assertNotEquals(version, LintCache.version(new LintEngineTest.BadLinter()));
+    }
+
+    @Test
+    public void violationsNotCached() throws IOException {
+        final Path file = write("bad.txt", "bad\n");
+        try (LintCache cache = LintCache.builder().directory(dir.resolve("cache")).build()) {
+            lint(cache, file, LF);
+            lint(cache, file, LF);
+            Assert.assertEquals(2, linter.processed);
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void changedInMemory() throws IOException {
+        final Path file = write("mem.txt", "bad\n");
+        try (LintCache cache = LintCache.builder().directory(dir.resolve("cache")).build()) {
+            final Resource resource = new Resource(file, file, StandardCharsets.UTF_8);
+            final String fileKey = cache.key(resource, LF, linter);
+            resource.replace(0, 3, "good");
+            Assert.assertNotEquals(fileKey, cache.key(resource, LF, linter));
+            resource.replace(0, 4, "bad");
+            Assert.assertEquals(fileKey, cache.key(resource, LF, linter));
+        }
+    }
+
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ec4j.core.ResourceProperties;
+import org.ec4j.core.model.Property;
+import org.ec4j.core.model.PropertyType;
+import org.ec4j.lint.api.LintEngine.ExecutionMode;
+import org.ec4j.lint.api.LintEngine.PropertiesResolver;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LintEngineTest {
+
+    /**
+     * Reports every {@code "bad"} in the text.
+     */
+    static class BadLinter implements Linter {
+
+        @Override
+        public List<String> getDefaultExcludes() {
+            return Collections.singletonList("**/*.skip");
+        }
+
+        @Override
+        public List<String> getDefaultIncludes() {
+            return Collections.singletonList("**/*");
+        }
+
+        @Override
+        public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
+                throws IOException {
+            final String text = resource.getText();
+            int offset = 0;
+            while ((offset = text.indexOf("bad", offset)) >= 0) {
+                violationHandler.handle(new Violation(resource, resource.findLocation(offset), new Delete(3), this,
+                        "bad", "false"));
+                offset += 3;
+            }
+        }
+    }
+
+    /**
+     * Stalls on {@code file13.txt} until cancelled, polling the {@link CancellationToken} like a well behaved
+     * {@link Linter}.
+     */
+    static class StallingLinter implements Linter {
+
+        @Override
+        public List<String> getDefaultExcludes() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getDefaultIncludes() {
+            return Collections.singletonList("**/file13.txt");
+        }
+
+        @Override
+        public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
+                throws IOException {
+            process(resource, properties, violationHandler, CancellationToken.NONE);
+        }
+
+        @Override
+        public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler,
+                CancellationToken cancellationToken) throws IOException {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (System.nanoTime() < deadline) {
+                cancellationToken.throwIfCancelled();
+                Thread.yield();
+            }
+            Assert.fail("Not cancelled within 10 seconds");
+        }
+    }
+
+    /**
+     * Records the calls it gets.
+     */
+    static class TracingViolationHandler implements ViolationHandler {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public ReturnState endFile() {
+            calls.add("endFile");
+            return ReturnState.FINISHED;
+        }
+
+        @Override
+        public void endFiles() {
+            calls.add("endFiles");
+        }
+
+        @Override
+        public Logger getLogger() {
+            return Logger.NO_OP;
+        }
+
+        @Override
+        public void handle(Violation violation) {
+            calls.add("handle " + violation);
+        }
+
+        @Override
+        public void startFile(Resource resource) {
+            calls.add("startFile " + resource);
+        }
+
+        @Override
+        public void startFiles() {
+            calls.add("startFiles");
+        }
+    }
+
+    static final PropertiesResolver LF = new PropertiesResolver() {
+        private final ResourceProperties properties = ResourceProperties.builder()
+                .property(new Property.Builder(null).type(PropertyType.end_of_line).value("lf").build()).build();
+
+        @Override
+        public ResourceProperties resolve(Path file) throws IOException {
+            return properties;
+        }
+    };
+
+    private Path dir;
+
+    @Before
+    public void before() throws IOException {
+        dir = Paths.get("target/lint-engine-" + UUID.randomUUID().toString().replace("-", ""));
+        for (int i = 0; i < 100; i++) {
+            final Path file = dir.resolve("dir" + (i % 7)).resolve("file" + i + (i % 10 == 0 ? ".skip" : ".txt"));
+            Files.createDirectories(file.getParent());
+            final StringBuilder content = new StringBuilder();
+            for (int j = 0; j < i % 5; j++) {
+                content.append("good bad\n");
+            }
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private LintEngine.Builder engine(int parallelism) {
+        return LintEngine.builder() //
+                .registry(LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter()).build()) //
+                .propertiesResolver(LF) //
+                .parallelism(parallelism);
+    }
+
+    @Test
+    public void deterministicOrder() throws IOException {
+        final TracingViolationHandler sequential = new TracingViolationHandler();
+        engine(1).build().lint(dir, sequential);
+        Assert.assertEquals("startFiles", sequential.calls.get(0));
+        Assert.assertEquals("startFile dir0/file14.txt", sequential.calls.get(1));
+        Assert.assertEquals("endFiles", sequential.calls.get(sequential.calls.size() - 1));
+        Assert.assertFalse(sequential.calls.toString().contains(".skip"));
+
+        for (int i = 0; i < 5; i++) {
+            final TracingViolationHandler parallel = new TracingViolationHandler();
+            engine(8).build().lint(dir, parallel);
+            Assert.assertEquals(sequential.calls, parallel.calls);
+        }
+    }
+
+    @Test
+    public void executionModes() throws IOException {
+        final TracingViolationHandler sequential = new TracingViolationHandler();
+        engine(1).build().lint(dir, sequential);
+        for (int maxOpenFiles : new int[] { 1, 3, 64 }) {
+            final TracingViolationHandler virtual = new TracingViolationHandler();
+            engine(4).executionMode(ExecutionMode.VIRTUAL_THREADS).maxOpenFiles(maxOpenFiles).build().lint(dir,
+                    virtual);
+            Assert.assertEquals(sequential.calls, virtual.calls);
+        }
+
+        /* a concurrent handler gets the calls directly from the threads */
+        final ConcurrentViolationCollector expected = new ConcurrentViolationCollector(false, "", Logger.NO_OP);
+        engine(1).build().lint(dir, expected);
+        final ConcurrentViolationCollector actual = new ConcurrentViolationCollector(false, "", Logger.NO_OP);
+        engine(4).executionMode(ExecutionMode.VIRTUAL_THREADS).maxOpenFiles(2).build().lint(dir, actual);
+        Assert.assertEquals(expected.getViolations().toString(), actual.getViolations().toString());
+        Assert.assertEquals(expected.getProcessedFileCount(), actual.getProcessedFileCount());
+    }
+
+    @Test
+    public void largestFirst() throws IOException {
+        Assert.assertArrayEquals(new int[] { 1, 3, 0, 2, 4 }, LintEngine.schedule(new long[] { 5, 100, 5, 50, 0 }));
+
+        /*
+         * dir4/file4.txt is the biggest file, hence linted first by one of the two workers of the pool; the other one
+         * may lint some small files before file4.txt gets loaded, so only the first file per thread is deterministic
+         */
+        final ConcurrentMap<Thread, String> firstFiles = new ConcurrentHashMap<>();
+        final LinterRegistry registry = LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter() {
+            @Override
+            public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
+                    throws IOException {
+                firstFiles.putIfAbsent(Thread.currentThread(), resource.toString().replace('\\', '/'));
+                super.process(resource, properties, violationHandler);
+            }
+        }).build();
+        final Path big = dir.resolve("dir4/file4.txt");
+        final StringBuilder bigText = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            bigText.append("bad\n");
+        }
+        Files.write(big, bigText.toString().getBytes(StandardCharsets.UTF_8));
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final List<String> reloaded = new ArrayList<>();
+            final TracingViolationHandler handler = new TracingViolationHandler() {
+                @Override
+                public void startFile(Resource resource) {
+                    if (resource.toString().replace('\\', '/').equals("dir4/file4.txt")) {
+                        /* linted early but reported late, so its text must not be held while waiting */
+                        Assert.assertFalse(resource.isLoaded());
+                        reloaded.add(resource.getText());
+                    }
+                    super.startFile(resource);
+                }
+            };
+            final LintEngine engine = engine(2).registry(registry).pool(pool).build();
+            engine.lint(dir, handler);
+            Assert.assertTrue(firstFiles.toString(), firstFiles.containsValue("dir4/file4.txt"));
+            /* still reported in the order of the paths */
+            Assert.assertEquals("startFile dir0/file14.txt", handler.calls.get(1));
+            Assert.assertEquals(Collections.singletonList(bigText.toString()), reloaded);
+
+            final LintEngine.RunStatistics statistics = engine.getLastRunStatistics();
+            Assert.assertEquals(100, statistics.getFileCount());
+            Assert.assertEquals(2, statistics.getParallelism());
+            Assert.assertTrue(statistics.toString(), statistics.getMakespanNanos() > 0L);
+            Assert.assertTrue(statistics.toString(), statistics.getBusyNanos() > 0L);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void excludedDirectoriesNotWalked() throws IOException {
+        /* the globs are compiled to a GlobTrie only on file systems using / as separator */
+        Assume.assumeTrue("/".equals(FileSystems.getDefault().getSeparator()));
+        final Path targetFile = dir.resolve("dir1/target/classes/bad.txt");
+        Files.createDirectories(targetFile.getParent());
+        Files.write(targetFile, "bad\n".getBytes(StandardCharsets.UTF_8));
+        final LinterRegistry registry = LinterRegistry.builder().log(Logger.NO_OP)
+                .entry(BadLinter.class.getName(), BadLinter.class.getName(), getClass().getClassLoader(),
+                        new String[0], new String[] { "**/target/**" }, true)
+                .build();
+        final List<Path> all = LintEngine.walk(dir);
+        final List<Path> walked = LintEngine.walk(dir, registry, null);
+        Assert.assertTrue(all.contains(dir.relativize(targetFile)));
+        Assert.assertFalse(walked.contains(dir.relativize(targetFile)));
+        Assert.assertEquals(all.size() - 1, walked.size());
+    }
+
+    @Test
+    public void binaryFiles() throws IOException {
+        Files.write(dir.resolve("dir2/binary.txt"), new byte[256]);
+        final LintEngine engine = engine(4).build();
+        engine.lint(dir, new ViolationCollector(false, "", Logger.NO_OP));
+        Assert.assertEquals(1, engine.getLastRunStatistics().getBinaryFileCount());
+        Assert.assertTrue(engine.getLastRunStatistics().toString().contains(", 1 binary"));
+    }
+
+    @Test
+    public void failure() throws IOException {
+        final TracingViolationHandler handler = new TracingViolationHandler();
+        final PropertiesResolver failing = new PropertiesResolver() {
+            @Override
+            public ResourceProperties resolve(Path file) throws IOException {
+                if (file.endsWith(Paths.get("dir3", "file24.txt"))) {
+                    throw new IOException("Cannot resolve " + file);
+                }
+                return LF.resolve(file);
+            }
+        };
+        try {
+            engine(8).propertiesResolver(failing).build().lint(dir, handler);
+            Assert.fail("IOException expected");
+        } catch (IOException expected) {
+            Assert.assertTrue(expected.getMessage().endsWith("file24.txt"));
+        }
+        Assert.assertFalse(handler.calls.contains("endFiles"));
+        final String last = handler.calls.get(handler.calls.size() - 1);
+        Assert.assertEquals("endFile", last);
+        final String lastStarted = handler.calls.get(handler.calls.lastIndexOf("endFile") - 1);
+        Assert.assertFalse(lastStarted, lastStarted.contains("dir3/file3"));
+        Assert.assertFalse(handler.calls.toString().contains("dir4/"));
+    }
+
+    @Test
+    public void cancelled() throws IOException {
+        final CancellationToken cancellationToken = CancellationToken.create();
+        cancellationToken.cancel();
+        final TracingViolationHandler handler = new TracingViolationHandler();
+        try {
+            engine(4).build().lint(dir, LintEngine.walk(dir), handler, cancellationToken);
+            Assert.fail("LintCancelledException expected");
+        } catch (LintCancelledException expected) {
+            Assert.assertFalse(expected.isTimeout());
+        }
+        Assert.assertEquals(Collections.singletonList("startFiles"), handler.calls);
+    }
+
+    @Test
+    public void cancelledConcurrent() throws IOException {
+        final CancellationToken cancellationToken = CancellationToken.create();
+        final Linter cancellingLinter = new Linter() {
+
+            @Override
+            public List<String> getDefaultExcludes() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public List<String> getDefaultIncludes() {
+                return Collections.singletonList("**/file13.txt");
+            }
+
+            @Override
+            public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
+                    throws IOException {
+                process(resource, properties, violationHandler, CancellationToken.NONE);
+            }
+
+            @Override
+            public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler,
+                    CancellationToken token) throws IOException {
+                cancellationToken.cancel();
+                token.throwIfCancelled();
+            }
+        };
+        final AtomicInteger openFiles = new AtomicInteger();
+        final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        final ConcurrentViolationHandler handler = new ConcurrentViolationHandler() {
+
+            @Override
+            public ReturnState endFile() {
+                openFiles.decrementAndGet();
+                return ReturnState.FINISHED;
+            }
+
+            @Override
+            public void endFiles() {
+            }
+
+            @Override
+            public Logger getLogger() {
+                return Logger.NO_OP;
+            }
+
+            @Override
+            public void handle(Violation violation) {
+                handled.add(violation.toString());
+            }
+
+            @Override
+            public void startFile(Resource resource) {
+                openFiles.incrementAndGet();
+            }
+
+            @Override
+            public void startFiles() {
+            }
+        };
+        final LinterRegistry registry = LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter())
+                .entry(cancellingLinter).build();
+        try {
+            engine(4).registry(registry).build().lint(dir, LintEngine.walk(dir), handler, cancellationToken);
+            Assert.fail("LintCancelledException expected");
+        } catch (LintCancelledException expected) {
+            Assert.assertFalse(expected.isTimeout());
+        }
+        /* the aborted file was neither started nor reported */
+        Assert.assertEquals(0, openFiles.get());
+        Assert.assertFalse(handled.toString().contains("file13.txt"));
+    }
+
+    @Test
+    public void fileTimeout() throws IOException {
+        final Path stalled = dir.resolve("dir6/file13.txt");
+        final byte[] stalledContent = Files.readAllBytes(stalled);
+        final LinterRegistry registry = LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter())
+                .entry(new StallingLinter()).build();
+
+        final ConcurrentViolationCollector collector = new ConcurrentViolationCollector(false, "", Logger.NO_OP);
+        final LintEngine engine = engine(4).registry(registry).fileTimeout(100, TimeUnit.MILLISECONDS).build();
+        engine.lint(dir, collector);
+        /* 80 files contain "bad", minus the stalled one */
+        Assert.assertEquals(79, collector.getViolations().size());
+        Assert.assertFalse(collector.getViolations().keySet().toString().contains("file13.txt"));
+        Assert.assertEquals(Collections.singletonList(Paths.get("dir6/file13.txt")),
+                engine.getLastRunStatistics().getTimedOutFiles());
+        Assert.assertTrue(engine.getLastRunStatistics().toString().endsWith(", 1 timed out"));
+
+        final TracingViolationHandler tracing = new TracingViolationHandler();
+        try {
+            engine(4).registry(registry).fileTimeout(100, TimeUnit.MILLISECONDS).failOnTimeout(true).build()
+                    .lint(dir, tracing);
+            Assert.fail("LintCancelledException expected");
+        } catch (LintCancelledException expected) {
+            Assert.assertTrue(expected.isTimeout());
+            Assert.assertTrue(expected.getMessage(), expected.getMessage()
+                    .endsWith("1 file(s): [" + Paths.get("dir6/file13.txt") + "]"));
+        }
+        Assert.assertFalse(tracing.calls.contains("endFiles"));
+
+        final FormattingHandler handler = new FormattingHandler(false, ".orig", Logger.NO_OP);
+        engine(4).registry(registry).fileTimeout(100, TimeUnit.MILLISECONDS).build().lint(dir, handler);
+        /* the violations BadLinter found before the timeout were discarded */
+        Assert.assertArrayEquals(stalledContent, Files.readAllBytes(stalled));
+        final String fixed = new String(Files.readAllBytes(dir.resolve("dir5/file12.txt")), StandardCharsets.UTF_8);
+        Assert.assertFalse(fixed.contains("bad"));
+    }
+
+    @Test
+    public void format() throws IOException {
+        final FormattingHandler handler = new FormattingHandler(false, ".orig", Logger.NO_OP);
+        engine(4).build().lint(dir, handler);
+        for (Path file : LintEngine.walk(dir)) {
+            final String content = new String(Files.readAllBytes(dir.resolve(file)), StandardCharsets.UTF_8);
+            if (file.toString().endsWith(".txt")) {
+                Assert.assertFalse(file.toString(), content.contains("bad"));
+            }
+        }
+        final ViolationCollector collector = new ViolationCollector(true, "", Logger.NO_OP);
+        engine(4).build().lint(dir, collector);
+        Assert.assertFalse(collector.hasViolations());
+    }
+
+    @Test
+    public void files() throws IOException {
+        final ViolationCollector collector = new ViolationCollector(false, "", Logger.NO_OP);
+        engine(2).build().lint(dir, Arrays.asList(Paths.get("dir1/file1.txt"),
+                dir.toAbsolutePath().resolve("dir2/file2.txt"), Paths.get("dir0/file0.skip")), collector);
+        final List<String> paths = new ArrayList<>();
+        for (Resource resource : collector.getViolations().keySet()) {
+            paths.add(resource.toString());
+        }
+        Assert.assertEquals(Arrays.asList("dir1/file1.txt", "dir2/file2.txt"), paths);
+    }
+
+}
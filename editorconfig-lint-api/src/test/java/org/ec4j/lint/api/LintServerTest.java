@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.ec4j.lint.api.LintEngineTest.BadLinter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LintServerTest {
+
+    private static void assertRejected(LintClient client, Path root, String file, String message) {
+        try {
+            client.lint(root, Arrays.asList(Paths.get(file)));
+            Assert.fail("IOException expected");
+        } catch (IOException expected) {
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void concurrentClients() throws Exception {
+        final Path dir = Paths.get("target/lint-server-" + UUID.randomUUID().toString().replace("-", ""));
+        for (int i = 0; i < 20; i++) {
+            final Path file = dir.resolve("file" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            Files.write(file, (i % 2 == 0 ? "good\n" : "bad\n").getBytes(StandardCharsets.UTF_8));
+        }
+        final Path portFile = Paths.get(dir + ".port");
+        try (LintServer server = LintServer.builder() //
+                .engine(LintEngine.builder()
+                        .registry(LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter()).build())
+                        .propertiesResolver(LintEngineTest.LF)) //
+                .portFile(portFile) //
+                .allowedRoot(dir) //
+                .maxClients(4) //
+                .build().start()) {
+            final LintClient client = LintClient.of(portFile);
+            Assert.assertEquals(server.getPort(), client.getPort());
+
+            final LintClient.Response response = client.lint(dir,
+                    Arrays.asList(Paths.get("file1.txt"), Paths.get("file2.txt"), Paths.get("missing.skip")));
+            Assert.assertEquals(Arrays.asList("file1.txt", "file2.txt"), response.getFiles());
+            Assert.assertEquals(1, response.getViolations().size());
+            Assert.assertTrue(response.getViolations().get(0).startsWith("file1.txt@1,1: Delete 3 characters"));
+
+            final ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                final List<Future<LintClient.Response>> futures = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    final Path file = Paths.get("file" + (i % 20) + ".txt");
+                    futures.add(executor.submit(new Callable<LintClient.Response>() {
+                        @Override
+                        public LintClient.Response call() throws IOException {
+                            return client.lint(dir, Arrays.asList(file));
+                        }
+                    }));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    final LintClient.Response r = futures.get(i).get();
+                    Assert.assertEquals(Arrays.asList("file" + (i % 20) + ".txt"), r.getFiles());
+                    Assert.assertEquals(i % 2 == 1, r.hasViolations());
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            try {
+                client.lint(dir, Arrays.asList(Paths.get("missing.txt")));
+                Assert.fail("IOException expected");
+            } catch (IOException expected) {
+                Assert.assertTrue(expected.getMessage(), expected.getMessage().startsWith("The lint server failed"));
+            }
+        }
+        Assert.assertFalse(Files.exists(portFile));
+    }
+
+    @Test
+    public void rejected() throws Exception {
+        final Path dir = Paths.get("target/lint-server-" + UUID.randomUUID().toString().replace("-", ""));
+        final Path allowed = dir.resolve("allowed");
+        Files.createDirectories(allowed);
+        Files.write(dir.resolve("secret.txt"), "bad\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(allowed.resolve("file.txt"), "bad\n".getBytes(StandardCharsets.UTF_8));
+        final Path portFile = Paths.get(dir + ".port");
+        try (LintServer server = LintServer.builder() //
+                .engine(LintEngine.builder()
+                        .registry(LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter()).build())
+                        .propertiesResolver(LintEngineTest.LF)) //
+                .portFile(portFile) //
+                .allowedRoot(allowed) //
+                .build().start()) {
+            if (portFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Assert.assertEquals("rw-------",
+                        PosixFilePermissions.toString(Files.getPosixFilePermissions(portFile)));
+            }
+            final LintClient client = LintClient.of(portFile);
+            Assert.assertEquals(1, client.lint(allowed, Arrays.asList(Paths.get("file.txt"))).getViolations().size());
+
+            assertRejected(new LintClient(server.getPort(), "wrong"), allowed, "file.txt", "valid token");
+            assertRejected(client, dir, "secret.txt", "is not allowed");
+            assertRejected(client, allowed, "../secret.txt", "outside of ROOT");
+            assertRejected(client, allowed, dir.resolve("secret.txt").toAbsolutePath().toString(), "outside of ROOT");
+        }
+    }
+
+}
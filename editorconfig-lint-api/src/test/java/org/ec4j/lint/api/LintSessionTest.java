@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.ec4j.core.ResourceProperties;
+import org.ec4j.lint.api.Resource.Options;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LintSessionTest {
+
+    /**
+     * Reads the whole {@link Resource} through {@link Resource#openStreamingReader()}.
+     */
+    static class ReadingLinter implements Linter {
+
+        @Override
+        public List<String> getDefaultExcludes() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getDefaultIncludes() {
+            return Collections.singletonList("**/*");
+        }
+
+        @Override
+        public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
+                throws IOException {
+            try (Reader in = resource.openStreamingReader()) {
+                final char[] buffer = new char[1024];
+                while (in.read(buffer) >= 0) {
+                    /* just read */
+                }
+            }
+        }
+    }
+
+    private Path file;
+
+    @Before
+    public void before() throws IOException {
+        file = Paths.get("target/lint-session-" + UUID.randomUUID().toString().replace("-", "") + ".txt")
+                .toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        Files.write(file, "hello\nworld\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private LintSession.Timings process(Options options, Linter... linters) throws IOException {
+        final Resource resource = new Resource(file, file.getFileName(), StandardCharsets.UTF_8, options);
+        final LintSession session = new LintSession(resource, ResourceProperties.builder().build(),
+                Arrays.asList(linters));
+        Assert.assertNull(session.getTimings());
+        session.process(new ViolationCollector(false, "", Logger.NO_OP));
+        return session.getTimings();
+    }
+
+    @Test
+    public void cached() throws IOException {
+        final Path cacheDir = Paths.get("target/lint-session-cache-" + UUID.randomUUID().toString().replace("-", ""));
+        try (LintCache cache = LintCache.builder().directory(cacheDir).log(Logger.NO_OP).build()) {
+            final Linter first = cache.wrap(new ReadingLinter());
+            final Linter second = cache.wrap(new ReadingLinter() {
+            });
+            Assert.assertEquals(1, process(Options.DEFAULT, first, second).getLoadCount());
+            /* both linters skip the file as clean, hence it is not decoded up front */
+            Assert.assertEquals(0, process(Options.DEFAULT, first, second).getLoadCount());
+        }
+    }
+
+    @Test
+    public void sharedLoad() throws IOException {
+        final LintSession.Timings timings = process(Options.DEFAULT, new ReadingLinter(), new ReadingLinter(),
+                new ReadingLinter());
+        Assert.assertEquals(1, timings.getLoadCount());
+        Assert.assertTrue(timings.getLoadNanos() > 0);
+        Assert.assertTrue(timings.toString(), timings.toString().contains("(1 pass), ReadingLinter"));
+    }
+
+    @Test
+    public void streamed() throws IOException {
+        final Options options = Options.builder().streamingThreshold(0).build();
+        Assert.assertEquals(1, process(options, new ReadingLinter()).getLoadCount());
+        /* files above the streaming threshold are not loaded up front */
+        final LintSession.Timings timings = process(options, new ReadingLinter(), new ReadingLinter());
+        Assert.assertEquals(2, timings.getLoadCount());
+        Assert.assertEquals(0L, timings.getLoadNanos());
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.ec4j.lint.api.LintEngineTest.BadLinter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LintWatcherTest {
+
+    /**
+     * Passes the files of each batch to {@link #batches}.
+     */
+    static class BatchingViolationHandler implements ViolationHandler {
+        final BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        private List<String> current;
+
+        @Override
+        public ReturnState endFile() {
+            return ReturnState.FINISHED;
+        }
+
+        @Override
+        public void endFiles() {
+            batches.add(current);
+        }
+
+        @Override
+        public Logger getLogger() {
+            return Logger.NO_OP;
+        }
+
+        @Override
+        public void handle(Violation violation) {
+        }
+
+        @Override
+        public void startFile(Resource resource) {
+            current.add(resource.toString());
+        }
+
+        @Override
+        public void startFiles() {
+            current = new ArrayList<>();
+        }
+    }
+
+    private static List<String> next(BatchingViolationHandler handler) throws InterruptedException {
+        final List<String> result = handler.batches.poll(30, TimeUnit.SECONDS);
+        Assert.assertNotNull("No batch linted in time", result);
+        return result;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void watch() throws Exception {
+        final Path dir = Paths.get("target/lint-watcher-" + UUID.randomUUID().toString().replace("-", ""));
+        for (int i = 0; i < 5; i++) {
+            write(dir.resolve("file" + i + ".txt"), "good\n");
+        }
+        write(dir.resolve(".editorconfig"), "root = true\n");
+        final BatchingViolationHandler handler = new BatchingViolationHandler();
+        final LintWatcher watcher = LintWatcher.builder() //
+                .rootDirectory(dir) //
+                .engine(LintEngine.builder()
+                        .registry(LinterRegistry.builder().log(Logger.NO_OP).entry(new BadLinter()).build())) //
+                .propertiesResolver(LintEngineTest.LF) //
+                .handler(handler) //
+                .debounceMillis(200) //
+                .build();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    watcher.run();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        thread.start();
+        try {
+            Assert.assertEquals(
+                    Arrays.asList(".editorconfig", "file0.txt", "file1.txt", "file2.txt", "file3.txt", "file4.txt"),
+                    next(handler));
+
+            /* a burst of changes is linted at once */
+            for (int i = 0; i < 3; i++) {
+                write(dir.resolve("file" + (i * 2) + ".txt"), "good bad\n");
+            }
+            Assert.assertEquals(Arrays.asList("file0.txt", "file2.txt", "file4.txt"), next(handler));
+
+            write(dir.resolve("sub/new.txt"), "bad\n");
+            Assert.assertEquals(Arrays.asList(Paths.get("sub", "new.txt").toString()), next(handler));
+
+            write(dir.resolve(".editorconfig"), "root = true\n\n");
+            Assert.assertEquals(7, next(handler).size());
+        } finally {
+            watcher.close();
+            thread.join(30000);
+        }
+        Assert.assertFalse(thread.isAlive());
+        Assert.assertEquals(4, watcher.getBatchCount());
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ec4j.lint.api.LintEngineTest.BadLinter;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class LinterRegistryTest {
+
+    /**
+     * Counts its instances.
+     */
+    public static class CountingLinter extends BadLinter {
+        static final AtomicInteger instances = new AtomicInteger();
+
+        public CountingLinter() {
+            instances.incrementAndGet();
+        }
+    }
+
+    private static final String[] PATHS = { "pom.xml", "dir1/pom.xml", "dir1/file.xml", "file.XML",
+            "dir1/dir2/file.txt", "file.skip", "dir1/.skip", "Makefile", "dir1/Makefile.txt", "file", "file.tar.gz",
+            "dir1/file.", ".xml", "/abs/file.xml", "/abs/pom.xml", "src/main/file.xml", "src/main/file.java",
+            "src/main/other.java", "src/main/file.java~", "src/target/file.java", "dir1/src/file.java",
+            "./src/file.java" };
+
+    private static LinterRegistry assertFilter(String[][] includes, String[][] excludes) {
+        final LinterRegistry.Builder builder = LinterRegistry.builder().log(Logger.NO_OP);
+        final List<PathSet> pathSets = new ArrayList<>();
+        for (int i = 0; i < includes.length; i++) {
+            builder.entry("linter" + i, BadLinter.class.getName(), BadLinter.class.getClassLoader(), includes[i],
+                    excludes[i], false);
+            pathSets.add(PathSet.builder().includes(includes[i]).excludes(excludes[i]).build());
+        }
+        final LinterRegistry registry = builder.build();
+        final List<Linter> linters = registry.getLinters();
+        for (String p : PATHS) {
+            final Path path = Paths.get(p);
+            final List<Linter> expected = new ArrayList<>();
+            for (int i = 0; i < pathSets.size(); i++) {
+                if (pathSets.get(i).contains(path)) {
+                    expected.add(linters.get(i));
+                }
+            }
+            Assert.assertEquals(p, expected, registry.filter(path));
+        }
+        return registry;
+    }
+
+    @Test
+    public void filter() {
+        /* the file name index requires the globs to be compiled to a GlobTrie */
+        Assume.assumeTrue("/".equals(FileSystems.getDefault().getSeparator()));
+        final String[][] includes = { //
+                { "**/*.xml", "**/Makefile" }, //
+                { "**/*" }, //
+                { "**/*.txt", "**/*.gz" }, //
+                { "**/pom.xml" }, //
+                { "**" } //
+        };
+        final String[][] excludes = { //
+                { "**/pom.xml" }, //
+                { "**/*.skip" }, //
+                {}, //
+                {}, //
+                { "**/*.txt", "**/file" } //
+        };
+        final LinterRegistry registry = assertFilter(includes, excludes);
+        /* the lists come from the index */
+        Assert.assertSame(registry.filter(Paths.get("file.xml")), registry.filter(Paths.get("dir1/dir2/other.xml")));
+        Assert.assertSame(registry.filter(Paths.get("file")), registry.filter(Paths.get("dir1/file")));
+    }
+
+    @Test
+    public void filterCache() {
+        /* the filter cache requires the globs to be compiled to a GlobTrie */
+        Assume.assumeTrue("/".equals(FileSystems.getDefault().getSeparator()));
+        final String[][] includes = { //
+                { "./src/**/*.java", "**/Makefile" }, //
+                { "**/*" }, //
+                { "**/src/*" } //
+        };
+        final String[][] excludes = { //
+                { "**/target/**" }, //
+                { "**/*~", "**/.#*" }, //
+                { "**/*.xml" } //
+        };
+        final LinterRegistry registry = assertFilter(includes, excludes);
+        /* e.g. dir1/pom.xml and dir1/file.xml share the directory and the file name class */
+        final long hits = registry.getFilterCacheHits();
+        final long misses = registry.getFilterCacheMisses();
+        Assert.assertTrue(hits > 0);
+        Assert.assertEquals(PATHS.length, hits + misses);
+        Assert.assertSame(registry.filter(Paths.get("src/main/file.java")),
+                registry.filter(Paths.get("src/main/other.java")));
+        Assert.assertEquals(hits + 2, registry.getFilterCacheHits());
+        Assert.assertEquals(misses, registry.getFilterCacheMisses());
+        final LinterRegistry uncached = LinterRegistry.builder().log(Logger.NO_OP).filterCacheSize(0)
+                .entry("linter", BadLinter.class.getName(), BadLinter.class.getClassLoader(), includes[0],
+                        excludes[0], false)
+                .build();
+        uncached.filter(Paths.get("src/main/file.java"));
+        Assert.assertEquals(0, uncached.getFilterCacheMisses());
+    }
+
+    @Test
+    public void scanIndex() throws IOException {
+        final Path dir = Paths.get("target/linter-index-" + UUID.randomUUID().toString());
+        final Path index = dir.resolve(LinterIndex.RESOURCE);
+        final Path services = dir.resolve(LinterIndex.SERVICES_RESOURCE);
+        Files.createDirectories(index.getParent());
+        Files.createDirectories(services.getParent());
+        /* BadLinter is indexed but not registered as a service provider, hence ignored */
+        Files.write(index, Arrays.asList("# a comment", CountingLinter.class.getName(), "+**/*.counted", "-**/skip.*",
+                BadLinter.class.getName(), "+**/*.counted"), StandardCharsets.UTF_8);
+        Files.write(services, Arrays.asList(CountingLinter.class.getName()), StandardCharsets.UTF_8);
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { dir.toUri().toURL() },
+                getClass().getClassLoader())) {
+            CountingLinter.instances.set(0);
+            final LinterRegistry registry = LinterRegistry.builder().log(Logger.NO_OP).scan(classLoader).build();
+            Assert.assertEquals(0, CountingLinter.instances.get());
+            Assert.assertEquals(Collections.emptyList(), registry.filter(Paths.get("dir1/file.txt")));
+            Assert.assertEquals(Collections.emptyList(), registry.filter(Paths.get("dir1/skip.counted")));
+            Assert.assertEquals(0, CountingLinter.instances.get());
+            final List<Linter> linters = registry.filter(Paths.get("dir1/file.counted"));
+            Assert.assertEquals(1, linters.size());
+            Assert.assertTrue(linters.get(0) instanceof CountingLinter);
+            Assert.assertSame(linters.get(0), registry.filter(Paths.get("file.counted")).get(0));
+            Assert.assertEquals(1, CountingLinter.instances.get());
+        }
+    }
+
+    @Test
+    public void scanIndexMissingClass() throws IOException {
+        final Path dir = Paths.get("target/linter-index-" + UUID.randomUUID().toString());
+        final Path index = dir.resolve(LinterIndex.RESOURCE);
+        final Path services = dir.resolve(LinterIndex.SERVICES_RESOURCE);
+        Files.createDirectories(index.getParent());
+        Files.createDirectories(services.getParent());
+        Files.write(index, Arrays.asList("org.ec4j.lint.api.MissingLinter", "+**/*.missing"), StandardCharsets.UTF_8);
+        Files.write(services, Arrays.asList("org.ec4j.lint.api.MissingLinter"), StandardCharsets.UTF_8);
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { dir.toUri().toURL() },
+                getClass().getClassLoader())) {
+            LinterRegistry.builder().log(Logger.NO_OP).scan(classLoader);
+            Assert.fail("RuntimeException expected");
+        } catch (RuntimeException expected) {
+            Assert.assertEquals("Could not load class org.ec4j.lint.api.MissingLinter", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void filterFallback() {
+        /* an include depending on the parent directory disables the index for the whole registry */
+        final String[][] includes = { //
+                { "**/*.xml" }, //
+                { "**/dir1/*" }, //
+        };
+        final String[][] excludes = { //
+                { "**/pom.xml" }, //
+                { "**/*.skip" }, //
+        };
+        assertFilter(includes, excludes);
+    }
+
+}
@@ -16,9 +16,12 @@
  */
 package org.ec4j.lint.api;
 
+import java.nio.file.FileSystems;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 public class PathSetTest {
@@ -40,4 +43,43 @@ public class PathSetTest {
         assertContains(ps, "dir1/file.bad", false);
     }
 
+    @Test
+    public void mayContainUnder() {
+        /* the globs are compiled to a GlobTrie only on file systems using / as separator */
+        Assume.assumeTrue("/".equals(FileSystems.getDefault().getSeparator()));
+        PathSet ps = PathSet.builder() //
+                .includes("./src/**/*.java") //
+                .excludes(new ArrayList<>(Constants.DEFAULT_EXCLUDES)) //
+                .build();
+
+        Assert.assertTrue(ps.mayContainUnder(Paths.get("src")));
+        Assert.assertFalse(ps.mayContainUnder(Paths.get("src/main/.git")));
+        Assert.assertFalse(ps.mayContainUnder(Paths.get("docs")));
+        Assert.assertFalse(ps.mayContainUnder(Paths.get("src/target")));
+
+        /* includes not supported by the trie cannot be analyzed */
+        PathSet groups = PathSet.builder() //
+                .includes("./src/**/*.{java,xml}") //
+                .excludes("**/target/**") //
+                .build();
+        Assert.assertTrue(groups.mayContainUnder(Paths.get("docs")));
+        Assert.assertFalse(groups.mayContainUnder(Paths.get("src/target")));
+    }
+
+    @Test
+    public void unsupportedByTrie() {
+        PathSet ps = PathSet.builder() //
+                .includes("**/*.{xml,xsl}", "**/*.txt") //
+                .excludes("**/[ab].*", "**/target/**") //
+                .build();
+
+        assertContains(ps, "pom.xml", true);
+        assertContains(ps, "dir1/file.xsl", true);
+        assertContains(ps, "dir1/file.txt", true);
+        assertContains(ps, "dir1/a.txt", false);
+        assertContains(ps, "dir1/b.xml", false);
+        assertContains(ps, "target/file.txt", false);
+        assertContains(ps, "dir1/file.java", false);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PieceTableTest {
+
+    private static void assertSame(StringBuilder expected, PieceTable actual) {
+        final String expectedString = expected.toString();
+        Assert.assertEquals(expectedString.length(), actual.length());
+        Assert.assertEquals(expectedString, actual.toString());
+        for (int i = 0; i < expectedString.length(); i++) {
+            Assert.assertEquals(expectedString.charAt(i), actual.charAt(i));
+        }
+        /* backwards to defeat the cursor */
+        for (int i = expectedString.length() - 1; i >= 0; i--) {
+            Assert.assertEquals(expectedString.charAt(i), actual.charAt(i));
+        }
+        final int len = expectedString.length();
+        for (int start = 0; start <= len; start += 3) {
+            final int end = Math.min(len, start + 5);
+            Assert.assertEquals(expectedString.substring(start, end), actual.subSequence(start, end).toString());
+            final char[] chars = new char[end - start + 2];
+            actual.getChars(start, end, chars, 1);
+            Assert.assertEquals(expectedString.substring(start, end), new String(chars, 1, end - start));
+        }
+    }
+
+    @Test
+    public void appendsMerge() {
+        final PieceTable pt = new PieceTable(new StringBuilder("hello world"));
+        pt.insert(5, ",");
+        pt.insert(6, " dear");
+        pt.insert(11, " old");
+        Assert.assertEquals("hello, dear old world", pt.toString());
+        Assert.assertEquals(3, pt.pieceCount());
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void charAtOutOfBounds() {
+        new PieceTable(new StringBuilder("abc")).charAt(3);
+    }
+
+    @Test
+    public void clamp() {
+        /* end beyond length is clamped like in StringBuilder */
+        final PieceTable pt = new PieceTable(new StringBuilder("abc"));
+        pt.delete(2, 10);
+        Assert.assertEquals("ab", pt.toString());
+        pt.replace(1, 10, "xy");
+        Assert.assertEquals("axy", pt.toString());
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void deleteStartAfterEnd() {
+        new PieceTable(new StringBuilder("abc")).delete(2, 1);
+    }
+
+    @Test
+    public void empty() {
+        final PieceTable pt = new PieceTable(new StringBuilder());
+        Assert.assertEquals(0, pt.length());
+        Assert.assertEquals("", pt.toString());
+        pt.insert(0, "abc");
+        pt.delete(0, 3);
+        Assert.assertEquals("", pt.toString());
+        Assert.assertEquals(0, pt.pieceCount());
+    }
+
+    @Test
+    public void random() {
+        final Random rnd = new Random(42);
+        final String alphabet = "ab \r\né";
+        for (int round = 0; round < 200; round++) {
+            final StringBuilder original = new StringBuilder();
+            for (int i = rnd.nextInt(50); i > 0; i--) {
+                original.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+            }
+            final String originalString = original.toString();
+            final StringBuilder expected = new StringBuilder(original);
+            final PieceTable actual = new PieceTable(original);
+            for (int edit = 0; edit < 30; edit++) {
+                final int start = rnd.nextInt(expected.length() + 1);
+                final int end = start + rnd.nextInt(expected.length() - start + 1);
+                final StringBuilder s = new StringBuilder();
+                for (int i = rnd.nextInt(4); i > 0; i--) {
+                    s.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+                }
+                switch (rnd.nextInt(3)) {
+                    case 0:
+                        expected.insert(start, s);
+                        actual.insert(start, s);
+                        break;
+                    case 1:
+                        expected.delete(start, end);
+                        actual.delete(start, end);
+                        break;
+                    default:
+                        expected.replace(start, end, s.toString());
+                        actual.replace(start, end, s.toString());
+                        break;
+                }
+                assertSame(expected, actual);
+            }
+            Assert.assertEquals("the original buffer must not be modified", originalString, original.toString());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void insertOutOfBounds() {
+        new PieceTable(new StringBuilder("abc")).insert(4, "x");
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void replaceOutOfBounds() {
+        new PieceTable(new StringBuilder("abc")).replace(4, 5, "x");
+    }
+
+}
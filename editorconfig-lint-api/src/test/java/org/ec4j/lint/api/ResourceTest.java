@@ -20,18 +20,36 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 
+import org.ec4j.lint.api.Resource.Options;
+import org.ec4j.lint.api.Resource.StoreMode;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
+@RunWith(Parameterized.class)
 public class ResourceTest {
 
+    @Parameters(name = "pieceTableThreshold {0}")
+    public static Iterable<Object[]> data() {
+        return Arrays.asList(new Object[] { Integer.MAX_VALUE }, new Object[] { 0 });
+    }
+
     private Resource doc;
     private Path path;
 
@@ -63,6 +81,13 @@ public class ResourceTest {
             "Cras luctus justo ut mi laoreet,\n" + //
             "vel tristique mi pretium.\nPellentesque...";
 
+    private final Options options;
+
+    public ResourceTest(int pieceTableThreshold) {
+        super();
+        this.options = Options.builder().pieceTableThreshold(pieceTableThreshold).build();
+    }
+
     @After
     public void after() throws IOException {
         doc.replace(0, doc.length(), INITIAL_TEXT);
@@ -82,6 +107,71 @@ public class ResourceTest {
         doc = load();
     }
 
+    @Test
+    public void changedCancelledEdits() {
+        final Resource resource = new Resource(Paths.get("changed.txt"), Paths.get("changed.txt"),
+                StandardCharsets.UTF_8, "a\r\nb\r\nc\r\n", options);
+        resource.replace(1, 3, "\n");
+        resource.replace(3, 5, "\n");
+        Assert.assertTrue(resource.changed());
+        resource.replace(3, 4, "\r\n");
+        resource.replace(1, 2, "\r\n");
+        Assert.assertEquals("a\r\nb\r\nc\r\n", resource.getText());
+        Assert.assertFalse(resource.changed());
+
+        /* the same length, but not the same content */
+        resource.replace(0, 1, "x");
+        Assert.assertTrue(resource.changed());
+        resource.insert(0, "a");
+        resource.delete(1, 2);
+        Assert.assertFalse(resource.changed());
+
+        /* a monotone sequence of edits whose effects cancel out only as a whole */
+        resource.delete(0, 1);
+        resource.insert(1, "a");
+        Assert.assertEquals("\ra\nb\r\nc\r\n", resource.getText());
+        Assert.assertTrue(resource.changed());
+        resource.delete(1, 2);
+        resource.insert(0, "a");
+        Assert.assertFalse(resource.changed());
+    }
+
+    @Test
+    public void changedHashCollision() {
+        /* "Aa" and "BB" have the same String.hashCode() */
+        final Resource resource = new Resource(Paths.get("changed.txt"), Paths.get("changed.txt"),
+                StandardCharsets.UTF_8, "xAa", options);
+        resource.replace(1, 3, "BB");
+        Assert.assertEquals("xAa".hashCode(), resource.getText().hashCode());
+        Assert.assertTrue(resource.changed());
+    }
+
+    @Test
+    public void changedRandom() {
+        final Random random = new Random(42);
+        final String alphabet = "ab\r\n";
+        for (int round = 0; round < 500; round++) {
+            final StringBuilder original = new StringBuilder();
+            for (int i = random.nextInt(20); i > 0; i--) {
+                original.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            final Resource resource = new Resource(Paths.get("changed.txt"), Paths.get("changed.txt"),
+                    StandardCharsets.UTF_8, original.toString(), options);
+            for (int edit = random.nextInt(6); edit > 0; edit--) {
+                final int len = resource.length();
+                final int start = random.nextInt(len + 1);
+                final int end = Math.min(len, start + random.nextInt(3));
+                final StringBuilder replacement = new StringBuilder();
+                for (int i = random.nextInt(3); i > 0; i--) {
+                    replacement.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                resource.replace(start, end, replacement.toString());
+            }
+            Assert.assertEquals(original + " -> " + resource.getText(),
+                    !original.toString().equals(resource.getText()), resource.changed());
+        }
+    }
+
     @Test
     public void delete() {
 
@@ -107,6 +197,22 @@ public class ResourceTest {
         assertLocation("\r\n", 1, 1, 2);
         assertLocation("\r\n", 2, 2, 1);
         assertLocation("\r\n ", 2, 2, 1);
+        assertLocation("\r", 1, 2, 1);
+        assertLocation("a\rb\n", 3, 2, 2);
+        assertLocation("a\rb\n", 4, 3, 1);
+        /* offsets past the end are mapped to the end of the text */
+        assertLocation("a\rb\n", 10, 3, 1);
+        assertLocation(" ", 3, 1, 2);
+    }
+
+    @Test
+    public void findLocations() {
+        final Resource resource = new Resource(Paths.get("foo"), Paths.get("foo"), StandardCharsets.UTF_8,
+                "a\r\nbc\n", options);
+        Assert.assertArrayEquals(
+                new Location[] { new Location(1, 1), new Location(1, 3), new Location(2, 1), new Location(2, 3),
+                        new Location(3, 1), new Location(3, 1) },
+                resource.findLocations(new int[] { 0, 2, 3, 5, 6, 42 }));
     }
 
     private static void assertLocation(String source, int offset, int expectedLine, int expectedColumn) {
@@ -115,6 +221,25 @@ public class ResourceTest {
         Assert.assertEquals(new Location(expectedLine, expectedColumn), actual);
     }
 
+    @Test
+    public void editsKeepIndexUpToDate() {
+        /* build the index first */
+        Assert.assertEquals(22, doc.findLineStart(2));
+
+        doc.insert(0, "Lorem\r\n");
+        Assert.assertEquals(7, doc.findLineStart(2));
+        Assert.assertEquals(29, doc.findLineStart(3));
+
+        doc.replace(5, 7, "\r");
+        Assert.assertEquals(6, doc.findLineStart(2));
+
+        doc.delete(5, 6);
+        Assert.assertEquals(0, doc.findLineStart(1));
+        Assert.assertEquals(27, doc.findLineStart(2));
+        Assert.assertEquals(new Location(2, 1), doc.findLocation(27));
+        Assert.assertEquals(new Location(5, 1), doc.findLocation(doc.length()));
+    }
+
     @Test
     public void findLineStartCr() {
         String text = doc.getText().replace('\n', '\r');
@@ -184,7 +309,7 @@ public class ResourceTest {
         final String uuid = UUID.randomUUID().toString().replace("-", "");
         path = Paths.get("target/document-" + uuid + ".txt");
         Files.copy(DOCUMENT_PATH, path);
-        return new Resource(path, path, StandardCharsets.UTF_8);
+        return new Resource(path, path, StandardCharsets.UTF_8, options);
     }
 
     @Test
@@ -226,4 +351,37 @@ public class ResourceTest {
 
     }
 
+    @Test
+    public void storeAtomic() throws IOException {
+        final Path dir = path.toAbsolutePath().getParent();
+        final boolean posix = Files.getFileAttributeView(path, PosixFileAttributeView.class) != null;
+        final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        if (posix) {
+            Files.setPosixFilePermissions(path, permissions);
+        }
+        final Path backupFile = Paths.get(path.toString() + ".bak");
+        try (FsyncBatch fsync = new FsyncBatch()) {
+            final Resource atomicDoc = new Resource(path, path, StandardCharsets.UTF_8,
+                    Options.builder().storeMode(StoreMode.ATOMIC).fsync(fsync).build());
+            final FormattingHandler handler = new FormattingHandler(true, ".bak", Logger.NO_OP);
+            handler.startFiles();
+            handler.startFile(atomicDoc);
+            final int offset = atomicDoc.findLineStart(2);
+            atomicDoc.delete(offset, offset + 2);
+            handler.endFile();
+            handler.endFiles();
+
+            Assert.assertEquals(TEXT_AFTER_DELETION, new Resource(path, path, StandardCharsets.UTF_8).getText());
+            Assert.assertEquals(INITIAL_TEXT, new Resource(backupFile, backupFile, StandardCharsets.UTF_8).getText());
+            if (posix) {
+                Assert.assertEquals(permissions, Files.getPosixFilePermissions(path));
+            }
+            try (DirectoryStream<Path> tmpFiles = Files.newDirectoryStream(dir, "*.tmp")) {
+                Assert.assertFalse(tmpFiles.iterator().hasNext());
+            }
+        } finally {
+            Files.deleteIfExists(backupFile);
+        }
+    }
+
 }
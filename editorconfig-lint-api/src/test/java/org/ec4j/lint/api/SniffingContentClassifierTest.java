@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.ec4j.core.Resource.Charsets;
+import org.ec4j.lint.api.Resource.Options;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SniffingContentClassifierTest {
+
+    private static final String TEXT = "hello\r\n\tžluťoučký kůň\n😀\f\u001b[0m\n";
+
+    private static void assertBinary(boolean expected, byte[] bytes, Charset charset) {
+        final ByteBuffer head = ByteBuffer.wrap(bytes);
+        Assert.assertEquals(charset.name(), expected,
+                Constants.DEFAULT_CONTENT_CLASSIFIER.isBinary(head, charset));
+        Assert.assertEquals(0, head.position());
+        Assert.assertEquals(bytes.length, head.limit());
+    }
+
+    @Test
+    public void binary() {
+        final byte[] allBytes = new byte[256];
+        for (int i = 0; i < allBytes.length; i++) {
+            allBytes[i] = (byte) i;
+        }
+        assertBinary(true, allBytes, StandardCharsets.UTF_8);
+        assertBinary(true, allBytes, StandardCharsets.ISO_8859_1);
+
+        /* a PNG header */
+        final byte[] png = new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 0x0d, 'I', 'H',
+                'D', 'R' };
+        assertBinary(true, png, StandardCharsets.UTF_8);
+
+        /* no NULs, but mostly invalid UTF-8 */
+        final byte[] invalid = new byte[1024];
+        Arrays.fill(invalid, (byte) 0xff);
+        assertBinary(true, invalid, StandardCharsets.UTF_8);
+
+        /* no NULs, but too many control characters */
+        final byte[] controls = "a\u0001b\u0002c\u0003d\u0004".getBytes(StandardCharsets.US_ASCII);
+        assertBinary(true, controls, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void resource() throws IOException {
+        final Path dir = Paths.get("target/sniffing-" + UUID.randomUUID().toString().replace("-", ""));
+        Files.createDirectories(dir);
+        final Path text = dir.resolve("text.txt");
+        Files.write(text, TEXT.getBytes(StandardCharsets.UTF_8));
+        final Path binary = dir.resolve("binary.txt");
+        Files.write(binary, new byte[] { 'a', 0, 'b' });
+        final Path bom = dir.resolve("bom.txt");
+        final byte[] textBytes = TEXT.getBytes(StandardCharsets.UTF_8);
+        final byte[] bomBytes = new byte[textBytes.length + 3];
+        bomBytes[0] = (byte) 0xEF;
+        bomBytes[1] = (byte) 0xBB;
+        bomBytes[2] = (byte) 0xBF;
+        System.arraycopy(textBytes, 0, bomBytes, 3, textBytes.length);
+        Files.write(bom, bomBytes);
+
+        Assert.assertFalse(new Resource(text, text, StandardCharsets.UTF_8).isBinary());
+        Assert.assertFalse(new Resource(bom, bom, Charsets.forName("utf-8-bom")).isBinary());
+        final Resource binaryResource = new Resource(binary, binary, StandardCharsets.UTF_8);
+        Assert.assertTrue(binaryResource.isBinary());
+        Assert.assertNull("no text buffer should be allocated", binaryResource.text);
+        Assert.assertFalse(new Resource(binary, binary, StandardCharsets.UTF_8,
+                Options.builder().contentClassifier(null).build()).isBinary());
+        Assert.assertFalse(new Resource(dir.resolve("missing.txt"), dir.resolve("missing.txt"),
+                StandardCharsets.UTF_8).isBinary());
+    }
+
+    @Test
+    public void text() {
+        assertBinary(false, new byte[0], StandardCharsets.UTF_8);
+        assertBinary(false, TEXT.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        assertBinary(false, TEXT.getBytes(StandardCharsets.UTF_16), StandardCharsets.UTF_16);
+        assertBinary(false, TEXT.getBytes(StandardCharsets.UTF_16LE), StandardCharsets.UTF_16LE);
+        assertBinary(false, "hello\nworld\n".getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.ISO_8859_1);
+
+        /* a few bytes in a wrong encoding do not make a file binary */
+        assertBinary(false, "hello é world".getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+
+        /* a multi-byte sequence cut off at the end of the head */
+        final byte[] utf8 = "kůň".getBytes(StandardCharsets.UTF_8);
+        assertBinary(false, Arrays.copyOf(utf8, utf8.length - 1), StandardCharsets.UTF_8);
+    }
+
+}
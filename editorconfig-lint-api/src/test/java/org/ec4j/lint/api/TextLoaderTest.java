@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.ec4j.core.Resource.Charsets;
+import org.ec4j.lint.api.Resource.LoadMode;
+import org.ec4j.lint.api.Resource.Options;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TextLoaderTest {
+
+    private static void assertLoad(byte[] bytes, Charset charset) throws IOException {
+        final Path path = Paths.get("target/text-loader-" + UUID.randomUUID().toString().replace("-", "") + ".txt");
+        Files.createDirectories(path.getParent());
+        Files.write(path, bytes);
+        try {
+            final String expected = new Resource(path, path, charset,
+                    Options.builder().loadMode(LoadMode.STREAM).build()).getText();
+            for (LoadMode mode : LoadMode.values()) {
+                final Resource resource = new Resource(path, path, charset,
+                        Options.builder().loadMode(mode).build());
+                Assert.assertEquals(mode.name(), expected, resource.getText());
+                Assert.assertFalse(mode.name(), resource.changed());
+            }
+            final Resource streamed = new Resource(path, path, charset,
+                    Options.builder().streamingThreshold(0).build());
+            Assert.assertEquals("streaming", expected, read(streamed.openStreamingReader()));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static String read(Reader reader) throws IOException {
+        try (Reader r = reader) {
+            final StringBuilder result = new StringBuilder();
+            /* an odd size to read across the windows of the underlying reader */
+            final char[] buffer = new char[1000];
+            int len;
+            while ((len = r.read(buffer)) >= 0) {
+                result.append(buffer, 0, len);
+            }
+            return result.toString();
+        }
+    }
+
+    private static byte[] repeat(String text, Charset charset, int count) {
+        final byte[] unit = text.getBytes(charset);
+        final byte[] result = new byte[unit.length * count];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(unit, 0, result, i * unit.length, unit.length);
+        }
+        return result;
+    }
+
+    @Test
+    public void ascii() throws IOException {
+        assertLoad(new byte[0], StandardCharsets.UTF_8);
+        assertLoad("hello\nworld\r\n".getBytes(StandardCharsets.US_ASCII), StandardCharsets.US_ASCII);
+        assertLoad("hello\nworld\r\n".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void bom() throws IOException {
+        final Charset charset = Charsets.forName("utf-8-bom");
+        final byte[] text = "hello world".getBytes(StandardCharsets.UTF_8);
+        final byte[] bytes = new byte[text.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(text, 0, bytes, 3, text.length);
+        assertLoad(bytes, charset);
+        assertLoad(new byte[0], charset);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void bomMissing() throws IOException {
+        final Path path = Paths.get("target/text-loader-" + UUID.randomUUID().toString().replace("-", "") + ".txt");
+        Files.createDirectories(path.getParent());
+        Files.write(path, "hello".getBytes(StandardCharsets.UTF_8));
+        try {
+            new Resource(path, path, Charsets.forName("utf-8-bom")).getText();
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void large() throws IOException {
+        /* beyond TextLoader.MAP_THRESHOLD so that LoadMode.MAPPED really maps */
+        assertLoad(repeat("Lorem ipsum dolor sit amet,\n", StandardCharsets.UTF_8, 10000), StandardCharsets.UTF_8);
+        assertLoad(repeat("Příliš žluťoučký kůň úpěl ďábelské ódy 😀\n", StandardCharsets.UTF_8, 10000),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void malformed() throws IOException {
+        final byte[] bytes = "hello é world".getBytes(StandardCharsets.ISO_8859_1);
+        assertLoad(bytes, StandardCharsets.UTF_8);
+        final byte[] binary = new byte[256];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) i;
+        }
+        assertLoad(binary, StandardCharsets.UTF_8);
+        assertLoad(binary, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void nonAscii() throws IOException {
+        final String text = "hello\nžluťoučký kůň\r\n😀";
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+                StandardCharsets.UTF_16, StandardCharsets.UTF_16LE, Charset.forName("windows-1250"))) {
+            assertLoad(text.getBytes(charset), charset);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.ec4j.core.Resource.Bom;
+import org.ec4j.core.Resource.Charsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TextStorerTest {
+
+    private static void assertWrite(String text, Charset charset) throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (OutputStream out = Bom.writeBom(expected, charset); Writer w = new OutputStreamWriter(out, charset)) {
+            w.write(text);
+        }
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        TextStorer.write(TextBuffer.of(new StringBuilder(text)), charset, Channels.newChannel(actual));
+        Assert.assertArrayEquals(charset.name(), expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void write() throws IOException {
+        final StringBuilder big = new StringBuilder();
+        while (big.length() < 3 * TextStorer.CHUNK_SIZE) {
+            /* the odd length makes the surrogate pairs span the chunk boundaries */
+            big.append("Příliš žluťoučký kůň úpěl ďábelské ódy 😀\n");
+        }
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+                StandardCharsets.UTF_16, StandardCharsets.UTF_16LE, Charset.forName("windows-1250"),
+                Charsets.forName("utf-8-bom"))) {
+            assertWrite("", charset);
+            assertWrite("hello\r\nworld", charset);
+            assertWrite("lone surrogate \ud83d and unmappable 😀", charset);
+            assertWrite(big.toString(), charset);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.benchmarks;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.ec4j.lint.api.Constants;
+import org.ec4j.lint.api.PathSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link PathSet#contains(Path)} with the former implementation evaluating one {@link PathMatcher} per glob.
+ * Both get {@link Constants#DEFAULT_EXCLUDES} plus a few includes and a mix of included and excluded paths. Meant to
+ * be run also with {@code -prof gc} to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathSetBenchmark {
+
+    private static final Path CURRENT_DIR = Paths.get(".");
+
+    private static final String[] INCLUDES = { "**/*.xml", "**/*.xsl", "**/*.java", "**/*.txt" };
+
+    private static final String[] PATHS = { "pom.xml", "src/main/java/org/example/Foo.java",
+            "src/main/resources/META-INF/services/org.example.Service", "target/classes/org/example/Foo.class",
+            "module/src/test/resources/data/input.txt", ".git/objects/12/3456789abcdef", "docs/site.xsl",
+            "node_modules/some-lib/dist/index.js", "module/build/reports/tests/index.html", "README.md~" };
+
+    private List<PathMatcher> excludeMatchers;
+
+    private List<PathMatcher> includeMatchers;
+
+    private PathSet pathSet;
+
+    private Path[] paths;
+
+    private boolean matchers(Path path) {
+        final Path resolved = CURRENT_DIR.resolve(path);
+        for (PathMatcher exclude : excludeMatchers) {
+            if (exclude.matches(resolved)) {
+                return false;
+            }
+        }
+        for (PathMatcher include : includeMatchers) {
+            if (include.matches(resolved)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public int pathMatchers() {
+        int result = 0;
+        for (Path path : paths) {
+            if (matchers(path)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int pathSet() {
+        int result = 0;
+        for (Path path : paths) {
+            if (pathSet.contains(path)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Setup
+    public void setup() {
+        pathSet = PathSet.builder().includes(INCLUDES).excludes(new ArrayList<>(Constants.DEFAULT_EXCLUDES))
+                .build();
+        excludeMatchers = new ArrayList<>();
+        for (String glob : Constants.DEFAULT_EXCLUDES) {
+            excludeMatchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+        includeMatchers = new ArrayList<>();
+        for (String glob : INCLUDES) {
+            includeMatchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+        paths = new Path[PATHS.length];
+        for (int i = 0; i < PATHS.length; i++) {
+            paths[i] = Paths.get(PATHS[i]);
+            if (pathSet.contains(paths[i]) != matchers(paths[i])) {
+                throw new IllegalStateException("PathSet and PathMatchers disagree on " + PATHS[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.ec4j.lint.api.Resource;
+import org.ec4j.lint.api.Resource.LoadMode;
+import org.ec4j.lint.api.Resource.Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The full life cycle of a {@link Resource}: load, index, edit and store. Meant to be run with {@code -prof gc} to see
+ * the allocation rate per operation ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceAllocationBenchmark {
+
+    @Param({ "100", "10000" })
+    public int lineCount;
+
+    @Param({ "STREAM", "CHANNEL" })
+    public LoadMode loadMode;
+
+    private Options options;
+
+    private Path path;
+
+    @Benchmark
+    public int lifeCycle() throws IOException {
+        final Resource resource = new Resource(path, path, StandardCharsets.UTF_8, options);
+        final int lineStart = resource.findLineStart(lineCount / 2);
+        /* an edit that keeps the content as it is so that every iteration stores the same file */
+        resource.replace(0, 1, "/");
+        resource.store();
+        return lineStart;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        path = SampleFiles.write(lineCount, StandardCharsets.UTF_8);
+        options = Options.builder().loadMode(loadMode).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
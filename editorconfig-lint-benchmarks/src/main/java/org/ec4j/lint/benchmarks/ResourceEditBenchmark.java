@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.ec4j.lint.api.Resource;
+import org.ec4j.lint.api.Resource.Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Edits every line of a {@link Resource} the way {@code FormattingHandler} does, i.e. from the beginning towards the
+ * end, with and without a piece table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceEditBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int lineCount;
+
+    @Param({ "0", "2147483647" })
+    public int pieceTableThreshold;
+
+    private Options options;
+
+    private final Path path = Paths.get("Sample.java");
+
+    private String text;
+
+    @Benchmark
+    public int indent() {
+        final Resource resource = new Resource(path, path, StandardCharsets.UTF_8, text, options);
+        for (int line = 1; line <= lineCount; line++) {
+            final int offset = resource.findLineStart(line);
+            resource.insert(offset, "  ");
+        }
+        return resource.length();
+    }
+
+    @Setup
+    public void setup() {
+        text = SampleFiles.text(lineCount);
+        options = Options.builder().pieceTableThreshold(pieceTableThreshold).build();
+    }
+}
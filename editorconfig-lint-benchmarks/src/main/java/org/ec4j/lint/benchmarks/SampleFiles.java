@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.lint.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates sample source files for benchmarks.
+ */
+public final class SampleFiles {
+
+    private static final String[] LINES = { //
+            "/*", //
+            " * Licensed under the Apache License, Version 2.0 (the \"License\");", //
+            " */", //
+            "package org.example;", //
+            "", //
+            "public class Sample {", //
+            "    private final String name = \"Příliš žluťoučký kůň\";", //
+            "    public String getName() {", //
+            "        return name; ", //
+            "    }", //
+            "\t", //
+            "}" //
+    };
+
+    /**
+     * @param lineCount the number of lines to generate
+     * @return a Java-like text having the given number of lines, a few of them with trailing whitespace and some
+     *         non-ASCII characters
+     */
+    public static String text(int lineCount) {
+        final StringBuilder sb = new StringBuilder(lineCount * 40);
+        for (int i = 0; i < lineCount; i++) {
+            sb.append(LINES[i % LINES.length]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes {@link #text(int)} to a new temporary file.
+     *
+     * @param lineCount the number of lines to generate
+     * @param charset the encoding of the file
+     * @return the {@link Path} of the new file
+     * @throws IOException on I/O problems
+     */
+    public static Path write(int lineCount, Charset charset) throws IOException {
+        final Path result = Files.createTempFile("ec4j-benchmark-", ".java");
+        result.toFile().deleteOnExit();
+        Files.write(result, text(lineCount).getBytes(charset));
+        return result;
+    }
+
+    private SampleFiles() {
+    }
+}
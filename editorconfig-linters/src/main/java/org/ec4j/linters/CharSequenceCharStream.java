@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.linters;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A {@link CharStream} reading directly from a {@link CharSequence}, without copying it to a code point buffer like
+ * {@link CharStreams} do. The {@link CharSequence} must not change while the {@link CharStream} is in use.
+ *
+ * @since 2.2.3
+ */
+final class CharSequenceCharStream implements CharStream {
+
+    /**
+     * @param text the text to read
+     * @param sourceName the name of the source to report in error messages
+     * @return a {@link CharSequenceCharStream} if {@code text} contains only chars of the Basic Multilingual Plane
+     *         and hence chars and code points are the same; otherwise a copy made by
+     *         {@link CharStreams#fromString(String, String)}
+     */
+    static CharStream of(CharSequence text, String sourceName) {
+        final int len = text.length();
+        for (int i = 0; i < len; i++) {
+            if (Character.isSurrogate(text.charAt(i))) {
+                return CharStreams.fromString(text.toString(), sourceName);
+            }
+        }
+        return new CharSequenceCharStream(text, sourceName);
+    }
+
+    private int position;
+    private final int size;
+    private final String sourceName;
+    private final CharSequence text;
+
+    CharSequenceCharStream(CharSequence text, String sourceName) {
+        super();
+        this.text = text;
+        this.size = text.length();
+        this.sourceName = sourceName;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void consume() {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getSourceName() {
+        return sourceName == null || sourceName.isEmpty() ? IntStream.UNKNOWN_SOURCE_NAME : sourceName;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getText(Interval interval) {
+        final int start = Math.min(interval.a, size);
+        final int len = Math.min(interval.b - interval.a + 1, size - start);
+        return len <= 0 ? "" : text.subSequence(start, start + len).toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int index() {
+        return position;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int LA(int i) {
+        final int offset;
+        if (i > 0) {
+            offset = position + i - 1;
+            if (offset >= size) {
+                return IntStream.EOF;
+            }
+        } else if (i < 0) {
+            offset = position + i;
+            if (offset < 0) {
+                return IntStream.EOF;
+            }
+        } else {
+            /* undefined */
+            return 0;
+        }
+        return text.charAt(offset);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void release(int marker) {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void seek(int index) {
+        position = index;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+
+}
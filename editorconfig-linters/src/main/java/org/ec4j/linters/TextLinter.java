@@ -17,21 +17,22 @@
 package org.ec4j.linters;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.charset.MalformedInputException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.ec4j.core.ResourceProperties;
 import org.ec4j.core.model.PropertyType;
 import org.ec4j.core.model.PropertyType.EndOfLineValue;
+import org.ec4j.lint.api.BufferArena;
+import org.ec4j.lint.api.CancellationToken;
 import org.ec4j.lint.api.Delete;
 import org.ec4j.lint.api.Edit;
 import org.ec4j.lint.api.FormatException;
+import org.ec4j.lint.api.IndexedLinter;
 import org.ec4j.lint.api.Insert;
-import org.ec4j.lint.api.LineReader;
 import org.ec4j.lint.api.Linter;
 import org.ec4j.lint.api.Location;
 import org.ec4j.lint.api.Logger;
@@ -49,17 +50,274 @@ import org.ec4j.lint.api.ViolationHandler;
  * <li>{@code trim_trailing_whitespace}</li>
  * <li>{@code insert_final_newline}</li>
  * </ul>
+ * <p>
+ * The content is read through {@link Resource#openStreamingReader()} and scanned in fixed-size windows, so that
+ * checking a big file does not require loading it to memory as a whole. Content decoded to memory already is scanned
+ * in place.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  * @since 0.0.1
  */
+@IndexedLinter(includes = "**/*")
 public class TextLinter implements Linter {
+
+    /**
+     * A state machine consuming the content of a {@link Resource} window by window and reporting the violations line
+     * by line. Only the current line's state is kept, so the memory needed does not depend on the size of the
+     * {@link Resource}.
+     */
+    private class LineScanner {
+        private final CancellationToken cancellationToken;
+
+        private final PropertyType.EndOfLineValue eol;
+
+        /** The number of {@code char}s of the current line, including the end of line characters seen so far */
+        private int column;
+
+        /** The EOL string of the last complete line or {@code null} if there is no such line */
+        String lastEol;
+
+        /** The length of the last complete line or {@code -1} if there is no such line */
+        int lastLineLength = -1;
+
+        /** The one based number of the current line */
+        int lineNumber = 1;
+
+        private final Logger log;
+
+        /** {@code true} if the last {@code char} was {@code '\r'} that did not end the current line yet */
+        private boolean pendingCr;
+
+        private final Resource resource;
+
+        /** The current line's content; only maintained if trace logging is enabled */
+        private final StringBuilder traceLine;
+
+        /** The length of the trailing whitespace found in the current line or {@code 0} */
+        private int trailingWsLength;
+
+        /** The zero based column of the trailing whitespace found in the current line or {@code -1} */
+        private int trailingWsStart = -1;
+
+        private final boolean trimTrailingWs;
+
+        private final ViolationHandler violationHandler;
+
+        /** The zero based column where the current run of spaces and tabs started or {@code -1} */
+        private int wsStart = -1;
+
+        LineScanner(Resource resource, PropertyType.EndOfLineValue eol, boolean trimTrailingWs,
+                ViolationHandler violationHandler, Logger log, CancellationToken cancellationToken) {
+            super();
+            this.cancellationToken = cancellationToken;
+            this.resource = resource;
+            this.eol = eol;
+            this.trimTrailingWs = trimTrailingWs;
+            this.violationHandler = violationHandler;
+            this.log = log;
+            this.traceLine = log.isTraceEnabled() ? new StringBuilder(120) : null;
+        }
+
+        /**
+         * Checks the end of line of the line just completed.
+         *
+         * @param lineLength the length of the line including the end of line characters
+         * @param actualEol the end of line characters of the line
+         */
+        private void checkEndOfLine(int lineLength, String actualEol) {
+            final String eolString = eol.getEndOfLineString();
+            if (!eolString.equals(actualEol)) {
+                final int actualEolLength = actualEol.length();
+                final int eolLength = eolString.length();
+                if (actualEolLength == 0) {
+                    /*
+                     * This can only be the last line which is no violation of end_of_line itself. Note that we handle
+                     * insert_final_newline in process()
+                     */
+                } else {
+                    final Edit fix;
+                    final int col;
+                    if (actualEolLength == eolLength) {
+                        /* replace */
+                        col = lineLength;
+                        fix = Replace.endOfLine(PropertyType.EndOfLineValue.ofEndOfLineString(actualEol), eol);
+                    } else if (actualEolLength < eolLength) {
+                        /* insert */
+                        switch (actualEol.charAt(0)) {
+                            case '\r':
+                                col = lineLength + 1;
+                                fix = Insert.endOfLine(PropertyType.EndOfLineValue.lf);
+                                break;
+                            case '\n':
+                                col = lineLength;
+                                fix = Insert.endOfLine(PropertyType.EndOfLineValue.cr);
+                                break;
+                            default:
+                                throw new IllegalStateException();
+                        }
+                    } else {
+                        /* actualEolLength > eolLength */
+                        fix = new Delete(1);
+                        switch (eol) {
+                            case cr:
+                                col = lineLength;
+                                break;
+                            case lf:
+                                col = lineLength - 1;
+                                break;
+                            default:
+                                throw new IllegalStateException();
+                        }
+                    }
+                    final Violation violation = new Violation(resource, new Location(lineNumber, col), fix,
+                            TextLinter.this, PropertyType.end_of_line.getName(), eol.name());
+                    violationHandler.handle(violation);
+                }
+            }
+        }
+
+        /**
+         * Reports the violations of the current line and moves to the next one.
+         *
+         * @param actualEol the end of line characters of the current line
+         */
+        private void endLine(String actualEol) {
+            if (traceLine != null) {
+                log.trace("Processing line '{}'",
+                        escape(traceLine.toString(), EndOfLineValue.ofEndOfLineString(actualEol)));
+                traceLine.setLength(0);
+            }
+            if (trailingWsStart >= 0) {
+                final Violation violation = new Violation(resource, new Location(lineNumber, trailingWsStart + 1),
+                        new Delete(trailingWsLength), TextLinter.this, PropertyType.trim_trailing_whitespace.getName(),
+                        "true");
+                violationHandler.handle(violation);
+            }
+            if (eol != null) {
+                checkEndOfLine(column, actualEol);
+            }
+            lastEol = actualEol;
+            lastLineLength = column;
+            lineNumber++;
+            column = 0;
+            wsStart = -1;
+            trailingWsStart = -1;
+        }
+
+        /**
+         * Completes the last line after the whole input was scanned.
+         */
+        void finish() {
+            if (pendingCr) {
+                pendingCr = false;
+                endLine("\r");
+            } else if (column > 0) {
+                /* the end of input counts as a line terminator for the trailing whitespace */
+                trailingWhitespace();
+                endLine("");
+            }
+        }
+
+        /**
+         * Scans the next {@code char} of the input.
+         *
+         * @param ch the {@code char} to scan
+         */
+        private void next(char ch) {
+            if (pendingCr) {
+                pendingCr = false;
+                if (ch == '\n') {
+                    column++;
+                    if (traceLine != null) {
+                        traceLine.append(ch);
+                    }
+                    endLine("\r\n");
+                    return;
+                }
+                endLine("\r");
+            }
+            switch (ch) {
+                case ' ':
+                case '\t':
+                    if (wsStart < 0) {
+                        wsStart = column;
+                    }
+                    break;
+                case '\n':
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    /* the line terminators recognized by $ in Pattern.MULTILINE mode */
+                    trailingWhitespace();
+                    wsStart = -1;
+                    break;
+                default:
+                    wsStart = -1;
+                    break;
+            }
+            column++;
+            if (traceLine != null) {
+                traceLine.append(ch);
+            }
+            if (ch == '\n') {
+                endLine("\n");
+            } else if (ch == '\r') {
+                pendingCr = true;
+            }
+        }
+
+        /**
+         * Scans the given window of the input.
+         *
+         * @param buffer the window
+         * @param len the number of valid {@code char}s in {@code buffer}
+         */
+        void scan(char[] buffer, int len) {
+            cancellationToken.throwIfCancelled();
+            for (int i = 0; i < len; i++) {
+                next(buffer[i]);
+            }
+        }
+
+        /**
+         * Scans the whole input held in memory.
+         *
+         * @param text the input
+         */
+        void scan(CharSequence text) {
+            final int len = text.length();
+            for (int i = 0; i < len; i++) {
+                if ((i & (BUFFER_SIZE - 1)) == 0) {
+                    /* poll window by window rather than line by line, so that minified files are covered too */
+                    cancellationToken.throwIfCancelled();
+                }
+                next(text.charAt(i));
+            }
+        }
+
+        /**
+         * Records the current run of spaces and tabs as the trailing whitespace of the current line unless some was
+         * recorded already.
+         */
+        private void trailingWhitespace() {
+            if (trimTrailingWs && wsStart >= 0 && trailingWsStart < 0) {
+                trailingWsStart = wsStart;
+                trailingWsLength = column - wsStart;
+            }
+        }
+    }
+
+    /**
+     * The size of the window through which the content of a {@link Resource} is scanned and the number of
+     * {@code char}s between two {@link CancellationToken} polls; a power of two
+     */
+    private static final int BUFFER_SIZE = 8192;
+
     private static final List<String> DEFAULT_EXCLUDES = Collections.emptyList();
 
     private static final List<String> DEFAULT_INCLUDES = Collections.unmodifiableList(Arrays.asList("**/*"));
 
-    private static final Pattern TRAILING_WHITESPACE_PATTERN = Pattern.compile("[ \t]+$", Pattern.MULTILINE);
-
     /**
      * Replace the EOL string at the end of the given {@code line} with its respective escape sequence ({@code "\n"},
      * {@code "\r"} or {@code "\r\n"})
@@ -132,7 +390,18 @@ public class TextLinter implements Linter {
     @Override
     public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
             throws IOException {
+        process(resource, properties, violationHandler, CancellationToken.NONE);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler,
+            CancellationToken cancellationToken) throws IOException {
         final Logger log = violationHandler.getLogger();
+        if (resource.isBinary()) {
+            log.info("Skipping file '{}' classified as binary in linter {}", resource, getClass().getName());
+            return;
+        }
         final PropertyType.EndOfLineValue eol = properties.getValue(PropertyType.end_of_line, null, true);
         final Boolean trimTrailingWsBox = properties.getValue(PropertyType.trim_trailing_whitespace, Boolean.FALSE,
                 true);
@@ -144,105 +413,37 @@ public class TextLinter implements Linter {
             log.trace("Checking trim_trailing_whitespace value '{}' in {}", trimTrailingWsBox, resource);
             log.trace("Checking insert_final_newline value '{}' in {}", insertFinalNewline, resource);
         }
-        try (LineReader in = LineReader.of(resource.openReader())) {
-            String line = null;
-            String lastActualEol = null;
-            String lastLine = null;
-            int lineNumber = 1;
-            while ((line = in.readLine()) != null) {
-                if (log.isTraceEnabled()) {
-                    final String actualEol = findEolString(line);
-                    log.trace("Processing line '{}'",
-                            escape(line, actualEol == null ? null : EndOfLineValue.ofEndOfLineString(actualEol)));
-                }
-                lastLine = line;
-                if (trimTrailingWs) {
-                    final Matcher m = TRAILING_WHITESPACE_PATTERN.matcher(line);
-                    if (m.find()) {
-                        int start = m.start();
-                        final Violation violation = new Violation(resource, new Location(lineNumber, start + 1),
-                                new Delete(m.end() - start), this, PropertyType.trim_trailing_whitespace.getName(),
-                                "true");
-                        violationHandler.handle(violation);
-                    }
-                }
-                if (eol != null) {
-                    lastActualEol = findEolString(line);
-                    final String eolString = eol.getEndOfLineString();
-                    if (!eolString.equals(lastActualEol)) {
-                        final int actualEolLength = lastActualEol.length();
-                        final int eolLength = eolString.length();
-                        if (actualEolLength == 0) {
-                            /*
-                             * This can only be the last line which is no violation of end_of_line itself. Note that we
-                             * handle insert_final_newline later in this method
-                             */
-                        } else {
-                            final Edit fix;
-                            final int column;
-                            if (actualEolLength == eolLength) {
-                                /* replace */
-                                column = line.length();
-                                fix = Replace.endOfLine(PropertyType.EndOfLineValue.ofEndOfLineString(lastActualEol),
-                                        eol);
-                            } else if (actualEolLength < eolLength) {
-                                /* insert */
-                                switch (lastActualEol.charAt(0)) {
-                                    case '\r':
-                                        column = line.length() + 1;
-                                        fix = Insert.endOfLine(PropertyType.EndOfLineValue.lf);
-                                        break;
-                                    case '\n':
-                                        column = line.length();
-                                        fix = Insert.endOfLine(PropertyType.EndOfLineValue.cr);
-                                        break;
-                                    default:
-                                        throw new IllegalStateException();
-                                }
-                            } else {
-                                /* actualEolLength > eolLength */
-                                fix = new Delete(1);
-                                switch (eol) {
-                                    case cr:
-                                        column = line.length();
-                                        break;
-                                    case lf:
-                                        column = line.length() - 1;
-                                        break;
-                                    default:
-                                        throw new IllegalStateException();
-                                }
-                            }
-                            final Violation violation = new Violation(resource, new Location(lineNumber, column), fix,
-                                    this, PropertyType.end_of_line.getName(), eol.name());
-                            violationHandler.handle(violation);
+        final LineScanner scanner = new LineScanner(resource, eol, trimTrailingWs, violationHandler, log,
+                cancellationToken);
+        try {
+            if (resource.isLoaded()) {
+                /* decoded already, e.g. by a LintSession shared with other linters, so scan it in place */
+                scanner.scan(resource.getTextAsCharSequence());
+            } else {
+                try (Reader in = resource.openStreamingReader()) {
+                    final BufferArena arena = BufferArena.current();
+                    final char[] buffer = arena.acquireChars(BUFFER_SIZE);
+                    try {
+                        int len;
+                        while ((len = in.read(buffer)) >= 0) {
+                            scanner.scan(buffer, len);
                         }
+                    } finally {
+                        arena.release(buffer);
                     }
                 }
-                lineNumber++;
             }
-            if (insertFinalNewline) {
-                final int col;
-                if (lastLine != null) {
-                    /* A non-empty document */
-                    if (lastActualEol == null) {
-                        /* probably because eol is null */
-                        lastActualEol = findEolString(lastLine);
-                    }
-                    lineNumber--;
-                    col = lastLine.length() + 1;
-                    if (lastActualEol.isEmpty()) {
-                        /* we need to insert an EOL */
-                        if (eol == null) {
-                            // https://github.com/editorconfig/editorconfig/issues/335
-                        } else {
-                            /* eol != null */
-                            final Violation insertFinalNewlineViolation = new Violation(resource,
-                                    new Location(lineNumber, col), Insert.endOfLine(eol), this,
-                                    PropertyType.insert_final_newline.getName(), "true");
-                            violationHandler.handle(insertFinalNewlineViolation);
-                        }
-                    }
+            scanner.finish();
+            if (insertFinalNewline && scanner.lastLineLength >= 0 && scanner.lastEol.isEmpty()) {
+                /* A non-empty document without an EOL at its end */
+                if (eol == null) {
+                    // https://github.com/editorconfig/editorconfig/issues/335
+                } else {
+                    /* eol != null */
+                    final Violation insertFinalNewlineViolation = new Violation(resource,
+                            new Location(scanner.lineNumber - 1, scanner.lastLineLength + 1), Insert.endOfLine(eol),
+                            this, PropertyType.insert_final_newline.getName(), "true");
+                    violationHandler.handle(insertFinalNewlineViolation);
                 }
             }
         } catch (MalformedInputException e) {
@@ -17,17 +17,16 @@
 package org.ec4j.linters;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 
-import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
 import org.antlr.v4.runtime.tree.AbstractParseTreeVisitor;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -36,8 +35,10 @@ import org.antlr.v4.runtime.tree.TerminalNode;
 import org.ec4j.core.ResourceProperties;
 import org.ec4j.core.model.PropertyType;
 import org.ec4j.core.model.PropertyType.IndentStyleValue;
+import org.ec4j.lint.api.CancellationToken;
 import org.ec4j.lint.api.Delete;
 import org.ec4j.lint.api.Edit;
+import org.ec4j.lint.api.IndexedLinter;
 import org.ec4j.lint.api.Insert;
 import org.ec4j.lint.api.Linter;
 import org.ec4j.lint.api.Location;
@@ -76,8 +77,36 @@ import org.ec4j.linters.xml.XmlParserListener;
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  * @since 0.0.1
  */
+@IndexedLinter(includes = { "**/*.xml", "**/*.xsl" })
 public class XmlLinter implements Linter {
 
+    /**
+     * A {@link CommonTokenStream} polling a {@link CancellationToken} every {@link #POLL_INTERVAL} consumed tokens.
+     * Both the parsing and the lookahead of ANTLR's adaptive prediction consume through here, so also the worst cases
+     * of the latter get aborted.
+     */
+    static class CancellableTokenStream extends CommonTokenStream {
+        /** A power of two */
+        private static final int POLL_INTERVAL = 256;
+
+        private final CancellationToken cancellationToken;
+        private int consumed;
+
+        CancellableTokenStream(TokenSource tokenSource, CancellationToken cancellationToken) {
+            super(tokenSource);
+            this.cancellationToken = cancellationToken;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void consume() {
+            if ((++consumed & (POLL_INTERVAL - 1)) == 0) {
+                cancellationToken.throwIfCancelled();
+            }
+            super.consume();
+        }
+    }
+
     /**
      * An {@link XmlParserListener} implementation that detects formatting violations and reports them to the supplied
      * {@link #violationHandler}.
@@ -521,7 +550,17 @@ public class XmlLinter implements Linter {
     @Override
     public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler)
             throws IOException {
+        process(resource, properties, violationHandler, CancellationToken.NONE);
+    }
+
+    @Override
+    public void process(Resource resource, ResourceProperties properties, ViolationHandler violationHandler,
+            CancellationToken cancellationToken) throws IOException {
         final Logger log = violationHandler.getLogger();
+        if (resource.isBinary()) {
+            log.info("Skipping file '{}' classified as binary in linter {}", resource, getClass().getName());
+            return;
+        }
         final IndentStyleValue indentStyle = properties.getValue(PropertyType.indent_style, null, false);
         final Integer effectiveIndentSize;
         if (indentStyle == IndentStyleValue.tab) {
@@ -541,16 +580,16 @@ public class XmlLinter implements Linter {
         if (indentStyle == null && effectiveIndentSize == null) {
             /* nothing to do */
         } else if (indentStyle != null && effectiveIndentSize != null) {
-            try (Reader in = resource.openReader()) {
-                XmlParser parser = new XmlParser(
-                        new CommonTokenStream(new XmlLexer(CharStreams.fromReader(in, resource.toString()))));
-
-                ParseTree rootContext = parser.document();
-                ParseTreeWalker walker = new ParseTreeWalker();
-                walker.walk(
-                        new FormatParserListener(this, resource, indentStyle, effectiveIndentSize.intValue(), violationHandler),
-                        rootContext);
-            }
+            /* parse the in-memory content directly rather than copying it through a Reader */
+            XmlParser parser = new XmlParser(new CancellableTokenStream(
+                    new XmlLexer(CharSequenceCharStream.of(resource.getTextAsCharSequence(), resource.toString())),
+                    cancellationToken));
+
+            ParseTree rootContext = parser.document();
+            ParseTreeWalker walker = new ParseTreeWalker();
+            walker.walk(
+                    new FormatParserListener(this, resource, indentStyle, effectiveIndentSize.intValue(), violationHandler),
+                    rootContext);
         } else {
             log.warn(this.getClass().getName() + " expects both indent_style and indent_size to be set for file '{}'",
                     resource);
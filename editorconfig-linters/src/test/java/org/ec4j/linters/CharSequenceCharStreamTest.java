@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.linters;
+
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.ec4j.linters.xml.XmlLexer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CharSequenceCharStreamTest {
+
+    private static String tokens(CharStream stream) {
+        final CommonTokenStream tokens = new CommonTokenStream(new XmlLexer(stream));
+        tokens.fill();
+        final List<Token> list = tokens.getTokens();
+        final StringBuilder result = new StringBuilder();
+        for (Token token : list) {
+            result.append(token.getType()).append('@').append(token.getLine()).append(':')
+                    .append(token.getCharPositionInLine()).append(' ').append(token.getText()).append('\n');
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void sameTokens() {
+        final String xml = "<?xml version=\"1.0\"?>\n<root>\n  <a x=\"y\">žluťoučký</a>\r\n\t<b/>\n</root>";
+        final CharStream stream = CharSequenceCharStream.of(new StringBuilder(xml), "test.xml");
+        Assert.assertTrue(stream instanceof CharSequenceCharStream);
+        Assert.assertEquals("test.xml", stream.getSourceName());
+        Assert.assertEquals(xml, stream.toString());
+        Assert.assertEquals("root", stream.getText(Interval.of(23, 26)));
+        Assert.assertEquals(tokens(CharStreams.fromString(xml, "test.xml")), tokens(stream));
+    }
+
+    @Test
+    public void supplementary() {
+        final String xml = "<root>😀</root>";
+        final CharStream stream = CharSequenceCharStream.of(xml, "test.xml");
+        Assert.assertFalse(stream instanceof CharSequenceCharStream);
+        Assert.assertEquals(tokens(CharStreams.fromString(xml, "test.xml")), tokens(stream));
+    }
+
+}
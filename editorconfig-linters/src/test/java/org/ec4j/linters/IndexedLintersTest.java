@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017 EditorConfig Linters
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ec4j.linters;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ec4j.lint.api.Linter;
+import org.ec4j.lint.api.LinterRegistry;
+import org.ec4j.lint.api.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IndexedLintersTest {
+
+    /**
+     * @param linter the {@link Linter} to format
+     * @return the lines the linter index should contain for the given {@link Linter}
+     */
+    private static List<String> indexLines(Linter linter) {
+        final List<String> result = new ArrayList<>();
+        result.add(linter.getClass().getName());
+        for (String glob : linter.getDefaultIncludes()) {
+            result.add("+" + glob);
+        }
+        for (String glob : linter.getDefaultExcludes()) {
+            result.add("-" + glob);
+        }
+        return result;
+    }
+
+    @Test
+    public void index() throws IOException {
+        /* the globs in @IndexedLinter must not diverge from getDefaultIncludes() and getDefaultExcludes() */
+        final List<String> expected = new ArrayList<>();
+        for (Linter linter : Arrays.asList(new TextLinter(), new XmlLinter())) {
+            expected.addAll(indexLines(linter));
+        }
+        final List<String> actual = new ArrayList<>();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("META-INF/ec4j/linters.idx");
+                BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    actual.add(line);
+                }
+            }
+        }
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void scan() {
+        final LinterRegistry registry = LinterRegistry.builder().log(Logger.NO_OP)
+                .scan(getClass().getClassLoader()).build();
+        final List<Linter> linters = registry.filter(Paths.get("pom.xml"));
+        Assert.assertEquals(2, linters.size());
+        Assert.assertTrue(linters.get(0) instanceof TextLinter);
+        Assert.assertTrue(linters.get(1) instanceof XmlLinter);
+        Assert.assertSame(linters.get(0), registry.filter(Paths.get("README.adoc")).get(0));
+    }
+
+}
@@ -17,24 +17,57 @@
 package org.ec4j.linters;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
 
 import org.ec4j.core.ResourceProperties;
 import org.ec4j.core.model.Property;
 import org.ec4j.core.model.PropertyType;
 import org.ec4j.core.model.PropertyType.EndOfLineValue;
+import org.ec4j.lint.api.CancellationToken;
 import org.ec4j.lint.api.Delete;
 import org.ec4j.lint.api.Insert;
+import org.ec4j.lint.api.LintCancelledException;
 import org.ec4j.lint.api.Linter;
 import org.ec4j.lint.api.Location;
+import org.ec4j.lint.api.Logger;
 import org.ec4j.lint.api.Replace;
 import org.ec4j.lint.api.Resource;
 import org.ec4j.lint.api.Violation;
+import org.ec4j.lint.api.ViolationCollector;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class TextLinterTest {
 
     private final Linter linter = new TextLinter();
 
+    @Test
+    public void cancelled() throws IOException {
+        final String text = "line1 \nline2\n";
+        final ResourceProperties props = ResourceProperties.builder() //
+                .property(new Property.Builder(null).type(PropertyType.trim_trailing_whitespace).value("true").build()) //
+                .build();
+        final CancellationToken cancellationToken = CancellationToken.create();
+        cancellationToken.cancel();
+        for (boolean loaded : new boolean[] { false, true }) {
+            final Resource doc = LinterTestUtils.createDocument(text, ".txt");
+            if (loaded) {
+                doc.getText();
+            }
+            final ViolationCollector collector = new ViolationCollector(false, "", Logger.NO_OP);
+            try {
+                linter.process(doc, props, collector, cancellationToken);
+                Assert.fail("LintCancelledException expected");
+            } catch (LintCancelledException expected) {
+                Assert.assertFalse(collector.hasViolations());
+            }
+        }
+    }
+
     @Test
     public void end_of_line_cr() throws IOException {
         final ResourceProperties props = ResourceProperties.builder() //
@@ -147,6 +180,44 @@ public class TextLinterTest {
         LinterTestUtils.assertParse(linter, doc, expectedText, props);
     }
 
+    private static List<Violation> collect(Linter linter, Resource doc, ResourceProperties props) throws IOException {
+        final ViolationCollector collector = new ViolationCollector(false, "mvn editorconfig:format", Logger.NO_OP);
+        collector.startFiles();
+        collector.startFile(doc);
+        linter.process(doc, props, collector);
+        collector.endFile();
+        return collector.getViolations().get(doc);
+    }
+
+    @Test
+    public void streaming() throws IOException {
+        final ResourceProperties props = ResourceProperties.builder() //
+                .property(new Property.Builder(null).type(PropertyType.end_of_line).value("lf").build()) //
+                .property(new Property.Builder(null).type(PropertyType.trim_trailing_whitespace).value("true").build()) //
+                .property(new Property.Builder(null).type(PropertyType.insert_final_newline).value("true").build()) //
+                .build();
+        /* big enough to span multiple windows of both TextLinter and the streaming reader */
+        final Random rnd = new Random(42);
+        final String alphabet = "ab \t\r\nž\u2028";
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            text.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        }
+        text.append(" \r");
+        final Path file = Files.createTempFile(TextLinterTest.class.getSimpleName(), ".txt");
+        try {
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            final List<Violation> expected = collect(linter,
+                    new Resource(file, file, StandardCharsets.UTF_8, text.toString()), props);
+            final Resource streamed = new Resource(file, file, StandardCharsets.UTF_8,
+                    Resource.Options.builder().streamingThreshold(0).build());
+            Assert.assertEquals(expected, collect(linter, streamed, props));
+            Assert.assertTrue(expected.size() > 1000);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void trim_trailing_whitespace() throws IOException {
         final ResourceProperties props = ResourceProperties.builder() //
@@ -22,17 +22,46 @@ import org.ec4j.core.ResourceProperties;
 import org.ec4j.core.model.Property;
 import org.ec4j.core.model.PropertyType;
 import org.ec4j.core.model.PropertyType.IndentStyleValue;
+import org.ec4j.lint.api.CancellationToken;
 import org.ec4j.lint.api.Delete;
+import org.ec4j.lint.api.LintCancelledException;
 import org.ec4j.lint.api.Linter;
 import org.ec4j.lint.api.Location;
+import org.ec4j.lint.api.Logger;
 import org.ec4j.lint.api.Replace;
 import org.ec4j.lint.api.Resource;
 import org.ec4j.lint.api.Violation;
+import org.ec4j.lint.api.ViolationCollector;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class XmlLinterTest {
     private final Linter linter = new XmlLinter();
 
+    @Test
+    public void cancelled() throws Exception {
+        /* enough tokens for the token stream to poll the cancellation token */
+        final StringBuilder text = new StringBuilder("<?xml version=\"1.0\"?>\n<root>\n");
+        for (int i = 0; i < 200; i++) {
+            text.append("  <item>").append(i).append("</item>\n");
+        }
+        text.append("</root>\n");
+        final Resource doc = LinterTestUtils.createDocument(text.toString(), ".xml");
+        final ResourceProperties props = ResourceProperties.builder() //
+                .property(new Property.Builder(null).type(PropertyType.indent_size).value("2").build()) //
+                .property(new Property.Builder(null).type(PropertyType.indent_style).value("space").build()) //
+                .build();
+        final CancellationToken cancellationToken = CancellationToken.create();
+        cancellationToken.cancel();
+        final ViolationCollector collector = new ViolationCollector(false, "", Logger.NO_OP);
+        try {
+            linter.process(doc, props, collector, cancellationToken);
+            Assert.fail("LintCancelledException expected");
+        } catch (LintCancelledException expected) {
+            Assert.assertFalse(expected.isTimeout());
+        }
+    }
+
     @Test
     public void ignoreIndentSizeWithTabs() throws Exception {
         String text = "<?xml version=\"1.0\"?>\n" + //